@@ -1,23 +1,40 @@
 package cn.dlysxx.www.common.crypto;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.security.GeneralSecurityException;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.stream.IntStream;
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
+import javax.crypto.CipherInputStream;
+import javax.crypto.CipherOutputStream;
 import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.NoSuchPaddingException;
-import javax.crypto.SecretKey;
+import javax.crypto.ShortBufferException;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
-import org.apache.commons.io.FileUtils;
 
 /**
  * Class to encrypt/decrypt file or string in AES.
@@ -26,6 +43,35 @@ import org.apache.commons.io.FileUtils;
  **/
 public class AESCryptoUtil {
 
+    private static final byte[] HEADER = "Salted__".getBytes(StandardCharsets.UTF_8);
+    private static final int SALT_LENGTH = 8;
+    private static final int CHANNEL_BUFFER_SIZE = 64 * 1024;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /**
+     * Direct buffers reused by the file methods, the output buffer has room for one extra block. At most one pair per
+     * processor is kept, calls beyond that allocate their own.
+     */
+    private static final BlockingQueue<ByteBuffer[]> CHANNEL_BUFFERS =
+        new ArrayBlockingQueue<>(Runtime.getRuntime().availableProcessors());
+
+    /** Batches at least this large are processed in parallel */
+    private static final int PARALLEL_THRESHOLD = 1024;
+
+    /**
+     * Cipher and digest reused by the one-shot byte array methods of each thread. Streaming methods, which keep a
+     * cipher across calls, always create their own instance.
+     */
+    private static final ThreadLocal<Cipher> CBC_CIPHER = ThreadLocal.withInitial(AESCryptoUtil::createCipher);
+    private static final ThreadLocal<MessageDigest> MD5 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            //This exception should never happen
+            throw new IllegalStateException(e);
+        }
+    });
+
     /**
      * Encrypt plain text. IMPORTANT: text should use UTF-8.
      *
@@ -40,7 +86,7 @@ public class AESCryptoUtil {
     public static byte[] encryptString(String plainText, String password)
         throws InvalidKeyException, InvalidAlgorithmParameterException, IllegalBlockSizeException, BadPaddingException {
         byte[] textByte = plainText.getBytes(StandardCharsets.UTF_8);
-        return AESCryptoUtil.encrypt(textByte, password);
+        return AESCryptoUtil.encrypt(textByte, password.getBytes(StandardCharsets.UTF_8));
     }
 
     /**
@@ -56,12 +102,210 @@ public class AESCryptoUtil {
      */
     public static byte[] decryptString(String encrypted, String password)
         throws InvalidKeyException, InvalidAlgorithmParameterException, IllegalBlockSizeException, BadPaddingException {
-        return AESCryptoUtil.decrypt(Base64.getDecoder().decode(encrypted.getBytes(StandardCharsets.UTF_8)), password);
+        return AESCryptoUtil.decrypt(Base64.getDecoder().decode(encrypted), password.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Encrypt plain text into Base64 text, the counterpart of {@link #decryptBase64(String, String)}.
+     *
+     * @param plainText plain text, encoded in UTF-8 before encryption
+     * @param password  AES password
+     * @return Base64 encoded encrypted text
+     * @throws InvalidKeyException                Invalid Key Exception
+     * @throws InvalidAlgorithmParameterException Invalid Algorithm Parameter Exception
+     * @throws IllegalBlockSizeException          Illegal Block Size Exception
+     * @throws BadPaddingException                Bad Padding Exception
+     */
+    public static String encryptBase64(String plainText, String password)
+        throws InvalidKeyException, InvalidAlgorithmParameterException, IllegalBlockSizeException, BadPaddingException {
+        byte[] encrypted = encrypt(plainText.getBytes(StandardCharsets.UTF_8), password.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(encrypted);
+    }
+
+    /**
+     * Decrypt Base64 text into plain text, the counterpart of {@link #encryptBase64(String, String)}.
+     *
+     * @param encrypted Base64 encoded encrypted text
+     * @param password  AES password
+     * @return plain text, decoded in UTF-8
+     * @throws InvalidKeyException                Invalid Key Exception
+     * @throws InvalidAlgorithmParameterException Invalid Algorithm Parameter Exception
+     * @throws IllegalBlockSizeException          Illegal Block Size Exception
+     * @throws BadPaddingException                Bad Padding Exception
+     */
+    public static String decryptBase64(String encrypted, String password)
+        throws InvalidKeyException, InvalidAlgorithmParameterException, IllegalBlockSizeException, BadPaddingException {
+        byte[] decrypted = decrypt(Base64.getDecoder().decode(encrypted), password.getBytes(StandardCharsets.UTF_8));
+        return new String(decrypted, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Encrypt plain texts in batch, e.g. a database column. Large batches are processed in parallel.
+     *
+     * @param plainTexts plain texts, {@code null} elements stay {@code null}
+     * @param key        AES key handle
+     * @return Base64 encoded encrypted texts, in the same order as {@code plainTexts}
+     * @throws InvalidKeyException                Invalid Key Exception
+     * @throws InvalidAlgorithmParameterException Invalid Algorithm Parameter Exception
+     * @throws IllegalBlockSizeException          Illegal Block Size Exception
+     * @throws BadPaddingException                Bad Padding Exception
+     */
+    public static String[] encryptStrings(List<String> plainTexts, AESKey key)
+        throws InvalidKeyException, InvalidAlgorithmParameterException, IllegalBlockSizeException, BadPaddingException {
+        String[] result = new String[plainTexts.size()];
+        batch(result.length, i -> {
+            String plainText = plainTexts.get(i);
+            if (plainText != null) {
+                byte[] encrypted = encrypt(plainText.getBytes(StandardCharsets.UTF_8), key.passwordBytes());
+                result[i] = Base64.getEncoder().encodeToString(encrypted);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Encrypt plain texts in batch, e.g. a database column. Large batches are processed in parallel.
+     *
+     * @param plainTexts plain texts, {@code null} elements stay {@code null}
+     * @param key        AES key handle
+     * @return Base64 encoded encrypted texts, in the same order as {@code plainTexts}
+     * @throws InvalidKeyException                Invalid Key Exception
+     * @throws InvalidAlgorithmParameterException Invalid Algorithm Parameter Exception
+     * @throws IllegalBlockSizeException          Illegal Block Size Exception
+     * @throws BadPaddingException                Bad Padding Exception
+     */
+    public static String[] encryptStrings(String[] plainTexts, AESKey key)
+        throws InvalidKeyException, InvalidAlgorithmParameterException, IllegalBlockSizeException, BadPaddingException {
+        return encryptStrings(Arrays.asList(plainTexts), key);
+    }
+
+    /**
+     * Decrypt Base64 encoded encrypted texts in batch, e.g. a database column. Large batches are processed in
+     * parallel.
+     *
+     * @param encrypted Base64 encoded encrypted texts, {@code null} elements stay {@code null}
+     * @param key       AES key handle
+     * @return UTF-8 decoded plain texts, in the same order as {@code encrypted}
+     * @throws InvalidKeyException                Invalid Key Exception
+     * @throws InvalidAlgorithmParameterException Invalid Algorithm Parameter Exception
+     * @throws IllegalBlockSizeException          Illegal Block Size Exception
+     * @throws BadPaddingException                Bad Padding Exception
+     */
+    public static String[] decryptStrings(List<String> encrypted, AESKey key)
+        throws InvalidKeyException, InvalidAlgorithmParameterException, IllegalBlockSizeException, BadPaddingException {
+        String[] result = new String[encrypted.size()];
+        batch(result.length, i -> {
+            String value = encrypted.get(i);
+            if (value != null) {
+                byte[] decrypted = decrypt(Base64.getDecoder().decode(value), key.passwordBytes());
+                result[i] = new String(decrypted, StandardCharsets.UTF_8);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Decrypt Base64 encoded encrypted texts in batch, e.g. a database column. Large batches are processed in
+     * parallel.
+     *
+     * @param encrypted Base64 encoded encrypted texts, {@code null} elements stay {@code null}
+     * @param key       AES key handle
+     * @return UTF-8 decoded plain texts, in the same order as {@code encrypted}
+     * @throws InvalidKeyException                Invalid Key Exception
+     * @throws InvalidAlgorithmParameterException Invalid Algorithm Parameter Exception
+     * @throws IllegalBlockSizeException          Illegal Block Size Exception
+     * @throws BadPaddingException                Bad Padding Exception
+     */
+    public static String[] decryptStrings(String[] encrypted, AESKey key)
+        throws InvalidKeyException, InvalidAlgorithmParameterException, IllegalBlockSizeException, BadPaddingException {
+        return decryptStrings(Arrays.asList(encrypted), key);
+    }
+
+    /**
+     * Wrap output stream to encrypt everything written to it. The header is written immediately, the last block is
+     * written when the returned stream is closed, which also closes {@code out}.
+     *
+     * @param out      encrypted data destination
+     * @param password AES password
+     * @return stream accepting plain data
+     * @throws InvalidKeyException                Invalid Key Exception
+     * @throws InvalidAlgorithmParameterException Invalid Algorithm Parameter Exception
+     * @throws IOException                        IOException
+     */
+    public static OutputStream encryptingOutputStream(OutputStream out, String password)
+        throws InvalidKeyException, InvalidAlgorithmParameterException, IOException {
+        byte[] salt = new byte[SALT_LENGTH];
+        RANDOM.nextBytes(salt);
+        out.write(HEADER);
+        out.write(salt);
+        return new CipherOutputStream(out,
+            initCipher(createCipher(), Cipher.ENCRYPT_MODE, password.getBytes(StandardCharsets.UTF_8), salt));
+    }
+
+    /**
+     * Wrap output stream to encrypt everything written to it and write the encrypted data as Base64 text, e.g. into
+     * a JSON or HTTP body. Closing the returned stream writes the last block and Base64 padding and closes
+     * {@code out}.
+     *
+     * @param out      Base64 text destination
+     * @param password AES password
+     * @return stream accepting plain data
+     * @throws InvalidKeyException                Invalid Key Exception
+     * @throws InvalidAlgorithmParameterException Invalid Algorithm Parameter Exception
+     * @throws IOException                        IOException
+     */
+    public static OutputStream encryptingBase64OutputStream(OutputStream out, String password)
+        throws InvalidKeyException, InvalidAlgorithmParameterException, IOException {
+        return encryptingOutputStream(Base64.getEncoder().wrap(out), password);
+    }
+
+    /**
+     * Wrap input stream of encrypted data to read it decrypted. The header is read immediately. A wrong password or
+     * corrupted data is reported as {@link IOException} when the end of the stream is reached.
+     *
+     * @param in       encrypted data source
+     * @param password AES password
+     * @return stream of plain data
+     * @throws InvalidKeyException                Invalid Key Exception
+     * @throws InvalidAlgorithmParameterException Invalid Algorithm Parameter Exception
+     * @throws IOException                        IOException
+     */
+    public static InputStream decryptingInputStream(InputStream in, String password)
+        throws InvalidKeyException, InvalidAlgorithmParameterException, IOException {
+        byte[] prefix = new byte[HEADER.length + SALT_LENGTH];
+        if (in.readNBytes(prefix, 0, prefix.length) < prefix.length) {
+            throw new IOException("Not an AES encrypted stream");
+        }
+        byte[] salt = Arrays.copyOfRange(prefix, HEADER.length, prefix.length);
+        return new CipherInputStream(in,
+            initCipher(createCipher(), Cipher.DECRYPT_MODE, password.getBytes(StandardCharsets.UTF_8), salt));
+    }
+
+    /**
+     * Wrap input stream of Base64 encoded encrypted data to read it decrypted.
+     *
+     * @param in       Base64 text source
+     * @param password AES password
+     * @return stream of plain data
+     * @throws InvalidKeyException                Invalid Key Exception
+     * @throws InvalidAlgorithmParameterException Invalid Algorithm Parameter Exception
+     * @throws IOException                        IOException
+     * @see #decryptingInputStream(InputStream, String)
+     */
+    public static InputStream decryptingBase64InputStream(InputStream in, String password)
+        throws InvalidKeyException, InvalidAlgorithmParameterException, IOException {
+        return decryptingInputStream(Base64.getDecoder().wrap(in), password);
     }
 
     /**
      * Encrypt file in AES.
      *
+     * <p>
+     * The file is streamed through {@link FileChannel}s and reusable direct buffers, so memory use does not depend
+     * on the file size. The output is written next to the output file and moved into place when complete, so an
+     * existing output file is left unchanged if this fails.
+     * </p>
+     *
      * @param inputFilePath  input file path
      * @param outputFilePath encrypted file path
      * @param password       AES password
@@ -74,16 +318,28 @@ public class AESCryptoUtil {
     public static void encryptFile(String inputFilePath, String outputFilePath, String password)
         throws InvalidKeyException, InvalidAlgorithmParameterException, IllegalBlockSizeException, BadPaddingException,
         IOException {
-        File input = new File(inputFilePath);
-        byte[] content = FileUtils.readFileToByteArray(input);
-        byte[] encrypted = AESCryptoUtil.encrypt(content, password);
-
-        FileUtils.writeByteArrayToFile(new File(outputFilePath), encrypted);
+        try (FileChannel in = FileChannel.open(Paths.get(inputFilePath), StandardOpenOption.READ)) {
+            byte[] salt = new byte[SALT_LENGTH];
+            RANDOM.nextBytes(salt);
+            Cipher cipher = initCipher(createCipher(), Cipher.ENCRYPT_MODE, password.getBytes(StandardCharsets.UTF_8),
+                salt);
+            writeAtomically(Paths.get(outputFilePath), out -> {
+                writeFully(out, ByteBuffer.wrap(HEADER));
+                writeFully(out, ByteBuffer.wrap(salt));
+                transform(in, out, cipher);
+            });
+        }
     }
 
     /**
      * Decrypt file in AES.
      *
+     * <p>
+     * The file is streamed through {@link FileChannel}s and reusable direct buffers, so memory use does not depend
+     * on the file size. The output is written next to the output file and moved into place when complete, so an
+     * existing output file is left unchanged if this fails.
+     * </p>
+     *
      * @param inputFilePath  encrypted file path
      * @param outputFilePath output decrypted file path
      * @param password       AES password
@@ -96,99 +352,220 @@ public class AESCryptoUtil {
     public static void decryptFile(String inputFilePath, String outputFilePath, String password)
         throws IOException, InvalidKeyException, InvalidAlgorithmParameterException, IllegalBlockSizeException,
         BadPaddingException {
-        byte[] encryptedData = FileUtils.readFileToByteArray(new File(inputFilePath));
-        byte[] decrypted = AESCryptoUtil.decrypt(encryptedData, password);
-        FileUtils.writeByteArrayToFile(new File(outputFilePath), decrypted);
+        try (FileChannel in = FileChannel.open(Paths.get(inputFilePath), StandardOpenOption.READ)) {
+            ByteBuffer prefix = ByteBuffer.allocate(HEADER.length + SALT_LENGTH);
+            while (prefix.hasRemaining() && in.read(prefix) >= 0) {
+                // read header and salt
+            }
+            if (prefix.hasRemaining()) {
+                throw new IOException("Not an AES encrypted file: " + inputFilePath);
+            }
+            byte[] salt = Arrays.copyOfRange(prefix.array(), HEADER.length, prefix.capacity());
+            Cipher cipher = initCipher(createCipher(), Cipher.DECRYPT_MODE, password.getBytes(StandardCharsets.UTF_8),
+                salt);
+            writeAtomically(Paths.get(outputFilePath), out -> transform(in, out, cipher));
+        }
     }
 
-    private static void getKeyAndGenerateIv(String password, byte[] salt, byte[] keyBytes, byte[] ivBytes) {
+    /**
+     * Write into a temp file next to the target and move it into place, so that a failure, e.g. a wrong password
+     * detected by the last block, leaves no partial output behind.
+     */
+    private static void writeAtomically(Path target, ChannelWriter writer)
+        throws IOException, IllegalBlockSizeException, BadPaddingException {
+        Path absolute = target.toAbsolutePath();
+        Path part = createTempSibling(absolute);
+        boolean success = false;
         try {
-            byte[] passwordBytes = password.getBytes(StandardCharsets.UTF_8);
-            int length = passwordBytes.length + salt.length;
-            ByteBuffer byteBuffer = ByteBuffer.allocate(length);
-            byteBuffer.put(passwordBytes);
-            byteBuffer.put(salt);
-            byteBuffer.rewind();
-            byte[] byteArray = new byte[length];
-            byteBuffer.get(byteArray);
-            System.arraycopy(MessageDigest.getInstance("MD5").digest(byteArray), 0, keyBytes, 0, keyBytes.length);
-            length = passwordBytes.length + salt.length + keyBytes.length;
-            byteBuffer = ByteBuffer.allocate(length);
-            byteBuffer.put(keyBytes);
-            byteBuffer.put(passwordBytes);
-            byteBuffer.put(salt);
-            byteBuffer.rewind();
-            byteArray = new byte[length];
-            byteBuffer.get(byteArray);
-            System.arraycopy(MessageDigest.getInstance("MD5").digest(byteArray), 0, ivBytes, 0, ivBytes.length);
-        } catch (NoSuchAlgorithmException e) {
-            //This exception should never happen
+            try (FileChannel out = FileChannel.open(part, StandardOpenOption.WRITE)) {
+                writer.write(out);
+            }
+            Files.move(part, absolute, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            success = true;
+        } finally {
+            if (!success) {
+                Files.deleteIfExists(part);
+            }
         }
     }
 
-    private static byte[] encrypt(byte[] plaintext, String password)
-        throws InvalidKeyException, InvalidAlgorithmParameterException, IllegalBlockSizeException, BadPaddingException {
-        byte[] randomBytes = new byte[8];
-        new SecureRandom().nextBytes(randomBytes);
+    /**
+     * Create empty file next to target with the permissions of the target, or the default permissions of new files
+     * if there is no target yet. {@link Files#createTempFile} would make the output readable by its owner only.
+     */
+    private static Path createTempSibling(Path target) throws IOException {
+        while (true) {
+            Path part = target.resolveSibling("." + target.getFileName() + "."
+                + Long.toUnsignedString(RANDOM.nextLong(), Character.MAX_RADIX) + ".part");
+            try {
+                Files.newByteChannel(part, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE).close();
+            } catch (FileAlreadyExistsException e) {
+                continue;
+            }
+            try {
+                if (Files.getFileAttributeView(target, PosixFileAttributeView.class) != null && Files.exists(target)) {
+                    Files.setPosixFilePermissions(part, Files.getPosixFilePermissions(target));
+                }
+            } catch (NoSuchFileException e) {
+                // target deleted meanwhile, the defaults apply
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(part);
+                throw e;
+            }
+            return part;
+        }
+    }
 
-        byte[] keyBytes = new byte[16];
-        byte[] ivBytes = new byte[16];
-        getKeyAndGenerateIv(password, randomBytes, keyBytes, ivBytes);
+    private static void transform(FileChannel in, FileChannel out, Cipher cipher)
+        throws IOException, IllegalBlockSizeException, BadPaddingException {
+        ByteBuffer[] buffers = CHANNEL_BUFFERS.poll();
+        if (buffers == null) {
+            buffers = new ByteBuffer[] {ByteBuffer.allocateDirect(CHANNEL_BUFFER_SIZE),
+                ByteBuffer.allocateDirect(CHANNEL_BUFFER_SIZE + 16)};
+        }
+        ByteBuffer src = buffers[0];
+        ByteBuffer dst = buffers[1];
+        src.clear();
+        try {
+            while (in.read(src) >= 0) {
+                src.flip();
+                dst.clear();
+                cipher.update(src, dst);
+                src.compact();
+                dst.flip();
+                writeFully(out, dst);
+            }
+            src.flip();
+            dst.clear();
+            cipher.doFinal(src, dst);
+            dst.flip();
+            writeFully(out, dst);
+        } catch (ShortBufferException e) {
+            //This exception should never happen, dst always has one extra block
+            throw new IllegalStateException(e);
+        } finally {
+            CHANNEL_BUFFERS.offer(buffers);
+        }
+    }
 
-        SecretKey secret = new SecretKeySpec(keyBytes, "AES");
-        IvParameterSpec ivSpec = new IvParameterSpec(ivBytes);
-        Cipher cipher = null;
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static Cipher createCipher() {
         try {
-            cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+            return Cipher.getInstance("AES/CBC/PKCS5Padding");
         } catch (NoSuchAlgorithmException | NoSuchPaddingException e) {
             //This Exception should never happen
+            throw new IllegalStateException(e);
         }
-        assert cipher != null;
-        cipher.init(Cipher.ENCRYPT_MODE, secret, ivSpec);
-        byte[] encryptedBytes = cipher.doFinal(plaintext);
-
-        final String header_string = "Salted__";
-        byte[] headerBytes = header_string.getBytes(StandardCharsets.UTF_8);
-        int length = headerBytes.length + randomBytes.length + encryptedBytes.length;
-        ByteBuffer byteBuffer = ByteBuffer.allocate(length);
-        byteBuffer.put(headerBytes);
-        byteBuffer.put(randomBytes);
-        byteBuffer.put(encryptedBytes);
-        byteBuffer.rewind();
-        byte[] byteArray = new byte[length];
-        byteBuffer.get(byteArray);
+    }
 
-        return byteArray;
+    private static Cipher initCipher(Cipher cipher, int mode, byte[] passwordBytes, byte[] salt)
+        throws InvalidKeyException, InvalidAlgorithmParameterException {
+        byte[] keyBytes = new byte[16];
+        byte[] ivBytes = new byte[16];
+        getKeyAndGenerateIv(passwordBytes, salt, keyBytes, ivBytes);
+        cipher.init(mode, new SecretKeySpec(keyBytes, "AES"), new IvParameterSpec(ivBytes));
+        return cipher;
     }
 
-    private static byte[] decrypt(byte[] payloadBytes, String password)
+    private static void getKeyAndGenerateIv(byte[] passwordBytes, byte[] salt, byte[] keyBytes, byte[] ivBytes) {
+        MessageDigest md5 = MD5.get();
+        md5.update(passwordBytes);
+        md5.update(salt);
+        System.arraycopy(md5.digest(), 0, keyBytes, 0, keyBytes.length);
+        md5.update(keyBytes);
+        md5.update(passwordBytes);
+        md5.update(salt);
+        System.arraycopy(md5.digest(), 0, ivBytes, 0, ivBytes.length);
+    }
+
+    private static void batch(int size, CryptoTask task)
         throws InvalidKeyException, InvalidAlgorithmParameterException, IllegalBlockSizeException, BadPaddingException {
-        byte[] headerBytes = new byte[8];
-        byte[] saltBytes = new byte[8];
-        int length = payloadBytes.length;
-        ByteBuffer byteBuffer = ByteBuffer.allocate(length);
-        byteBuffer.put(payloadBytes);
-        byteBuffer.rewind();
-        byteBuffer.get(headerBytes);
-        byteBuffer.get(saltBytes);
-        length = payloadBytes.length - headerBytes.length - saltBytes.length;
-        byte[] dataBytes = new byte[length];
-        byteBuffer.get(dataBytes);
-
-        byte[] keyByte = new byte[16];
-        byte[] ivBytes = new byte[16];
-        getKeyAndGenerateIv(password, saltBytes, keyByte, ivBytes);
+        IntStream indexes = IntStream.range(0, size);
+        if (size >= PARALLEL_THRESHOLD) {
+            indexes = indexes.parallel();
+        }
+        try {
+            indexes.forEach(i -> {
+                try {
+                    task.run(i);
+                } catch (GeneralSecurityException e) {
+                    throw new BatchException(e);
+                }
+            });
+        } catch (BatchException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof InvalidKeyException) {
+                throw (InvalidKeyException) cause;
+            } else if (cause instanceof InvalidAlgorithmParameterException) {
+                throw (InvalidAlgorithmParameterException) cause;
+            } else if (cause instanceof IllegalBlockSizeException) {
+                throw (IllegalBlockSizeException) cause;
+            } else if (cause instanceof BadPaddingException) {
+                throw (BadPaddingException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
 
-        SecretKey secret = new SecretKeySpec(keyByte, "AES");
-        IvParameterSpec ivSpec = new IvParameterSpec(ivBytes);
-        Cipher cipher = null;
+    private static byte[] encrypt(byte[] plaintext, byte[] passwordBytes)
+        throws InvalidKeyException, InvalidAlgorithmParameterException, IllegalBlockSizeException, BadPaddingException {
+        byte[] salt = new byte[SALT_LENGTH];
+        RANDOM.nextBytes(salt);
+        Cipher cipher = initCipher(CBC_CIPHER.get(), Cipher.ENCRYPT_MODE, passwordBytes, salt);
+
+        int offset = HEADER.length + SALT_LENGTH;
+        byte[] byteArray = new byte[offset + cipher.getOutputSize(plaintext.length)];
+        System.arraycopy(HEADER, 0, byteArray, 0, HEADER.length);
+        System.arraycopy(salt, 0, byteArray, HEADER.length, SALT_LENGTH);
         try {
-            cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
-        } catch (NoSuchAlgorithmException | NoSuchPaddingException e) {
-            //This Exception should never happen
+            cipher.doFinal(plaintext, 0, plaintext.length, byteArray, offset);
+        } catch (ShortBufferException e) {
+            //This exception should never happen, output size is exact for encryption
+            throw new IllegalStateException(e);
+        }
+        return byteArray;
+    }
+
+    private static byte[] decrypt(byte[] payloadBytes, byte[] passwordBytes)
+        throws InvalidKeyException, InvalidAlgorithmParameterException, IllegalBlockSizeException, BadPaddingException {
+        int offset = HEADER.length + SALT_LENGTH;
+        if (payloadBytes.length < offset) {
+            throw new IllegalBlockSizeException("Encrypted data is shorter than its header");
+        }
+        byte[] salt = Arrays.copyOfRange(payloadBytes, HEADER.length, offset);
+        Cipher cipher = initCipher(CBC_CIPHER.get(), Cipher.DECRYPT_MODE, passwordBytes, salt);
+        return cipher.doFinal(payloadBytes, offset, payloadBytes.length - offset);
+    }
+
+    /**
+     * Writes the output of a file method.
+     */
+    @FunctionalInterface
+    private interface ChannelWriter {
+        void write(FileChannel out) throws IOException, IllegalBlockSizeException, BadPaddingException;
+    }
+
+    /**
+     * One element of a batch.
+     */
+    @FunctionalInterface
+    private interface CryptoTask {
+        void run(int index) throws GeneralSecurityException;
+    }
+
+    /**
+     * Carries checked exceptions out of parallel batch workers.
+     */
+    private static final class BatchException extends RuntimeException {
+        private static final long serialVersionUID = 6042187375113920342L;
+
+        private BatchException(Throwable cause) {
+            super(cause);
         }
-        assert cipher != null;
-        cipher.init(Cipher.DECRYPT_MODE, secret, ivSpec);
-        return cipher.doFinal(dataBytes);
     }
 }
@@ -0,0 +1,396 @@
+package cn.dlysxx.www.common.crypto;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.InvalidAlgorithmParameterException;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.spec.InvalidKeySpecException;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.NoSuchPaddingException;
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Class to encrypt/decrypt large file in chunked AES-GCM.
+ *
+ * <p>
+ * The file is split into fixed size chunks, each chunk is encrypted and authenticated independently with its own
+ * nonce (nonce prefix + chunk index), so chunks are processed in parallel on a {@link ForkJoinPool} and written with
+ * positional {@link FileChannel} writes. The header is bound to every chunk as additional authenticated data.
+ * </p>
+ *
+ * <pre>
+ * | magic(8) | salt(16) | iterations(4) | nonce prefix(4) | chunk size(4) | plain length(8) | chunk 0 | chunk 1 | ...
+ * </pre>
+ *
+ * @author shuai
+ **/
+public class AESGCMCryptoUtil {
+
+    /** Default plain text chunk size (1 MiB) */
+    public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+
+    /** Largest plain text chunk size (64 MiB), every chunk is held in memory twice while it is processed */
+    public static final int MAX_CHUNK_SIZE = 64 * 1024 * 1024;
+
+    private static final byte[] MAGIC = "DLYGCM01".getBytes(StandardCharsets.US_ASCII);
+    private static final int SALT_LENGTH = 16;
+    private static final int NONCE_PREFIX_LENGTH = 4;
+    private static final int HEADER_LENGTH = MAGIC.length + SALT_LENGTH + 4 + NONCE_PREFIX_LENGTH + 4 + 8;
+    private static final int TAG_LENGTH = 16;
+    private static final int KEY_ITERATIONS = 65536;
+    private static final int MAX_KEY_ITERATIONS = 10_000_000;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /**
+     * Encrypt file in chunked AES-GCM with default chunk size on the common pool.
+     *
+     * @param inputFilePath  input file path
+     * @param outputFilePath encrypted file path
+     * @param password       AES password
+     * @throws InvalidKeyException                Invalid Key Exception
+     * @throws InvalidAlgorithmParameterException Invalid Algorithm Parameter Exception
+     * @throws IllegalBlockSizeException          Illegal Block Size Exception
+     * @throws BadPaddingException                Bad Padding Exception
+     * @throws IOException                        IOException
+     */
+    public static void encryptFile(String inputFilePath, String outputFilePath, String password)
+        throws InvalidKeyException, InvalidAlgorithmParameterException, IllegalBlockSizeException, BadPaddingException,
+        IOException {
+        encryptFile(inputFilePath, outputFilePath, password, DEFAULT_CHUNK_SIZE, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Encrypt file in chunked AES-GCM. The output file is deleted if encryption fails.
+     *
+     * @param inputFilePath  input file path
+     * @param outputFilePath encrypted file path
+     * @param password       AES password
+     * @param chunkSize      plain text chunk size in bytes, 1 to {@link #MAX_CHUNK_SIZE}
+     * @param pool           pool to run chunk tasks on
+     * @throws InvalidKeyException                Invalid Key Exception
+     * @throws InvalidAlgorithmParameterException Invalid Algorithm Parameter Exception
+     * @throws IllegalBlockSizeException          Illegal Block Size Exception
+     * @throws BadPaddingException                Bad Padding Exception
+     * @throws IOException                        IOException
+     */
+    public static void encryptFile(String inputFilePath, String outputFilePath, String password, int chunkSize,
+        ForkJoinPool pool)
+        throws InvalidKeyException, InvalidAlgorithmParameterException, IllegalBlockSizeException, BadPaddingException,
+        IOException {
+        if (chunkSize <= 0 || chunkSize > MAX_CHUNK_SIZE) {
+            throw new IllegalArgumentException("chunkSize must be between 1 and " + MAX_CHUNK_SIZE + ": " + chunkSize);
+        }
+        Path output = Paths.get(outputFilePath);
+        try (FileChannel in = FileChannel.open(Paths.get(inputFilePath), StandardOpenOption.READ)) {
+            byte[] salt = new byte[SALT_LENGTH];
+            byte[] noncePrefix = new byte[NONCE_PREFIX_LENGTH];
+            RANDOM.nextBytes(salt);
+            RANDOM.nextBytes(noncePrefix);
+            long plainLength = in.size();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            header.put(MAGIC).put(salt).putInt(KEY_ITERATIONS).put(noncePrefix).putInt(chunkSize)
+                .putLong(plainLength);
+            byte[] headerBytes = header.array();
+            SecretKey key = deriveKey(password, salt, KEY_ITERATIONS);
+            Layout layout = new Layout(chunkSize, plainLength);
+
+            FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+            boolean success = false;
+            try {
+                writeFully(out, ByteBuffer.wrap(headerBytes), 0);
+                run(pool, new ChunkTask(Cipher.ENCRYPT_MODE, key, headerBytes, noncePrefix, layout, in, out, 0,
+                    layout.chunkCount));
+                success = true;
+            } finally {
+                out.close();
+                if (!success) {
+                    Files.deleteIfExists(output);
+                }
+            }
+        }
+    }
+
+    /**
+     * Decrypt chunked AES-GCM file on the common pool.
+     *
+     * @param inputFilePath  encrypted file path
+     * @param outputFilePath output decrypted file path
+     * @param password       AES password
+     * @throws IOException                        IOException
+     * @throws InvalidKeyException                Invalid Key Exception
+     * @throws InvalidAlgorithmParameterException Invalid Algorithm Parameter Exception
+     * @throws IllegalBlockSizeException          Illegal Block Size Exception
+     * @throws BadPaddingException                Bad Padding Exception, also thrown when a chunk fails authentication
+     */
+    public static void decryptFile(String inputFilePath, String outputFilePath, String password)
+        throws IOException, InvalidKeyException, InvalidAlgorithmParameterException, IllegalBlockSizeException,
+        BadPaddingException {
+        decryptFile(inputFilePath, outputFilePath, password, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Decrypt chunked AES-GCM file. The output file is deleted if any chunk fails authentication; a file which is not
+     * a valid AES-GCM chunked file is rejected before the output is touched.
+     *
+     * @param inputFilePath  encrypted file path
+     * @param outputFilePath output decrypted file path
+     * @param password       AES password
+     * @param pool           pool to run chunk tasks on
+     * @throws IOException                        IOException
+     * @throws InvalidKeyException                Invalid Key Exception
+     * @throws InvalidAlgorithmParameterException Invalid Algorithm Parameter Exception
+     * @throws IllegalBlockSizeException          Illegal Block Size Exception
+     * @throws BadPaddingException                Bad Padding Exception, also thrown when a chunk fails authentication
+     */
+    public static void decryptFile(String inputFilePath, String outputFilePath, String password, ForkJoinPool pool)
+        throws IOException, InvalidKeyException, InvalidAlgorithmParameterException, IllegalBlockSizeException,
+        BadPaddingException {
+        Path output = Paths.get(outputFilePath);
+        try (FileChannel in = FileChannel.open(Paths.get(inputFilePath), StandardOpenOption.READ)) {
+            byte[] headerBytes = new byte[HEADER_LENGTH];
+            ByteBuffer header = ByteBuffer.wrap(headerBytes);
+            if (in.size() < HEADER_LENGTH || readFully(in, header, 0) < HEADER_LENGTH) {
+                throw new IOException("Not an AES-GCM chunked file: " + inputFilePath);
+            }
+            header.flip();
+            byte[] magic = new byte[MAGIC.length];
+            byte[] salt = new byte[SALT_LENGTH];
+            byte[] noncePrefix = new byte[NONCE_PREFIX_LENGTH];
+            header.get(magic).get(salt);
+            int iterations = header.getInt();
+            header.get(noncePrefix);
+            int chunkSize = header.getInt();
+            long plainLength = header.getLong();
+            if (!Arrays.equals(MAGIC, magic) || iterations <= 0 || iterations > MAX_KEY_ITERATIONS || chunkSize <= 0
+                || chunkSize > MAX_CHUNK_SIZE || plainLength < 0) {
+                throw new IOException("Not an AES-GCM chunked file: " + inputFilePath);
+            }
+            Layout layout = new Layout(chunkSize, plainLength);
+            if (in.size() != layout.cipherLength()) {
+                throw new IOException("Truncated or corrupted AES-GCM chunked file: " + inputFilePath);
+            }
+
+            SecretKey key = deriveKey(password, salt, iterations);
+            FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+            boolean success = false;
+            try {
+                run(pool, new ChunkTask(Cipher.DECRYPT_MODE, key, headerBytes, noncePrefix, layout, in, out, 0,
+                    layout.chunkCount));
+                success = true;
+            } finally {
+                out.close();
+                if (!success) {
+                    Files.deleteIfExists(output);
+                }
+            }
+        }
+    }
+
+    private static SecretKey deriveKey(String password, byte[] salt, int iterations) throws InvalidKeyException {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, 256);
+        try {
+            byte[] keyBytes = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+            return new SecretKeySpec(keyBytes, "AES");
+        } catch (NoSuchAlgorithmException e) {
+            //This exception should never happen
+            throw new IllegalStateException(e);
+        } catch (InvalidKeySpecException e) {
+            throw new InvalidKeyException(e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    private static void run(ForkJoinPool pool, ChunkTask task)
+        throws IOException, InvalidKeyException, InvalidAlgorithmParameterException, IllegalBlockSizeException,
+        BadPaddingException {
+        try {
+            pool.invoke(task);
+        } catch (ChunkException e) {
+            Throwable cause = e.getCause();
+            while (cause instanceof ChunkException) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof InvalidKeyException) {
+                throw (InvalidKeyException) cause;
+            } else if (cause instanceof InvalidAlgorithmParameterException) {
+                throw (InvalidAlgorithmParameterException) cause;
+            } else if (cause instanceof IllegalBlockSizeException) {
+                throw (IllegalBlockSizeException) cause;
+            } else if (cause instanceof BadPaddingException) {
+                throw (BadPaddingException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private static int readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * Chunk geometry of one file.
+     */
+    private static final class Layout {
+        private final int chunkSize;
+        private final long plainLength;
+        private final long chunkCount;
+
+        private Layout(int chunkSize, long plainLength) {
+            this.chunkSize = chunkSize;
+            this.plainLength = plainLength;
+            // an empty file still has one (empty) chunk, so the header is always authenticated
+            this.chunkCount = Math.max(1, (plainLength + chunkSize - 1) / chunkSize);
+        }
+
+        private long plainOffset(long chunk) {
+            return chunk * chunkSize;
+        }
+
+        private int plainLength(long chunk) {
+            return (int) Math.min(chunkSize, plainLength - plainOffset(chunk));
+        }
+
+        private long cipherOffset(long chunk) {
+            return HEADER_LENGTH + chunk * ((long) chunkSize + TAG_LENGTH);
+        }
+
+        private long cipherLength() {
+            return HEADER_LENGTH + plainLength + chunkCount * TAG_LENGTH;
+        }
+    }
+
+    /**
+     * Carries checked exceptions out of fork-join tasks.
+     */
+    private static final class ChunkException extends RuntimeException {
+        private static final long serialVersionUID = -2817443260329618450L;
+
+        private ChunkException(Throwable cause) {
+            super(cause);
+        }
+    }
+
+    /**
+     * Encrypts or decrypts a range of chunks, splitting the range while it is larger than one chunk.
+     */
+    private static final class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 4480232781960134541L;
+
+        private final int mode;
+        private final SecretKey key;
+        private final byte[] aad;
+        private final byte[] noncePrefix;
+        private final Layout layout;
+        private final transient FileChannel in;
+        private final transient FileChannel out;
+        private final long from;
+        private final long to;
+
+        private ChunkTask(int mode, SecretKey key, byte[] aad, byte[] noncePrefix, Layout layout, FileChannel in,
+            FileChannel out, long from, long to) {
+            this.mode = mode;
+            this.key = key;
+            this.aad = aad;
+            this.noncePrefix = noncePrefix;
+            this.layout = layout;
+            this.in = in;
+            this.out = out;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                long mid = (from + to) >>> 1;
+                invokeAll(new ChunkTask(mode, key, aad, noncePrefix, layout, in, out, from, mid),
+                    new ChunkTask(mode, key, aad, noncePrefix, layout, in, out, mid, to));
+                return;
+            }
+            try {
+                process(from);
+            } catch (IOException | GeneralSecurityException e) {
+                throw new ChunkException(e);
+            }
+        }
+
+        private void process(long chunk) throws IOException, GeneralSecurityException {
+            int plainLength = layout.plainLength(chunk);
+            int cipherLength = plainLength + TAG_LENGTH;
+            boolean encrypt = mode == Cipher.ENCRYPT_MODE;
+            ByteBuffer src = ByteBuffer.allocate(encrypt ? plainLength : cipherLength);
+            ByteBuffer dst = ByteBuffer.allocate(encrypt ? cipherLength : plainLength);
+            long srcPosition = encrypt ? layout.plainOffset(chunk) : layout.cipherOffset(chunk);
+            long dstPosition = encrypt ? layout.cipherOffset(chunk) : layout.plainOffset(chunk);
+
+            if (readFully(in, src, srcPosition) != src.capacity()) {
+                throw new IOException("Unexpected end of file at chunk " + chunk);
+            }
+            src.flip();
+
+            byte[] nonce = new byte[NONCE_PREFIX_LENGTH + 8];
+            System.arraycopy(noncePrefix, 0, nonce, 0, NONCE_PREFIX_LENGTH);
+            ByteBuffer.wrap(nonce, NONCE_PREFIX_LENGTH, 8).putLong(chunk);
+
+            Cipher cipher = newCipher();
+            cipher.init(mode, key, new GCMParameterSpec(TAG_LENGTH * 8, nonce));
+            cipher.updateAAD(aad);
+            try {
+                cipher.doFinal(src, dst);
+            } catch (ShortBufferException e) {
+                //This exception should never happen
+                throw new IllegalStateException(e);
+            }
+            dst.flip();
+            writeFully(out, dst, dstPosition);
+        }
+
+        private static Cipher newCipher() {
+            try {
+                return Cipher.getInstance("AES/GCM/NoPadding");
+            } catch (NoSuchAlgorithmException | NoSuchPaddingException e) {
+                //This exception should never happen
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package cn.dlysxx.www.common.crypto;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * AES password handle for {@link AESCryptoUtil} batch APIs.
+ *
+ * <p>
+ * The password is encoded once, so it can be reused across many calls instead of encoding the password per value.
+ * Instances are immutable and thread safe.
+ * </p>
+ *
+ * @author yukut
+ **/
+public final class AESKey {
+
+    private final byte[] passwordBytes;
+
+    private AESKey(byte[] passwordBytes) {
+        this.passwordBytes = passwordBytes;
+    }
+
+    /**
+     * Create key handle from AES password.
+     *
+     * @param password AES password
+     * @return key handle
+     */
+    public static AESKey of(String password) {
+        if (password == null) {
+            throw new IllegalArgumentException("password must not be null");
+        }
+        return new AESKey(password.getBytes(StandardCharsets.UTF_8));
+    }
+
+    byte[] passwordBytes() {
+        return passwordBytes;
+    }
+}
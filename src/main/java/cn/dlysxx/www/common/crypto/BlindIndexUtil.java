@@ -0,0 +1,100 @@
+package cn.dlysxx.www.common.crypto;
+
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Class to calculate blind index of encrypted column.
+ *
+ * <p>
+ * {@link AESCryptoUtil} uses a random salt, so the same plain text is encrypted differently every time. Store the
+ * blind index (keyed HMAC-SHA256 of the plain text) next to the encrypted value and put the database index on it,
+ * then an equality lookup is {@code WHERE phone_idx = ?} with the blind index of the searched value.
+ * IMPORTANT: use a dedicated index key, not the AES password, and normalize values (trim, case) before indexing.
+ * </p>
+ *
+ * @author yukut
+ **/
+public class BlindIndexUtil {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    /** Full index length in bytes */
+    public static final int MAX_LENGTH = 32;
+
+    /**
+     * Mac reused by each thread, initialized again only when the key changes.
+     */
+    private static final ThreadLocal<KeyedMac> MAC = ThreadLocal.withInitial(KeyedMac::new);
+
+    /**
+     * Calculate blind index of plain text.
+     *
+     * @param plainText plain text, encoded in UTF-8
+     * @param key       index key
+     * @return Base64 encoded index, or {@code null} if {@code plainText} is {@code null}
+     * @throws InvalidKeyException Invalid Key Exception
+     */
+    public static String blindIndex(String plainText, String key) throws InvalidKeyException {
+        return blindIndex(plainText, key, MAX_LENGTH);
+    }
+
+    /**
+     * Calculate blind index of plain text truncated to {@code length} bytes. Shorter indexes are smaller and leak
+     * less about equal values, at the cost of false positives the caller filters after decryption.
+     *
+     * @param plainText plain text, encoded in UTF-8
+     * @param key       index key
+     * @param length    index length in bytes, 1 to {@link #MAX_LENGTH}
+     * @return Base64 encoded index, or {@code null} if {@code plainText} is {@code null}
+     * @throws InvalidKeyException Invalid Key Exception
+     */
+    public static String blindIndex(String plainText, String key, int length) throws InvalidKeyException {
+        if (length < 1 || length > MAX_LENGTH) {
+            throw new IllegalArgumentException("length must be between 1 and " + MAX_LENGTH + ": " + length);
+        }
+        if (plainText == null) {
+            return null;
+        }
+        byte[] digest = MAC.get().init(key).doFinal(plainText.getBytes(StandardCharsets.UTF_8));
+        if (length == MAX_LENGTH) {
+            return Base64.getEncoder().encodeToString(digest);
+        }
+        byte[] truncated = new byte[length];
+        System.arraycopy(digest, 0, truncated, 0, length);
+        return Base64.getEncoder().encodeToString(truncated);
+    }
+
+    /**
+     * Mac with the key it was initialized with.
+     */
+    private static final class KeyedMac {
+        private final Mac mac;
+        private String key;
+
+        private KeyedMac() {
+            try {
+                mac = Mac.getInstance(ALGORITHM);
+            } catch (NoSuchAlgorithmException e) {
+                //This exception should never happen
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private Mac init(String key) throws InvalidKeyException {
+            if (key == null || key.isEmpty()) {
+                throw new InvalidKeyException("index key must not be empty");
+            }
+            if (!key.equals(this.key)) {
+                this.key = null;
+                mac.init(new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), ALGORITHM));
+                this.key = key;
+            }
+            return mac;
+        }
+    }
+}
@@ -0,0 +1,434 @@
+package cn.dlysxx.www.common.date;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Working days of one region for a range of years.
+ *
+ * <p>
+ * Days are kept as a bitset (1: working day) with the number of working days before each 64 day word, so
+ * {@link #isWorkingDay}, {@link #workingDaysBetween} take constant time and {@link #addWorkingDays},
+ * {@link #nextWorkingDay} a binary search over the words. Dates outside the years of the calendar throw
+ * {@link DateTimeException}. Instances are immutable.
+ * </p>
+ *
+ * <p>
+ * Calendar file format, one entry per line, {@code #} starts a comment:
+ * </p>
+ *
+ * <pre>
+ * years 2024 2025
+ * weekend SATURDAY SUNDAY
+ * holiday 2024-01-01 New Year's Day
+ * workday 2024-10-12
+ * </pre>
+ *
+ * <p>
+ * {@code years} is required, {@code weekend} defaults to Saturday and Sunday, {@code holiday} makes a day a non
+ * working day, {@code workday} a working day (e.g. a Saturday replacing a holiday). Text after the date is ignored.
+ * </p>
+ *
+ * @author lin.duan
+ */
+public final class BusinessCalendar {
+
+    /** Classpath directory of calendars loaded by {@link #forRegion(String)} */
+    public static final String CLASSPATH_DIRECTORY = "calendar/";
+
+    /** Extension of calendar files */
+    public static final String EXTENSION = ".cal";
+
+    private static final Map<String, BusinessCalendar> CACHE_REGION = new ConcurrentHashMap<>();
+
+    private final int firstYear;
+    private final int lastYear;
+    private final long firstDay;
+    private final int dayCount;
+    private final long[] words;
+    private final int[] ranks;
+
+    private BusinessCalendar(int firstYear, int lastYear, long[] words) {
+        this.firstYear = firstYear;
+        this.lastYear = lastYear;
+        this.firstDay = EpochMath.epochDay(firstYear, 1, 1);
+        this.dayCount = (int) (EpochMath.epochDay(lastYear + 1, 1, 1) - firstDay);
+        this.words = words;
+        this.ranks = new int[words.length + 1];
+        for (int i = 0; i < words.length; i++) {
+            ranks[i + 1] = ranks[i] + Long.bitCount(words[i]);
+        }
+    }
+
+    /**
+     * Create builder.
+     *
+     * @param firstYear first year of the calendar
+     * @param lastYear  last year of the calendar (inclusive)
+     * @return {@link Builder}
+     */
+    public static Builder builder(int firstYear, int lastYear) {
+        return new Builder(firstYear, lastYear);
+    }
+
+    /**
+     * Get calendar of region, loaded once from {@code calendar/<region>.cal} on the classpath unless registered.
+     *
+     * @param region region (e.g. "JP")
+     * @return {@link BusinessCalendar}
+     * @throws IllegalArgumentException if there is no calendar of the region or the file is invalid
+     * @throws UncheckedIOException     if the file cannot be read
+     */
+    public static BusinessCalendar forRegion(String region) {
+        return CACHE_REGION.computeIfAbsent(region, BusinessCalendar::loadRegion);
+    }
+
+    /**
+     * Register calendar of region, replacing the cached one, e.g. a calendar loaded from a database at startup.
+     *
+     * @param region   region (e.g. "JP")
+     * @param calendar {@link BusinessCalendar}
+     */
+    public static void register(String region, BusinessCalendar calendar) {
+        CACHE_REGION.put(region, calendar);
+    }
+
+    private static BusinessCalendar loadRegion(String region) {
+        String resource = CLASSPATH_DIRECTORY + region + EXTENSION;
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        InputStream in = (loader != null ? loader : BusinessCalendar.class.getClassLoader())
+            .getResourceAsStream(resource);
+        if (in == null) {
+            throw new IllegalArgumentException("No business calendar of region " + region + ": " + resource);
+        }
+        try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            return parse(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + resource, e);
+        }
+    }
+
+    /**
+     * Load calendar file.
+     *
+     * @param path calendar file, encoded in UTF-8
+     * @return {@link BusinessCalendar}
+     * @throws IOException              IO Exception
+     * @throws IllegalArgumentException if the file is invalid
+     */
+    public static BusinessCalendar load(Path path) throws IOException {
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return parse(reader);
+        }
+    }
+
+    /**
+     * Parse calendar file.
+     *
+     * @param reader calendar file
+     * @return {@link BusinessCalendar}
+     * @throws IOException              IO Exception
+     * @throws IllegalArgumentException if the file is invalid
+     */
+    public static BusinessCalendar parse(Reader reader) throws IOException {
+        BufferedReader lines = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        int[] years = null;
+        Set<DayOfWeek> weekend = null;
+        // years may come after the days, so days are collected first; a later entry of the same day wins
+        Map<LocalDate, Boolean> days = new TreeMap<>();
+        String line;
+        int number = 0;
+        while ((line = lines.readLine()) != null) {
+            number++;
+            int comment = line.indexOf('#');
+            String[] tokens = (comment < 0 ? line : line.substring(0, comment)).trim().split("\\s+");
+            if (tokens[0].isEmpty()) {
+                continue;
+            }
+            try {
+                switch (tokens[0]) {
+                    case "years":
+                        years = new int[] {Integer.parseInt(tokens[1]), Integer.parseInt(tokens[2])};
+                        break;
+                    case "weekend":
+                        weekend = EnumSet.noneOf(DayOfWeek.class);
+                        for (int i = 1; i < tokens.length; i++) {
+                            weekend.add(DayOfWeek.valueOf(tokens[i]));
+                        }
+                        break;
+                    case "holiday":
+                    case "workday":
+                        days.put(LocalDate.parse(tokens[1]), "workday".equals(tokens[0]));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown entry " + tokens[0]);
+                }
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid business calendar at line " + number + ": " + line, e);
+            }
+        }
+        if (years == null) {
+            throw new IllegalArgumentException("Invalid business calendar: years is missing");
+        }
+        Builder builder = builder(years[0], years[1]);
+        if (weekend != null) {
+            builder.weekend(weekend.toArray(new DayOfWeek[0]));
+        }
+        for (Map.Entry<LocalDate, Boolean> day : days.entrySet()) {
+            if (day.getValue()) {
+                builder.workday(day.getKey());
+            } else {
+                builder.holiday(day.getKey());
+            }
+        }
+        return builder.build();
+    }
+
+    public int getFirstYear() {
+        return firstYear;
+    }
+
+    public int getLastYear() {
+        return lastYear;
+    }
+
+    /**
+     * Check if the date is a working day.
+     *
+     * @param date date
+     * @return working day: true, weekend or holiday: false
+     */
+    public boolean isWorkingDay(LocalDate date) {
+        return isWorkingDay(Math.toIntExact(date.toEpochDay()));
+    }
+
+    /**
+     * Check if the date is a working day.
+     *
+     * @param epochDay days since 1970-01-01
+     * @return working day: true, weekend or holiday: false
+     */
+    public boolean isWorkingDay(int epochDay) {
+        int offset = offset(epochDay, false);
+        return (words[offset >>> 6] & 1L << offset) != 0;
+    }
+
+    /**
+     * Get first working day after the date.
+     *
+     * @param date date
+     * @return working day
+     */
+    public LocalDate nextWorkingDay(LocalDate date) {
+        return addWorkingDays(date, 1);
+    }
+
+    /**
+     * Get last working day before the date.
+     *
+     * @param date date
+     * @return working day
+     */
+    public LocalDate previousWorkingDay(LocalDate date) {
+        return addWorkingDays(date, -1);
+    }
+
+    /**
+     * Add working days, e.g. 1 is the next working day and -1 the previous one, whether the date is a working day or
+     * not.
+     *
+     * @param date date
+     * @param days working days, 0 returns the date
+     * @return date
+     */
+    public LocalDate addWorkingDays(LocalDate date, int days) {
+        return LocalDate.ofEpochDay(addWorkingDays(Math.toIntExact(date.toEpochDay()), days));
+    }
+
+    /**
+     * Add working days.
+     *
+     * @param epochDay days since 1970-01-01
+     * @param days     working days, 0 returns the date
+     * @return days since 1970-01-01
+     * @see #addWorkingDays(LocalDate, int)
+     */
+    public int addWorkingDays(int epochDay, int days) {
+        int offset = offset(epochDay, false);
+        if (days == 0) {
+            return epochDay;
+        }
+        long index = days > 0 ? rank(offset + 1) + (long) days - 1 : rank(offset) + (long) days;
+        if (index < 0 || index >= ranks[words.length]) {
+            throw new DateTimeException("Adding " + days + " working days to " + LocalDate.ofEpochDay(epochDay)
+                + " leaves business calendar years " + firstYear + "-" + lastYear);
+        }
+        return (int) (firstDay + select((int) index));
+    }
+
+    /**
+     * Count working days from {@code start} (inclusive) to {@code end} (exclusive).
+     *
+     * @param start start date
+     * @param end   end date, the day after the last year of the calendar at most
+     * @return working days, negative if end is before start
+     */
+    public int workingDaysBetween(LocalDate start, LocalDate end) {
+        return workingDaysBetween(Math.toIntExact(start.toEpochDay()), Math.toIntExact(end.toEpochDay()));
+    }
+
+    /**
+     * Count working days from {@code start} (inclusive) to {@code end} (exclusive).
+     *
+     * @param start days since 1970-01-01
+     * @param end   days since 1970-01-01
+     * @return working days, negative if end is before start
+     */
+    public int workingDaysBetween(int start, int end) {
+        return rank(offset(end, true)) - rank(offset(start, true));
+    }
+
+    private int offset(int epochDay, boolean end) {
+        long offset = epochDay - firstDay;
+        if (offset < 0 || offset > dayCount || offset == dayCount && !end) {
+            throw new DateTimeException(LocalDate.ofEpochDay(epochDay) + " is outside business calendar years "
+                + firstYear + "-" + lastYear);
+        }
+        return (int) offset;
+    }
+
+    /**
+     * @return working days before offset
+     */
+    private int rank(int offset) {
+        int word = offset >>> 6;
+        int bit = offset & 63;
+        return bit == 0 ? ranks[word] : ranks[word] + Long.bitCount(words[word] & -1L >>> 64 - bit);
+    }
+
+    /**
+     * @return offset of the working day with index
+     */
+    private int select(int index) {
+        int lo = 0;
+        int hi = words.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (ranks[mid] <= index) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        long word = words[lo];
+        for (int i = ranks[lo]; i < index; i++) {
+            word &= word - 1;
+        }
+        return (lo << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    /**
+     * Builder of {@link BusinessCalendar}.
+     */
+    public static final class Builder {
+        private final int firstYear;
+        private final int lastYear;
+        private final long firstDay;
+        private final int dayCount;
+        private final Map<Integer, Boolean> days = new TreeMap<>();
+        private Set<DayOfWeek> weekend = EnumSet.of(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY);
+
+        private Builder(int firstYear, int lastYear) {
+            if (firstYear > lastYear) {
+                throw new IllegalArgumentException("firstYear must not be after lastYear: " + firstYear + " > "
+                    + lastYear);
+            }
+            this.firstYear = firstYear;
+            this.lastYear = lastYear;
+            this.firstDay = EpochMath.epochDay(firstYear, 1, 1);
+            this.dayCount = Math.toIntExact(EpochMath.epochDay(lastYear + 1, 1, 1) - firstDay);
+        }
+
+        /**
+         * Set non working days of the week, Saturday and Sunday by default.
+         *
+         * @param daysOfWeek non working days of the week, none for a calendar without weekend
+         * @return this builder
+         */
+        public Builder weekend(DayOfWeek... daysOfWeek) {
+            weekend = EnumSet.noneOf(DayOfWeek.class);
+            weekend.addAll(Arrays.asList(daysOfWeek));
+            return this;
+        }
+
+        /**
+         * Make the date a non working day.
+         *
+         * @param date date in the years of the calendar
+         * @return this builder
+         */
+        public Builder holiday(LocalDate date) {
+            days.put(offset(date), Boolean.FALSE);
+            return this;
+        }
+
+        /**
+         * Make the date a working day, e.g. a weekend day replacing a holiday.
+         *
+         * @param date date in the years of the calendar
+         * @return this builder
+         */
+        public Builder workday(LocalDate date) {
+            days.put(offset(date), Boolean.TRUE);
+            return this;
+        }
+
+        /**
+         * @return {@link BusinessCalendar}
+         */
+        public BusinessCalendar build() {
+            long[] words = new long[(dayCount + 63) >>> 6];
+            // 1970-01-01 is a Thursday
+            int dayOfWeek = (int) Math.floorMod(firstDay + 3, 7L);
+            for (int offset = 0; offset < dayCount; offset++) {
+                if (!weekend.contains(DayOfWeek.of(dayOfWeek + 1))) {
+                    words[offset >>> 6] |= 1L << offset;
+                }
+                dayOfWeek = dayOfWeek == 6 ? 0 : dayOfWeek + 1;
+            }
+            for (Map.Entry<Integer, Boolean> day : days.entrySet()) {
+                int offset = day.getKey();
+                if (day.getValue()) {
+                    words[offset >>> 6] |= 1L << offset;
+                } else {
+                    words[offset >>> 6] &= ~(1L << offset);
+                }
+            }
+            return new BusinessCalendar(firstYear, lastYear, words);
+        }
+
+        private int offset(LocalDate date) {
+            long offset = date.toEpochDay() - firstDay;
+            if (offset < 0 || offset >= dayCount) {
+                throw new IllegalArgumentException(date + " is outside years " + firstYear + "-" + lastYear);
+            }
+            return (int) offset;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package cn.dlysxx.www.common.date;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Formatted system date of one pattern and time zone, cached per second.
+ *
+ * <p>
+ * Like logback's {@code CachingDateFormatter}, the text of the current second is kept and returned as is while the
+ * second has not changed. For fixed width patterns ending in milliseconds (e.g. "uuuu-MM-dd HH:mm:ss.SSS") only the
+ * millisecond digits are replaced; other patterns with fractions of a second are cached per millisecond.
+ * Keep one instance per pattern and time zone, e.g. in a static field. Instances are thread safe.
+ * </p>
+ *
+ * @author lin.duan
+ */
+public final class CachingClock {
+
+    private final ZoneId zone;
+    private final DateTimeFormatter formatter;
+    private final FixedDateLayout layout;
+    private final int milliAt;
+    private final boolean subSecond;
+    private volatile Snapshot last;
+
+    CachingClock(String format, ZoneId zone, DateTimeFormatter formatter, FixedDateLayout layout) {
+        this.zone = zone;
+        this.formatter = formatter;
+        this.layout = layout;
+        this.milliAt = layout == null ? -1 : layout.milliAt();
+        this.subSecond = milliAt >= 0 || hasSubSecondField(format);
+    }
+
+    /**
+     * Get system date. ({@link String})
+     *
+     * @return {@link String} formatted in the pattern and time zone of this clock
+     */
+    public String nowString() {
+        long now = System.currentTimeMillis();
+        long second = Math.floorDiv(now, 1000L);
+        Snapshot snapshot = last;
+        if (snapshot != null) {
+            if (snapshot.milli == now || !subSecond && snapshot.second == second) {
+                return snapshot.text;
+            }
+            if (milliAt >= 0 && snapshot.second == second) {
+                char[] chars = snapshot.text.toCharArray();
+                int milli = (int) Math.floorMod(now, 1000L);
+                chars[milliAt] = (char) ('0' + milli / 100);
+                chars[milliAt + 1] = (char) ('0' + milli / 10 % 10);
+                chars[milliAt + 2] = (char) ('0' + milli % 10);
+                String text = new String(chars);
+                last = new Snapshot(second, now, text);
+                return text;
+            }
+        }
+        ZonedDateTime zoned = ZonedDateTime.ofInstant(Instant.ofEpochMilli(now), zone);
+        String fixed = layout == null ? null : layout.format(zoned);
+        String text = fixed != null ? fixed : formatter.format(zoned);
+        // millisecond digits are only replaced in text of the fixed layout
+        last = new Snapshot(fixed != null || milliAt < 0 ? second : Long.MIN_VALUE, now, text);
+        return text;
+    }
+
+    private static boolean hasSubSecondField(String format) {
+        boolean quoted = false;
+        for (int i = 0; i < format.length(); i++) {
+            char c = format.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+            } else if (!quoted && (c == 'S' || c == 'n' || c == 'N' || c == 'A')) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Text of one instant.
+     */
+    private static final class Snapshot {
+        private final long second;
+        private final long milli;
+        private final String text;
+
+        private Snapshot(long second, long milli, String text) {
+            this.second = second;
+            this.milli = milli;
+            this.text = text;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package cn.dlysxx.www.common.date;
+
+import cn.dlysxx.www.common.config.AutoConfigOrder;
+import org.springframework.boot.autoconfigure.AutoConfigureOrder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Auto configuration for common date utilities.
+ *
+ * @author lin.duan
+ */
+@AutoConfigureOrder(AutoConfigOrder.THIRD)
+@Configuration
+@EnableConfigurationProperties(DateProperties.class)
+@ConditionalOnProperty(value = "dlysxx.date.enabled", havingValue = "true")
+public class DateAutoConfiguration {
+
+    /**
+     * Configure the {@link DateUtil} formatter cache and expose it, e.g. to publish its counters as metrics.
+     *
+     * @param dateProperties date properties
+     * @return {@link DateTimeFormatterCache} used by {@link DateUtil}
+     */
+    @Bean
+    public DateTimeFormatterCache dateTimeFormatterCache(DateProperties dateProperties) {
+        DateTimeFormatterCache cache = DateUtil.getDateTimeFormatterCache();
+        cache.setMaximumSize(dateProperties.getFormatterCacheSize());
+        cache.precompile(dateProperties.getPrecompiledPatterns());
+        return cache;
+    }
+}
@@ -0,0 +1,41 @@
+package cn.dlysxx.www.common.date;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Properties of DLYSXX date utilities.
+ *
+ * @author lin.duan
+ */
+@ConfigurationProperties(prefix = "dlysxx.date")
+public class DateProperties {
+    private boolean enabled = false;
+    private int formatterCacheSize = DateTimeFormatterCache.DEFAULT_MAXIMUM_SIZE;
+    private List<String> precompiledPatterns = new ArrayList<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getFormatterCacheSize() {
+        return formatterCacheSize;
+    }
+
+    public void setFormatterCacheSize(int formatterCacheSize) {
+        this.formatterCacheSize = formatterCacheSize;
+    }
+
+    public List<String> getPrecompiledPatterns() {
+        return precompiledPatterns;
+    }
+
+    public void setPrecompiledPatterns(List<String> precompiledPatterns) {
+        this.precompiledPatterns = precompiledPatterns;
+    }
+}
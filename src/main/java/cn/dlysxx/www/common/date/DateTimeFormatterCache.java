@@ -0,0 +1,147 @@
+package cn.dlysxx.www.common.date;
+
+import java.time.format.DateTimeFormatter;
+import java.time.format.ResolverStyle;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of {@link ResolverStyle#STRICT} {@link DateTimeFormatter}s keyed by pattern.
+ *
+ * <p>
+ * Pinned patterns (constants and patterns precompiled at startup) are never evicted and are read without locking.
+ * Other patterns are kept in a LRU map of at most {@link #getMaximumSize()} entries, so patterns built dynamically by
+ * callers cannot grow the cache without limit.
+ * </p>
+ *
+ * @author lin.duan
+ */
+public final class DateTimeFormatterCache {
+
+    /** Default maximum number of not pinned patterns */
+    public static final int DEFAULT_MAXIMUM_SIZE = 256;
+
+    private final Map<String, DateTimeFormatter> pinned = new ConcurrentHashMap<>();
+    private final LinkedHashMap<String, DateTimeFormatter> recent = new LinkedHashMap<>(16, 0.75f, true);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private volatile int maximumSize;
+
+    /**
+     * Constructor.
+     *
+     * @param maximumSize maximum number of not pinned patterns
+     */
+    public DateTimeFormatterCache(int maximumSize) {
+        setMaximumSize(maximumSize);
+    }
+
+    /**
+     * Get formatter of pattern, creating it on a miss.
+     *
+     * @param pattern {@link DateTimeFormatter#ofPattern} (e.g. "uuuu/MM/dd HH:mm:ss")
+     * @return {@link DateTimeFormatter}
+     */
+    public DateTimeFormatter get(String pattern) {
+        DateTimeFormatter formatter = pinned.get(pattern);
+        if (formatter == null) {
+            synchronized (recent) {
+                formatter = recent.get(pattern);
+            }
+        }
+        if (formatter != null) {
+            hits.increment();
+            return formatter;
+        }
+        misses.increment();
+        DateTimeFormatter created = create(pattern);
+        synchronized (recent) {
+            formatter = recent.putIfAbsent(pattern, created);
+            evict(maximumSize);
+        }
+        return formatter != null ? formatter : created;
+    }
+
+    /**
+     * Create formatter of pattern and keep it for the lifetime of the cache.
+     *
+     * @param pattern {@link DateTimeFormatter#ofPattern} (e.g. "uuuu/MM/dd HH:mm:ss")
+     * @throws IllegalArgumentException if the pattern is invalid
+     */
+    public void pin(String pattern) {
+        pinned.computeIfAbsent(pattern, DateTimeFormatterCache::create);
+        synchronized (recent) {
+            recent.remove(pattern);
+        }
+    }
+
+    /**
+     * Pin patterns, e.g. from configuration at startup, so the first requests don't pay for creating formatters.
+     *
+     * @param patterns {@link DateTimeFormatter#ofPattern} patterns
+     * @throws IllegalArgumentException if a pattern is invalid
+     */
+    public void precompile(Collection<String> patterns) {
+        for (String pattern : patterns) {
+            pin(pattern);
+        }
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Set maximum number of not pinned patterns, evicting least recently used ones above it.
+     *
+     * @param maximumSize maximum number of not pinned patterns
+     */
+    public void setMaximumSize(int maximumSize) {
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException("maximumSize must not be negative: " + maximumSize);
+        }
+        synchronized (recent) {
+            this.maximumSize = maximumSize;
+            evict(maximumSize);
+        }
+    }
+
+    /**
+     * @return number of cached patterns, pinned ones included
+     */
+    public int size() {
+        synchronized (recent) {
+            return pinned.size() + recent.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    private void evict(int limit) {
+        Iterator<?> eldest = recent.keySet().iterator();
+        while (recent.size() > limit) {
+            eldest.next();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private static DateTimeFormatter create(String pattern) {
+        return DateTimeFormatter.ofPattern(pattern).withResolverStyle(ResolverStyle.STRICT);
+    }
+}
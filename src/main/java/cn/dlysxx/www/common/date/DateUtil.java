@@ -1,19 +1,28 @@
 package cn.dlysxx.www.common.date;
 
+import java.time.DateTimeException;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.YearMonth;
 import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
-import java.time.format.ResolverStyle;
+import java.time.temporal.ChronoField;
 import java.time.temporal.TemporalAccessor;
 import java.time.temporal.TemporalQueries;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToLongFunction;
+import java.util.stream.IntStream;
 import lombok.experimental.UtilityClass;
 import org.apache.commons.lang3.StringUtils;
 
@@ -83,10 +92,51 @@ public class DateUtil {
      *
      * <p>
      * Instance of DateTimeFormatter takes high cost, and supports thread safe.
-     * That's why is cached DateTimeFormatter instance.
+     * That's why is cached DateTimeFormatter instance. The patterns above are pinned at class load,
+     * other patterns are bounded by {@link DateTimeFormatterCache#getMaximumSize()}.
      * </p>
      */
-    private static final Map<String, DateTimeFormatter> CACHE_DATE_TIME_FORMATTER = new ConcurrentHashMap<>();
+    private static final DateTimeFormatterCache CACHE_DATE_TIME_FORMATTER =
+        new DateTimeFormatterCache(DateTimeFormatterCache.DEFAULT_MAXIMUM_SIZE);
+
+    static {
+        CACHE_DATE_TIME_FORMATTER.precompile(Arrays.asList(ISO_ZONED_DATE_TIME, ISO_LOCAL_DATE_TIME, ISO_LOCAL_DATE,
+            ISO_LOCAL_TIME, UU, UUUU, MM, UUMM, UUUUMM, UUUUMM_HYPHEN, UUUUMM_SLASH, UUUUMMDD, UUUUMMDD_SLASH,
+            UUUUMMDDHHMM, UUUUMMDDHHMM_HYPHEN, UUUUMMDDHHMM_SLASH, UUUUMMDDHHMMSS, UUUUMMDDHHMMSS_HYPHEN,
+            UUUUMMDDHHMMSS_SLASH, UUUUMMDDHHMMSSSSS, UUUUMMDDHHMMSSSSS_HYPHEN, UUUUMMDDHHMMSSSSS_SLASH, HHMMSS_TIME,
+            HHMMSS, HHMMSSSSS));
+    }
+
+    /**
+     * Fixed width layouts of the patterns above.
+     *
+     * <p>
+     * These patterns are parsed and formatted by {@link FixedDateLayout} without the formatter, unknown patterns and
+     * invalid input fall back to {@link DateTimeFormatter}.
+     * </p>
+     */
+    private static final Map<String, FixedDateLayout> FIXED_LAYOUTS = fixedLayouts(ISO_LOCAL_DATE_TIME,
+        ISO_LOCAL_DATE, ISO_LOCAL_TIME, UUUU, MM, UUUUMM, UUUUMM_HYPHEN, UUUUMM_SLASH, UUUUMMDD, UUUUMMDD_SLASH,
+        UUUUMMDDHHMM, UUUUMMDDHHMM_HYPHEN, UUUUMMDDHHMM_SLASH, UUUUMMDDHHMMSS, UUUUMMDDHHMMSS_HYPHEN,
+        UUUUMMDDHHMMSS_SLASH, UUUUMMDDHHMMSSSSS, UUUUMMDDHHMMSSSSS_HYPHEN, UUUUMMDDHHMMSSSSS_SLASH, HHMMSS_TIME, HHMMSS,
+        HHMMSSSSS);
+
+    /** Columns of at least this many rows are parsed and formatted in parallel */
+    private static final int PARALLEL_THRESHOLD = 4096;
+
+    /** Largest epoch seconds converted through epoch millis, half their range leaves room for the zone offsets */
+    private static final long MAX_EPOCH_MILLI_SECONDS = Long.MAX_VALUE / EpochMath.MILLIS_PER_SECOND / 2;
+
+    private static Map<String, FixedDateLayout> fixedLayouts(String... formats) {
+        Map<String, FixedDateLayout> layouts = new HashMap<>();
+        for (String format : formats) {
+            FixedDateLayout layout = FixedDateLayout.compile(format);
+            if (layout != null) {
+                layouts.put(format, layout);
+            }
+        }
+        return Collections.unmodifiableMap(layouts);
+    }
 
     /**
      * Get DateTimeFormatter. ({@link DateTimeFormatter})
@@ -96,8 +146,37 @@ public class DateUtil {
      * @return {@link DateTimeFormatter}
      */
     private static DateTimeFormatter getDateTimeFormatter(String format) {
-        return CACHE_DATE_TIME_FORMATTER.computeIfAbsent(
-            format, v -> DateTimeFormatter.ofPattern(format).withResolverStyle(ResolverStyle.STRICT));
+        return CACHE_DATE_TIME_FORMATTER.get(format);
+    }
+
+    /**
+     * Get DateTimeFormatter cache, to precompile patterns or read hit/miss/eviction counters.
+     *
+     * @return {@link DateTimeFormatterCache}
+     */
+    public static DateTimeFormatterCache getDateTimeFormatterCache() {
+        return CACHE_DATE_TIME_FORMATTER;
+    }
+
+    /**
+     * Caches for ZoneId
+     *
+     * <p>
+     * {@link ZoneId#of(String, Map)} parses the id and looks up the rules provider on each call.
+     * That's why is cached ZoneId instance, only valid ids are cached.
+     * </p>
+     */
+    private static final Map<String, ZoneId> CACHE_ZONE_ID = new ConcurrentHashMap<>();
+
+    /**
+     * Get ZoneId. ({@link ZoneId})
+     *
+     * @param timeZone
+     *            {@link ZoneId} like UTC, JST, ECT, or Asia/Tokyo, Europe/Paris... (e.g. UTC)
+     * @return {@link ZoneId}
+     */
+    public static ZoneId getZoneId(String timeZone) {
+        return CACHE_ZONE_ID.computeIfAbsent(timeZone, v -> ZoneId.of(v, ZoneId.SHORT_IDS));
     }
 
     /**
@@ -108,7 +187,18 @@ public class DateUtil {
      * @return {@link ZonedDateTime}
      */
     public static ZonedDateTime nowZonedDateTime(String timeZone) {
-        return ZonedDateTime.now(ZoneId.of(timeZone, ZoneId.SHORT_IDS));
+        return ZonedDateTime.now(getZoneId(timeZone));
+    }
+
+    /**
+     * Get system date. ({@link ZonedDateTime})
+     *
+     * @param zone
+     *            {@link ZoneId} (e.g. ZoneOffset.UTC)
+     * @return {@link ZonedDateTime}
+     */
+    public static ZonedDateTime nowZonedDateTime(ZoneId zone) {
+        return ZonedDateTime.now(zone);
     }
 
     /**
@@ -122,6 +212,17 @@ public class DateUtil {
         return nowZonedDateTime(timeZone).toLocalDateTime();
     }
 
+    /**
+     * Get system date. ({@link LocalDateTime})
+     *
+     * @param zone
+     *            {@link ZoneId} (e.g. ZoneOffset.UTC)
+     * @return {@link LocalDateTime}
+     */
+    public static LocalDateTime nowLocalDateTime(ZoneId zone) {
+        return nowZonedDateTime(zone).toLocalDateTime();
+    }
+
     /**
      * Get system date. ({@link LocalDate})
      *
@@ -133,6 +234,17 @@ public class DateUtil {
         return nowZonedDateTime(timeZone).toLocalDate();
     }
 
+    /**
+     * Get system date. ({@link LocalDate})
+     *
+     * @param zone
+     *            {@link ZoneId} (e.g. ZoneOffset.UTC)
+     * @return {@link LocalDate}
+     */
+    public static LocalDate nowLocalDate(ZoneId zone) {
+        return nowZonedDateTime(zone).toLocalDate();
+    }
+
     /**
      * Get system date. ({@link LocalTime})
      *
@@ -144,6 +256,17 @@ public class DateUtil {
         return nowZonedDateTime(timeZone).toLocalTime();
     }
 
+    /**
+     * Get system date. ({@link LocalTime})
+     *
+     * @param zone
+     *            {@link ZoneId} (e.g. ZoneOffset.UTC)
+     * @return {@link LocalTime}
+     */
+    public static LocalTime nowLocalTime(ZoneId zone) {
+        return nowZonedDateTime(zone).toLocalTime();
+    }
+
     /**
      * Get system date. ({@link Date})
      *
@@ -156,6 +279,18 @@ public class DateUtil {
         return Date.from(zoned.toLocalDateTime().toInstant(ZonedDateTime.now().getOffset()));
     }
 
+    /**
+     * Get system date. ({@link Date})
+     *
+     * @param zone
+     *            {@link ZoneId} (e.g. ZoneOffset.UTC)
+     * @return {@link Date}
+     */
+    public static Date nowDate(ZoneId zone) {
+        ZonedDateTime zoned = nowZonedDateTime(zone);
+        return Date.from(zoned.toLocalDateTime().toInstant(ZonedDateTime.now().getOffset()));
+    }
+
     /**
      * Get system date. ({@link Calendar})
      *
@@ -169,6 +304,19 @@ public class DateUtil {
         return cal;
     }
 
+    /**
+     * Get system date. ({@link Calendar})
+     *
+     * @param zone
+     *            {@link ZoneId} (e.g. ZoneOffset.UTC)
+     * @return {@link Calendar}
+     */
+    public static Calendar nowCalendar(ZoneId zone) {
+        Calendar cal = Calendar.getInstance();
+        cal.setTime(nowDate(zone));
+        return cal;
+    }
+
     /**
      * Get system date. ({@link YearMonth})
      *
@@ -180,6 +328,17 @@ public class DateUtil {
         return YearMonth.from(nowLocalDate(timeZone));
     }
 
+    /**
+     * Get system date. ({@link YearMonth})
+     *
+     * @param zone
+     *            {@link ZoneId} (e.g. ZoneOffset.UTC)
+     * @return {@link YearMonth}
+     */
+    public static YearMonth nowYearMonth(ZoneId zone) {
+        return YearMonth.from(nowLocalDate(zone));
+    }
+
     /**
      * Get system date. ({@link String})
      *
@@ -194,6 +353,50 @@ public class DateUtil {
         return toString(zoned, format);
     }
 
+    /**
+     * Get system date. ({@link String})
+     *
+     * @param format
+     *            {@link DateTimeFormatter#ofPattern} (e.g. "uuuu/MM/dd HH:mm:ss")
+     * @param zone
+     *            {@link ZoneId} (e.g. ZoneOffset.UTC)
+     * @return {@link String}
+     */
+    public static String nowString(String format, ZoneId zone) {
+        ZonedDateTime zoned = nowZonedDateTime(zone);
+        return toString(zoned, format);
+    }
+
+    /**
+     * Get caching clock of system date. ({@link CachingClock})
+     *
+     * <p>
+     * Use it instead of {@link #nowString(String, String)} at high call rates, e.g. for request stamps or file names.
+     * </p>
+     *
+     * @param format
+     *            {@link DateTimeFormatter#ofPattern} (e.g. "uuuu/MM/dd HH:mm:ss")
+     * @param timeZone
+     *            {@link ZoneId} like UTC, JST, ECT, or Asia/Tokyo, Europe/Paris... (e.g. UTC)
+     * @return {@link CachingClock}
+     */
+    public static CachingClock cachingClock(String format, String timeZone) {
+        return cachingClock(format, getZoneId(timeZone));
+    }
+
+    /**
+     * Get caching clock of system date. ({@link CachingClock})
+     *
+     * @param format
+     *            {@link DateTimeFormatter#ofPattern} (e.g. "uuuu/MM/dd HH:mm:ss")
+     * @param zone
+     *            {@link ZoneId} (e.g. ZoneOffset.UTC)
+     * @return {@link CachingClock}
+     */
+    public static CachingClock cachingClock(String format, ZoneId zone) {
+        return new CachingClock(format, zone, getDateTimeFormatter(format), FIXED_LAYOUTS.get(format));
+    }
+
     /**
      * Convert {@link ZonedDateTime} to {@link ZonedDateTime}.
      *
@@ -207,7 +410,23 @@ public class DateUtil {
         if (zonedDateTime == null) {
             return null;
         }
-        return zonedDateTime.withZoneSameInstant(ZoneId.of(timeZone, ZoneId.SHORT_IDS));
+        return zonedDateTime.withZoneSameInstant(getZoneId(timeZone));
+    }
+
+    /**
+     * Convert {@link ZonedDateTime} to {@link ZonedDateTime}.
+     *
+     * @param zonedDateTime
+     *            {@link ZonedDateTime} (e.g. 2016/04/19 23:00:00 +0000)
+     * @param zone
+     *            {@link ZoneId} (e.g. ZoneId.of("Asia/Tokyo"))
+     * @return {@link ZonedDateTime} (e.g. 2016/04/20 08:00:00 +9000)
+     */
+    public static ZonedDateTime toZonedDateTime(ZonedDateTime zonedDateTime, ZoneId zone) {
+        if (zonedDateTime == null) {
+            return null;
+        }
+        return zonedDateTime.withZoneSameInstant(zone);
     }
 
     /**
@@ -223,7 +442,23 @@ public class DateUtil {
         if (localDateTime == null) {
             return null;
         }
-        return ZonedDateTime.of(localDateTime, ZoneId.of(timeZone, ZoneId.SHORT_IDS));
+        return ZonedDateTime.of(localDateTime, getZoneId(timeZone));
+    }
+
+    /**
+     * Convert {@link LocalDateTime} to {@link ZonedDateTime}.
+     *
+     * @param localDateTime
+     *            {@link LocalDateTime} (e.g. 2016/04/19 23:00:00)
+     * @param zone
+     *            {@link ZoneId} (e.g. ZoneOffset.UTC)
+     * @return {@link ZonedDateTime} (e.g. 2016/04/19 23:00:00 +0000)
+     */
+    public static ZonedDateTime toZonedDateTime(LocalDateTime localDateTime, ZoneId zone) {
+        if (localDateTime == null) {
+            return null;
+        }
+        return ZonedDateTime.of(localDateTime, zone);
     }
 
     /**
@@ -239,7 +474,23 @@ public class DateUtil {
         if (localDate == null) {
             return null;
         }
-        return ZonedDateTime.of(localDate.atStartOfDay(), ZoneId.of(timeZone, ZoneId.SHORT_IDS));
+        return ZonedDateTime.of(localDate.atStartOfDay(), getZoneId(timeZone));
+    }
+
+    /**
+     * Convert {@link LocalDate} to {@link ZonedDateTime}.
+     *
+     * @param localDate
+     *            {@link LocalDate} (e.g. 2016/04/19)
+     * @param zone
+     *            {@link ZoneId} (e.g. ZoneOffset.UTC)
+     * @return {@link ZonedDateTime} (e.g. 2016/04/19 00:00:00 +0000)
+     */
+    public static ZonedDateTime toZonedDateTime(LocalDate localDate, ZoneId zone) {
+        if (localDate == null) {
+            return null;
+        }
+        return ZonedDateTime.of(localDate.atStartOfDay(), zone);
     }
 
     /**
@@ -255,7 +506,23 @@ public class DateUtil {
         if (localTime == null) {
             return null;
         }
-        return ZonedDateTime.of(localTime.atDate(nowLocalDate(timeZone)), ZoneId.of(timeZone, ZoneId.SHORT_IDS));
+        return ZonedDateTime.of(localTime.atDate(nowLocalDate(timeZone)), getZoneId(timeZone));
+    }
+
+    /**
+     * Convert {@link LocalTime} to {@link ZonedDateTime}.
+     *
+     * @param localTime
+     *            {@link LocalTime} (e.g. 23:00:00)
+     * @param zone
+     *            {@link ZoneId} (e.g. ZoneOffset.UTC)
+     * @return {@link ZonedDateTime} (e.g. 2016/04/19 23:00:00 +0000, Date = LocalDate.now())
+     */
+    public static ZonedDateTime toZonedDateTime(LocalTime localTime, ZoneId zone) {
+        if (localTime == null) {
+            return null;
+        }
+        return ZonedDateTime.of(localTime.atDate(nowLocalDate(zone)), zone);
     }
 
     /**
@@ -278,7 +545,30 @@ public class DateUtil {
             return null;
         }
         LocalDateTime localDateTime = LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault());
-        return ZonedDateTime.of(localDateTime, ZoneId.of(timeZone, ZoneId.SHORT_IDS));
+        return ZonedDateTime.of(localDateTime, getZoneId(timeZone));
+    }
+
+    /**
+     * Convert {@link Date} to {@link ZonedDateTime}.
+     *
+     * <p>
+     * e.g.
+     * If parameters are Date = 2016/04/19 23:00:00, zone = "UTC",
+     * returns 2016/04/19 23:00:00 +0000 (UTC)
+     * </p>
+     *
+     * @param date
+     *            {@link Date} (e.g. 2016/04/19 23:00:00)
+     * @param zone
+     *            {@link ZoneId} (e.g. ZoneOffset.UTC)
+     * @return {@link ZonedDateTime} (e.g. 2016/04/19 23:00:00)
+     */
+    public static ZonedDateTime toZonedDateTime(Date date, ZoneId zone) {
+        if (date == null) {
+            return null;
+        }
+        LocalDateTime localDateTime = LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault());
+        return ZonedDateTime.of(localDateTime, zone);
     }
 
     /**
@@ -297,6 +587,22 @@ public class DateUtil {
         return toZonedDateTime(cal.getTime(), timeZone);
     }
 
+    /**
+     * Convert {@link Calendar} to {@link ZonedDateTime}.
+     *
+     * @param cal
+     *            {@link Calendar} (e.g. 2016/04/19 23:00:00)
+     * @param zone
+     *            {@link ZoneId} (e.g. ZoneOffset.UTC)
+     * @return {@link ZonedDateTime} (e.g. 2016/04/19 23:00:00 +0000)
+     */
+    public static ZonedDateTime toZonedDateTime(Calendar cal, ZoneId zone) {
+        if (cal == null) {
+            return null;
+        }
+        return toZonedDateTime(cal.getTime(), zone);
+    }
+
     /**
      * Convert {@link String} to {@link ZonedDateTime}.
      *
@@ -331,6 +637,24 @@ public class DateUtil {
         return toZonedDateTime(toLocalDateTime(str, formatWithoutTimeZone), timeZone);
     }
 
+    /**
+     * Convert {@link String} to {@link ZonedDateTime}.
+     *
+     * @param str
+     *            {@link String} (e.g. 2016/04/19 23:00:00)
+     * @param formatWithoutTimeZone
+     *            {@link DateTimeFormatter#ofPattern} (e.g. "uuuu/MM/dd HH:mm:ss")
+     * @param zone
+     *            {@link ZoneId} (e.g. ZoneOffset.UTC)
+     * @return {@link ZonedDateTime} (e.g. 2016/04/19 23:00:00 +0000)
+     */
+    public static ZonedDateTime toZonedDateTime(String str, String formatWithoutTimeZone, ZoneId zone) {
+        if (StringUtils.isEmpty(str)) {
+            return null;
+        }
+        return toZonedDateTime(toLocalDateTime(str, formatWithoutTimeZone), zone);
+    }
+
     /**
      * Convert {@link ZonedDateTime} to {@link LocalDateTime}.
      *
@@ -344,7 +668,23 @@ public class DateUtil {
         if (zonedDateTime == null) {
             return null;
         }
-        return zonedDateTime.withZoneSameInstant(ZoneId.of(timeZone, ZoneId.SHORT_IDS)).toLocalDateTime();
+        return zonedDateTime.withZoneSameInstant(getZoneId(timeZone)).toLocalDateTime();
+    }
+
+    /**
+     * Convert {@link ZonedDateTime} to {@link LocalDateTime}.
+     *
+     * @param zonedDateTime
+     *            {@link ZonedDateTime} (e.g. 2016/04/19 23:00:00 +0000)
+     * @param zone
+     *            {@link ZoneId} (e.g. ZoneId.of("Asia/Tokyo"))
+     * @return {@link LocalDateTime} (e.g. 2016/04/20 08:00:00)
+     */
+    public static LocalDateTime toLocalDateTime(ZonedDateTime zonedDateTime, ZoneId zone) {
+        if (zonedDateTime == null) {
+            return null;
+        }
+        return zonedDateTime.withZoneSameInstant(zone).toLocalDateTime();
     }
 
     /**
@@ -376,7 +716,16 @@ public class DateUtil {
         if (localDateTime == null) {
             return null;
         }
-        return ZonedDateTime.ofInstant(ZonedDateTime.of(localDateTime, from).toInstant(), to).toLocalDateTime();
+        long seconds = localDateTime.toEpochSecond(ZoneOffset.UTC);
+        if (Math.abs(seconds) > MAX_EPOCH_MILLI_SECONDS) {
+            // millis of years this far out would overflow
+            return localDateTime.atZone(from).withZoneSameInstant(to).toLocalDateTime();
+        }
+        long local = seconds * EpochMath.MILLIS_PER_SECOND;
+        long epochMilli = EpochMath.toEpochMilli(local, from);
+        long shift = EpochMath.toLocalMillis(epochMilli, to) - local;
+        return LocalDateTime.ofEpochSecond(seconds + shift / EpochMath.MILLIS_PER_SECOND, localDateTime.getNano(),
+            ZoneOffset.UTC);
     }
 
     /**
@@ -409,6 +758,22 @@ public class DateUtil {
         return localTime.atDate(nowLocalDate(timeZone));
     }
 
+    /**
+     * Convert {@link LocalTime} to {@link LocalDateTime}.
+     *
+     * @param localTime
+     *            {@link LocalTime} (e.g. 23:00:00)
+     * @param zone
+     *            {@link ZoneId} (e.g. ZoneId.of("Asia/Tokyo"))
+     * @return {@link LocalDateTime} (e.g. 2016/04/19 23:00:00, Date = nowLocalDate())
+     */
+    public static LocalDateTime toLocalDateTime(LocalTime localTime, ZoneId zone) {
+        if (localTime == null) {
+            return null;
+        }
+        return localTime.atDate(nowLocalDate(zone));
+    }
+
     /**
      * Convert {@link Date} to {@link LocalDateTime}.
      *
@@ -450,7 +815,9 @@ public class DateUtil {
         if (StringUtils.isBlank(str)) {
             return null;
         }
-        return LocalDateTime.from(getDateTimeFormatter(format).parse(str));
+        FixedDateLayout layout = FIXED_LAYOUTS.get(format);
+        LocalDateTime fixed = layout == null ? null : layout.parseLocalDateTime(str);
+        return fixed != null ? fixed : LocalDateTime.from(getDateTimeFormatter(format).parse(str));
     }
 
     /**
@@ -469,6 +836,22 @@ public class DateUtil {
         return toLocalDateTime(zonedDateTime, timeZone).toLocalDate();
     }
 
+    /**
+     * Convert {@link ZonedDateTime} to {@link LocalDate}.
+     *
+     * @param zonedDateTime
+     *            {@link ZonedDateTime} (e.g. 2016/04/19 23:00:00 +0000)
+     * @param zone
+     *            {@link ZoneId} (e.g. ZoneId.of("Asia/Tokyo"))
+     * @return {@link LocalDate} (e.g. 2016/04/20)
+     */
+    public static LocalDate toLocalDate(ZonedDateTime zonedDateTime, ZoneId zone) {
+        if (zonedDateTime == null) {
+            return null;
+        }
+        return toLocalDateTime(zonedDateTime, zone).toLocalDate();
+    }
+
     /**
      * Convert {@link ZonedDateTime} to {@link LocalDate}.
      *
@@ -538,7 +921,9 @@ public class DateUtil {
         if (StringUtils.isBlank(str)) {
             return null;
         }
-        return LocalDate.from(getDateTimeFormatter(format).parse(str));
+        FixedDateLayout layout = FIXED_LAYOUTS.get(format);
+        LocalDate fixed = layout == null ? null : layout.parseLocalDate(str);
+        return fixed != null ? fixed : LocalDate.from(getDateTimeFormatter(format).parse(str));
     }
 
     /**
@@ -557,6 +942,22 @@ public class DateUtil {
         return toLocalDateTime(zonedDateTime, timeZone).toLocalTime();
     }
 
+    /**
+     * Convert {@link ZonedDateTime} to {@link LocalTime}.
+     *
+     * @param zonedDateTime
+     *            {@link ZonedDateTime} (e.g. 2016/04/19 23:00:00 +0000)
+     * @param zone
+     *            {@link ZoneId} (e.g. ZoneId.of("Asia/Tokyo"))
+     * @return {@link LocalTime} (e.g. 08:00:00)
+     */
+    public static LocalTime toLocalTime(ZonedDateTime zonedDateTime, ZoneId zone) {
+        if (zonedDateTime == null) {
+            return null;
+        }
+        return toLocalDateTime(zonedDateTime, zone).toLocalTime();
+    }
+
     /**
      * Convert {@link ZonedDateTime} to {@link LocalTime}.
      *
@@ -612,7 +1013,9 @@ public class DateUtil {
         if (StringUtils.isBlank(str)) {
             return null;
         }
-        return LocalTime.from(getDateTimeFormatter(format).parse(str));
+        FixedDateLayout layout = FIXED_LAYOUTS.get(format);
+        LocalTime fixed = layout == null ? null : layout.parseLocalTime(str);
+        return fixed != null ? fixed : LocalTime.from(getDateTimeFormatter(format).parse(str));
     }
 
     /**
@@ -631,6 +1034,22 @@ public class DateUtil {
         return toDate(toLocalDateTime(zonedDateTime, timeZone));
     }
 
+    /**
+     * Convert {@link ZonedDateTime} to {@link Date}.
+     *
+     * @param zonedDateTime
+     *            {@link ZonedDateTime} (e.g. 2016/04/19 23:00:00 +0000)
+     * @param zone
+     *            {@link ZoneId} (e.g. ZoneId.of("Asia/Tokyo"))
+     * @return {@link Date} (e.g. 2016/04/20 08:00:00)
+     */
+    public static Date toDate(ZonedDateTime zonedDateTime, ZoneId zone) {
+        if (zonedDateTime == null) {
+            return null;
+        }
+        return toDate(toLocalDateTime(zonedDateTime, zone));
+    }
+
     /**
      * Convert {@link ZonedDateTime} to {@link Date}.
      *
@@ -689,6 +1108,22 @@ public class DateUtil {
         return Date.from(localTime.atDate(nowLocalDate(timeZone)).toInstant(ZonedDateTime.now().getOffset()));
     }
 
+    /**
+     * Convert {@link LocalTime} to {@link Date}.
+     *
+     * @param localTime
+     *            {@link LocalTime} (e.g. 23:00:00)
+     * @param zone
+     *            {@link ZoneId} (e.g. ZoneId.of("Asia/Tokyo"))
+     * @return {@link Date} (e.g. 2016/04/19 23:00:00, Date = nowLocalDate())
+     */
+    public static Date toDate(LocalTime localTime, ZoneId zone) {
+        if (localTime == null) {
+            return null;
+        }
+        return Date.from(localTime.atDate(nowLocalDate(zone)).toInstant(ZonedDateTime.now().getOffset()));
+    }
+
     /**
      * Convert {@link Calendar} to {@link Date}.
      *
@@ -717,6 +1152,16 @@ public class DateUtil {
             return null;
         }
 
+        FixedDateLayout layout = FIXED_LAYOUTS.get(format);
+        if (layout != null && layout.has(FixedDateLayout.DATE)) {
+            long p = layout.parse(str);
+            if (p != FixedDateLayout.INVALID) {
+                return toDate(LocalDateTime.of(FixedDateLayout.year(p), FixedDateLayout.month(p),
+                    FixedDateLayout.day(p), FixedDateLayout.hour(p), FixedDateLayout.minute(p),
+                    FixedDateLayout.second(p), FixedDateLayout.milli(p) * 1_000_000));
+            }
+        }
+
         TemporalAccessor temporal = getDateTimeFormatter(format).parse(str);
         LocalDate date = temporal.query(TemporalQueries.localDate());
         LocalTime time = temporal.query(TemporalQueries.localTime());
@@ -744,6 +1189,22 @@ public class DateUtil {
         return toCalendar(toDate(zonedDateTime, timeZone));
     }
 
+    /**
+     * Convert {@link ZonedDateTime} to {@link Calendar}.
+     *
+     * @param zonedDateTime
+     *            {@link ZonedDateTime} (e.g. 2016/04/19 23:00:00 +0000)
+     * @param zone
+     *            {@link ZoneId} (e.g. ZoneId.of("Asia/Tokyo"))
+     * @return {@link Calendar} (e.g. 2016/04/20 08:00:00)
+     */
+    public static Calendar toCalendar(ZonedDateTime zonedDateTime, ZoneId zone) {
+        if (zonedDateTime == null) {
+            return null;
+        }
+        return toCalendar(toDate(zonedDateTime, zone));
+    }
+
     /**
      * Convert {@link ZonedDateTime} to {@link Calendar}.
      *
@@ -790,6 +1251,19 @@ public class DateUtil {
         return toCalendar(toDate(localTime, timeZone));
     }
 
+    /**
+     * Convert {@link LocalTime} to {@link Calendar}.
+     *
+     * @param localTime
+     *            {@link LocalTime} (e.g. 23:00:00)
+     * @param zone
+     *            {@link ZoneId} (e.g. ZoneId.of("Asia/Tokyo"))
+     * @return {@link Calendar} (e.g. 2016/04/19 23:00:00, Date = nowLocalDate())
+     */
+    public static Calendar toCalendar(LocalTime localTime, ZoneId zone) {
+        return toCalendar(toDate(localTime, zone));
+    }
+
     /**
      * Convert {@link Date} to {@link Calendar}.
      *
@@ -846,7 +1320,9 @@ public class DateUtil {
         if (StringUtils.isBlank(str)) {
             return null;
         }
-        return YearMonth.from(getDateTimeFormatter(format).parse(str));
+        FixedDateLayout layout = FIXED_LAYOUTS.get(format);
+        YearMonth fixed = layout == null ? null : layout.parseYearMonth(str);
+        return fixed != null ? fixed : YearMonth.from(getDateTimeFormatter(format).parse(str));
     }
 
     /**
@@ -867,6 +1343,24 @@ public class DateUtil {
         return toString(toZonedDateTime(zonedDateTime, timeZone), format);
     }
 
+    /**
+     * Convert {@link ZonedDateTime} to {@link String}.
+     *
+     * @param zonedDateTime
+     *            {@link ZonedDateTime} (e.g. 2016/04/19 23:00:00 +0000)
+     * @param zone
+     *            {@link ZoneId} (e.g. ZoneId.of("Asia/Tokyo"))
+     * @param format
+     *            {@link DateTimeFormatter#ofPattern} (e.g. "uuuu/MM/dd HH:mm:ss Z")
+     * @return {@link String} (e.g. "2016/04/20 08:00:00 +0000")
+     */
+    public static String toString(ZonedDateTime zonedDateTime, ZoneId zone, String format) {
+        if (zonedDateTime == null) {
+            return null;
+        }
+        return toString(toZonedDateTime(zonedDateTime, zone), format);
+    }
+
     /**
      * Convert {@link ZonedDateTime} to {@link String}.
      *
@@ -880,7 +1374,9 @@ public class DateUtil {
         if (zonedDateTime == null) {
             return null;
         }
-        return getDateTimeFormatter(format).format(zonedDateTime);
+        FixedDateLayout layout = FIXED_LAYOUTS.get(format);
+        String fixed = layout == null ? null : layout.format(zonedDateTime);
+        return fixed != null ? fixed : getDateTimeFormatter(format).format(zonedDateTime);
     }
 
     /**
@@ -896,7 +1392,9 @@ public class DateUtil {
         if (localDateTime == null) {
             return null;
         }
-        return getDateTimeFormatter(format).format(localDateTime);
+        FixedDateLayout layout = FIXED_LAYOUTS.get(format);
+        String fixed = layout == null ? null : layout.format(localDateTime);
+        return fixed != null ? fixed : getDateTimeFormatter(format).format(localDateTime);
     }
 
     /**
@@ -912,7 +1410,9 @@ public class DateUtil {
         if (localDate == null) {
             return null;
         }
-        return getDateTimeFormatter(format).format(localDate.atStartOfDay());
+        FixedDateLayout layout = FIXED_LAYOUTS.get(format);
+        String fixed = layout == null ? null : layout.format(localDate);
+        return fixed != null ? fixed : getDateTimeFormatter(format).format(localDate.atStartOfDay());
     }
 
     /**
@@ -928,7 +1428,9 @@ public class DateUtil {
         if (localTime == null) {
             return null;
         }
-        return getDateTimeFormatter(format).format(localTime);
+        FixedDateLayout layout = FIXED_LAYOUTS.get(format);
+        String fixed = layout == null ? null : layout.format(localTime);
+        return fixed != null ? fixed : getDateTimeFormatter(format).format(localTime);
     }
 
     /**
@@ -976,7 +1478,420 @@ public class DateUtil {
         if (yearMonth == null) {
             return null;
         }
-        return getDateTimeFormatter(format).format(yearMonth);
+        FixedDateLayout layout = FIXED_LAYOUTS.get(format);
+        String fixed = layout == null ? null : layout.format(yearMonth);
+        return fixed != null ? fixed : getDateTimeFormatter(format).format(yearMonth);
+    }
+
+    /**
+     * Convert {@link String} to epoch millis.
+     *
+     * <p>
+     * Same as {@code toZonedDateTime(str, format, timeZone).toInstant().toEpochMilli()}, but patterns of the
+     * constants are parsed without creating temporal objects. Date only patterns are the start of the day, patterns
+     * with an offset or zone (e.g. {@link #ISO_ZONED_DATE_TIME}) use it instead of {@code timeZone}.
+     * </p>
+     *
+     * @param str
+     *            {@link String} (e.g. "2016/04/19 23:00:00"), not blank
+     * @param format
+     *            {@link DateTimeFormatter#ofPattern} (e.g. "uuuu/MM/dd HH:mm:ss")
+     * @param timeZone
+     *            {@link ZoneId} like UTC, JST, ECT, or Asia/Tokyo, Europe/Paris... (e.g. JST)
+     * @return epoch millis (e.g. 1461074400000)
+     * @throws java.time.DateTimeException if the text cannot be parsed
+     */
+    public static long toEpochMilli(String str, String format, String timeZone) {
+        return toEpochMilli(str, format, getZoneId(timeZone));
+    }
+
+    /**
+     * Convert {@link String} to epoch millis.
+     *
+     * @param str
+     *            {@link String} (e.g. "2016/04/19 23:00:00"), not blank
+     * @param format
+     *            {@link DateTimeFormatter#ofPattern} (e.g. "uuuu/MM/dd HH:mm:ss")
+     * @param zone
+     *            {@link ZoneId} (e.g. ZoneOffset.UTC)
+     * @return epoch millis (e.g. 1461106800000)
+     * @throws java.time.DateTimeException if the text cannot be parsed
+     * @see #toEpochMilli(String, String, String)
+     */
+    public static long toEpochMilli(String str, String format, ZoneId zone) {
+        FixedDateLayout layout = dateLayout(format);
+        if (layout != null) {
+            long p = layout.parse(str);
+            if (p != FixedDateLayout.INVALID) {
+                return EpochMath.toEpochMilli(EpochMath.localMillis(p), zone);
+            }
+        }
+
+        return epochMilliOf(str, getDateTimeFormatter(format), zone);
+    }
+
+    private static long epochMilliOf(String str, DateTimeFormatter formatter, ZoneId zone) {
+        TemporalAccessor temporal = formatter.parse(str);
+        if (temporal.isSupported(ChronoField.INSTANT_SECONDS)) {
+            return Instant.from(temporal).toEpochMilli();
+        }
+        LocalDate date = LocalDate.from(temporal);
+        LocalTime time = temporal.query(TemporalQueries.localTime());
+        return LocalDateTime.of(date, time != null ? time : LocalTime.MIDNIGHT).atZone(zone).toInstant()
+            .toEpochMilli();
+    }
+
+    /**
+     * Convert {@link String} to epoch day.
+     *
+     * @param str
+     *            {@link String} (e.g. "2016/04/19"), not blank
+     * @param format
+     *            {@link DateTimeFormatter#ofPattern} (e.g. "uuuu/MM/dd")
+     * @return days since 1970-01-01 (e.g. 16910)
+     * @throws java.time.DateTimeException if the text cannot be parsed
+     */
+    public static int toEpochDay(String str, String format) {
+        FixedDateLayout layout = dateLayout(format);
+        if (layout != null) {
+            long p = layout.parse(str);
+            if (p != FixedDateLayout.INVALID) {
+                return (int) EpochMath.epochDay(FixedDateLayout.year(p), FixedDateLayout.month(p),
+                    FixedDateLayout.day(p));
+            }
+        }
+        return epochDayOf(str, getDateTimeFormatter(format));
+    }
+
+    private static int epochDayOf(String str, DateTimeFormatter formatter) {
+        return Math.toIntExact(LocalDate.from(formatter.parse(str)).toEpochDay());
+    }
+
+    /**
+     * Convert epoch millis to {@link String}.
+     *
+     * @param epochMilli
+     *            epoch millis (e.g. 1461074400000)
+     * @param timeZone
+     *            {@link ZoneId} like UTC, JST, ECT, or Asia/Tokyo, Europe/Paris... (e.g. JST)
+     * @param format
+     *            {@link DateTimeFormatter#ofPattern} (e.g. "uuuu/MM/dd HH:mm:ss")
+     * @return {@link String} (e.g. "2016/04/19 23:00:00")
+     */
+    public static String epochMilliToString(long epochMilli, String timeZone, String format) {
+        return epochMilliToString(epochMilli, getZoneId(timeZone), format);
+    }
+
+    /**
+     * Convert epoch millis to {@link String}.
+     *
+     * @param epochMilli
+     *            epoch millis (e.g. 1461106800000)
+     * @param zone
+     *            {@link ZoneId} (e.g. ZoneOffset.UTC)
+     * @param format
+     *            {@link DateTimeFormatter#ofPattern} (e.g. "uuuu/MM/dd HH:mm:ss")
+     * @return {@link String} (e.g. "2016/04/19 23:00:00")
+     */
+    public static String epochMilliToString(long epochMilli, ZoneId zone, String format) {
+        return formatEpochMilli(epochMilli, zone, FIXED_LAYOUTS.get(format), getDateTimeFormatter(format));
+    }
+
+    private static String formatEpochMilli(long epochMilli, ZoneId zone, FixedDateLayout layout,
+        DateTimeFormatter formatter) {
+        if (layout != null) {
+            long local = EpochMath.toLocalMillis(epochMilli, zone);
+            long civil = EpochMath.civil(Math.floorDiv(local, EpochMath.MILLIS_PER_DAY));
+            int millisOfDay = (int) Math.floorMod(local, EpochMath.MILLIS_PER_DAY);
+            String fixed = layout.format(FixedDateLayout.ALL, EpochMath.year(civil), EpochMath.month(civil),
+                EpochMath.day(civil), millisOfDay / 3_600_000, millisOfDay / 60_000 % 60, millisOfDay / 1000 % 60,
+                millisOfDay % 1000 * 1_000_000);
+            if (fixed != null) {
+                return fixed;
+            }
+        }
+        return formatter.format(Instant.ofEpochMilli(epochMilli).atZone(zone));
+    }
+
+    /**
+     * Convert epoch day to {@link String}, time fields of the pattern are the start of the day.
+     *
+     * @param epochDay
+     *            days since 1970-01-01 (e.g. 16910)
+     * @param format
+     *            {@link DateTimeFormatter#ofPattern} (e.g. "uuuu/MM/dd")
+     * @return {@link String} (e.g. "2016/04/19")
+     */
+    public static String epochDayToString(int epochDay, String format) {
+        return formatEpochDay(epochDay, FIXED_LAYOUTS.get(format), getDateTimeFormatter(format));
+    }
+
+    private static String formatEpochDay(int epochDay, FixedDateLayout layout, DateTimeFormatter formatter) {
+        if (layout != null) {
+            long civil = EpochMath.civil(epochDay);
+            String fixed = layout.format(FixedDateLayout.ALL, EpochMath.year(civil), EpochMath.month(civil),
+                EpochMath.day(civil), 0, 0, 0, 0);
+            if (fixed != null) {
+                return fixed;
+            }
+        }
+        return formatter.format(LocalDate.ofEpochDay(epochDay).atStartOfDay());
+    }
+
+    /**
+     * Convert column of {@link String} to epoch millis, e.g. one column of an imported file.
+     *
+     * <p>
+     * The pattern is resolved once for the column and large columns are parsed in parallel. Blank rows are absent,
+     * invalid rows are absent and reported by {@link EpochColumn#getErrorRows()} instead of throwing.
+     * </p>
+     *
+     * @param column
+     *            {@link String}s (e.g. "2016/04/19 23:00:00")
+     * @param format
+     *            {@link DateTimeFormatter#ofPattern} (e.g. "uuuu/MM/dd HH:mm:ss")
+     * @param zone
+     *            {@link ZoneId} (e.g. ZoneOffset.UTC)
+     * @return {@link EpochColumn} of epoch millis
+     * @see #toEpochMilli(String, String, ZoneId)
+     */
+    public static EpochColumn toEpochMilli(String[] column, String format, ZoneId zone) {
+        FixedDateLayout layout = dateLayout(format);
+        DateTimeFormatter formatter = getDateTimeFormatter(format);
+        return parseColumn(column, str -> {
+            if (layout != null) {
+                long p = layout.parse(str);
+                if (p != FixedDateLayout.INVALID) {
+                    return EpochMath.toEpochMilli(EpochMath.localMillis(p), zone);
+                }
+            }
+            return epochMilliOf(str, formatter, zone);
+        });
+    }
+
+    /**
+     * Convert column of {@link String} to epoch millis, e.g. one column of an imported file.
+     *
+     * @param column
+     *            {@link String}s (e.g. "2016/04/19 23:00:00")
+     * @param format
+     *            {@link DateTimeFormatter#ofPattern} (e.g. "uuuu/MM/dd HH:mm:ss")
+     * @param zone
+     *            {@link ZoneId} (e.g. ZoneOffset.UTC)
+     * @return {@link EpochColumn} of epoch millis
+     * @see #toEpochMilli(String[], String, ZoneId)
+     */
+    public static EpochColumn toEpochMilli(List<String> column, String format, ZoneId zone) {
+        return toEpochMilli(column.toArray(new String[0]), format, zone);
+    }
+
+    /**
+     * Convert column of {@link String} to epoch day, e.g. one column of an imported file.
+     *
+     * <p>
+     * The pattern is resolved once for the column and large columns are parsed in parallel. Blank rows are absent,
+     * invalid rows are absent and reported by {@link EpochColumn#getErrorRows()} instead of throwing.
+     * </p>
+     *
+     * @param column
+     *            {@link String}s (e.g. "2016/04/19")
+     * @param format
+     *            {@link DateTimeFormatter#ofPattern} (e.g. "uuuu/MM/dd")
+     * @return {@link EpochColumn} of days since 1970-01-01
+     * @see #toEpochDay(String, String)
+     */
+    public static EpochColumn toEpochDay(String[] column, String format) {
+        FixedDateLayout layout = dateLayout(format);
+        DateTimeFormatter formatter = getDateTimeFormatter(format);
+        return parseColumn(column, str -> {
+            if (layout != null) {
+                long p = layout.parse(str);
+                if (p != FixedDateLayout.INVALID) {
+                    return EpochMath.epochDay(FixedDateLayout.year(p), FixedDateLayout.month(p),
+                        FixedDateLayout.day(p));
+                }
+            }
+            return epochDayOf(str, formatter);
+        });
+    }
+
+    /**
+     * Convert column of {@link String} to epoch day, e.g. one column of an imported file.
+     *
+     * @param column
+     *            {@link String}s (e.g. "2016/04/19")
+     * @param format
+     *            {@link DateTimeFormatter#ofPattern} (e.g. "uuuu/MM/dd")
+     * @return {@link EpochColumn} of days since 1970-01-01
+     * @see #toEpochDay(String[], String)
+     */
+    public static EpochColumn toEpochDay(List<String> column, String format) {
+        return toEpochDay(column.toArray(new String[0]), format);
+    }
+
+    /**
+     * Convert column of epoch millis to {@link String}. Large columns are formatted in parallel.
+     *
+     * @param epochMillis
+     *            epoch millis (e.g. {@link EpochColumn#getValues()})
+     * @param zone
+     *            {@link ZoneId} (e.g. ZoneOffset.UTC)
+     * @param format
+     *            {@link DateTimeFormatter#ofPattern} (e.g. "uuuu/MM/dd HH:mm:ss")
+     * @return {@link String}s in the order of the values
+     */
+    public static String[] epochMilliToString(long[] epochMillis, ZoneId zone, String format) {
+        FixedDateLayout layout = FIXED_LAYOUTS.get(format);
+        DateTimeFormatter formatter = getDateTimeFormatter(format);
+        String[] result = new String[epochMillis.length];
+        rows(result.length).forEach(i -> result[i] = formatEpochMilli(epochMillis[i], zone, layout, formatter));
+        return result;
+    }
+
+    /**
+     * Convert column of epoch day to {@link String}. Large columns are formatted in parallel.
+     *
+     * @param epochDays
+     *            days since 1970-01-01 (e.g. {@link EpochColumn#getValues()})
+     * @param format
+     *            {@link DateTimeFormatter#ofPattern} (e.g. "uuuu/MM/dd")
+     * @return {@link String}s in the order of the values
+     */
+    public static String[] epochDayToString(long[] epochDays, String format) {
+        FixedDateLayout layout = FIXED_LAYOUTS.get(format);
+        DateTimeFormatter formatter = getDateTimeFormatter(format);
+        String[] result = new String[epochDays.length];
+        rows(result.length).forEach(
+            i -> result[i] = formatEpochDay(Math.toIntExact(epochDays[i]), layout, formatter));
+        return result;
+    }
+
+    private static FixedDateLayout dateLayout(String format) {
+        FixedDateLayout layout = FIXED_LAYOUTS.get(format);
+        return layout != null && layout.has(FixedDateLayout.DATE) ? layout : null;
+    }
+
+    private static EpochColumn parseColumn(String[] column, ToLongFunction<String> parser) {
+        long[] values = new long[column.length];
+        boolean[] present = new boolean[column.length];
+        Map<Integer, String> errors = new ConcurrentHashMap<>();
+        rows(column.length).forEach(i -> {
+            String str = column[i];
+            if (StringUtils.isBlank(str)) {
+                return;
+            }
+            try {
+                values[i] = parser.applyAsLong(str);
+                present[i] = true;
+            } catch (DateTimeException | ArithmeticException e) {
+                errors.put(i, e.getMessage());
+            }
+        });
+        return new EpochColumn(values, present, errors);
+    }
+
+    private static IntStream rows(int size) {
+        IntStream rows = IntStream.range(0, size);
+        return size >= PARALLEL_THRESHOLD ? rows.parallel() : rows;
+    }
+
+    /**
+     * Detect the pattern of {@link String} among the date patterns above.
+     *
+     * <p>
+     * The candidate is chosen by length and separators (e.g. 10 characters with '/' at index 4 is
+     * {@link #UUUUMMDD_SLASH}) and checked once, without trying patterns in turn or throwing. Patterns without a full
+     * date, {@link #ISO_ZONED_DATE_TIME} and years other than 4 digits (e.g. "+10000-01-01") are not detected.
+     * </p>
+     *
+     * @param str
+     *            {@link String} (e.g. "2016/04/19 23:00:00")
+     * @return pattern (e.g. {@link #UUUUMMDDHHMMSS_SLASH}), or {@code null} if no pattern matches or the date is
+     *         invalid
+     */
+    public static String detectFormat(String str) {
+        if (str == null) {
+            return null;
+        }
+        String format = candidateFormat(str);
+        return format != null && FIXED_LAYOUTS.get(format).parse(str) != FixedDateLayout.INVALID ? format : null;
+    }
+
+    /**
+     * Convert {@link String} of any detected pattern to {@link LocalDateTime}, date only patterns are the start of the
+     * day.
+     *
+     * @param str
+     *            {@link String} (e.g. "2016/04/19 23:00:00" or "20160419")
+     * @return {@link LocalDateTime} (e.g. 2016/04/19 23:00:00), or {@code null} if no pattern matches or the date is
+     *         invalid
+     * @see #detectFormat(String)
+     */
+    public static LocalDateTime parseLocalDateTime(String str) {
+        long p = parseDetected(str);
+        if (p == FixedDateLayout.INVALID) {
+            return null;
+        }
+        return LocalDateTime.of(FixedDateLayout.year(p), FixedDateLayout.month(p), FixedDateLayout.day(p),
+            FixedDateLayout.hour(p), FixedDateLayout.minute(p), FixedDateLayout.second(p),
+            FixedDateLayout.milli(p) * 1_000_000);
+    }
+
+    /**
+     * Convert {@link String} of any detected pattern to epoch millis, date only patterns are the start of the day.
+     *
+     * @param str
+     *            {@link String} (e.g. "2016/04/19 23:00:00" or "20160419")
+     * @param zone
+     *            {@link ZoneId} (e.g. ZoneOffset.UTC)
+     * @param defaultValue
+     *            returned if no pattern matches or the date is invalid
+     * @return epoch millis (e.g. 1461106800000)
+     * @see #detectFormat(String)
+     */
+    public static long parseEpochMilli(String str, ZoneId zone, long defaultValue) {
+        long p = parseDetected(str);
+        return p == FixedDateLayout.INVALID ? defaultValue : EpochMath.toEpochMilli(EpochMath.localMillis(p), zone);
+    }
+
+    private static long parseDetected(String str) {
+        String format = str == null ? null : candidateFormat(str);
+        return format == null ? FixedDateLayout.INVALID : FIXED_LAYOUTS.get(format).parse(str);
+    }
+
+    private static String candidateFormat(String str) {
+        switch (str.length()) {
+            case 8:
+                return UUUUMMDD;
+            case 10:
+                return separated(str, ISO_LOCAL_DATE, UUUUMMDD_SLASH);
+            case 12:
+                return UUUUMMDDHHMM;
+            case 14:
+                return UUUUMMDDHHMMSS;
+            case 16:
+                return separated(str, UUUUMMDDHHMM_HYPHEN, UUUUMMDDHHMM_SLASH);
+            case 17:
+                return UUUUMMDDHHMMSSSSS;
+            case 19:
+                return separated(str, UUUUMMDDHHMMSS_HYPHEN, UUUUMMDDHHMMSS_SLASH);
+            case 23:
+                return str.charAt(10) == 'T' ? ISO_LOCAL_DATE_TIME
+                    : separated(str, UUUUMMDDHHMMSSSSS_HYPHEN, UUUUMMDDHHMMSSSSS_SLASH);
+            default:
+                return null;
+        }
+    }
+
+    private static String separated(String str, String hyphen, String slash) {
+        switch (str.charAt(4)) {
+            case '-':
+                return hyphen;
+            case '/':
+                return slash;
+            default:
+                return null;
+        }
     }
 
     /**
@@ -994,4 +1909,20 @@ public class DateUtil {
         return target.equals(start) || target.equals(end) || target.after(start) && target.before(end);
     }
 
+    /**
+     * Check if the epoch value is in the specified period.
+     *
+     * @param start
+     *            start (epoch millis or epoch day)
+     * @param end
+     *            end, in the same unit as start
+     * @param target
+     *            target, in the same unit as start
+     * @return intime：true, out of time：false
+     * @see IntervalIndex
+     */
+    public static boolean isIntime(long start, long end, long target) {
+        return target == start || target == end || target > start && target < end;
+    }
+
 }
@@ -0,0 +1,100 @@
+package cn.dlysxx.www.common.date;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Column of epoch values parsed in bulk, e.g. by {@link DateUtil#toEpochMilli(String[], String, java.time.ZoneId)}.
+ *
+ * <p>
+ * Parsing does not stop at the first invalid row: blank rows are absent, invalid rows are absent and reported by row
+ * index with the parser's message. The value of an absent row is 0.
+ * </p>
+ *
+ * @author lin.duan
+ */
+public final class EpochColumn {
+
+    private final long[] values;
+    private final boolean[] present;
+    private final int[] errorRows;
+    private final String[] errorMessages;
+
+    EpochColumn(long[] values, boolean[] present, Map<Integer, String> errors) {
+        this.values = values;
+        this.present = present;
+        this.errorRows = new int[errors.size()];
+        int i = 0;
+        for (Integer row : errors.keySet()) {
+            errorRows[i++] = row;
+        }
+        Arrays.sort(errorRows);
+        this.errorMessages = new String[errorRows.length];
+        for (i = 0; i < errorRows.length; i++) {
+            errorMessages[i] = errors.get(errorRows[i]);
+        }
+    }
+
+    /**
+     * @return number of rows
+     */
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * Get values, 0 for absent rows. The array is not copied.
+     *
+     * @return epoch value of each row
+     */
+    public long[] getValues() {
+        return values;
+    }
+
+    /**
+     * Get value of row.
+     *
+     * @param row row index
+     * @return epoch value, 0 if the row is absent
+     */
+    public long get(int row) {
+        return values[row];
+    }
+
+    /**
+     * Check if the row has a value.
+     *
+     * @param row row index
+     * @return parsed: true, blank or invalid: false
+     */
+    public boolean isPresent(int row) {
+        return present[row];
+    }
+
+    /**
+     * @return has invalid rows: true
+     */
+    public boolean hasErrors() {
+        return errorRows.length > 0;
+    }
+
+    /**
+     * Get invalid rows in ascending order.
+     *
+     * @return row indexes
+     */
+    public int[] getErrorRows() {
+        return errorRows.clone();
+    }
+
+    /**
+     * Get error of row.
+     *
+     * @param row row index
+     * @return parser's message, or {@code null} if the row is not invalid
+     */
+    public String getError(int row) {
+        int i = Arrays.binarySearch(errorRows, row);
+        return i < 0 ? null : errorMessages[i];
+    }
+}
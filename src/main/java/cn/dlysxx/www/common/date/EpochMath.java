@@ -0,0 +1,114 @@
+package cn.dlysxx.www.common.date;
+
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * Arithmetic between civil fields and epoch values, without temporal objects.
+ *
+ * <p>
+ * Dates are proleptic ISO, "local millis" are the millis of a local date-time as if it were in UTC.
+ * </p>
+ *
+ * @author lin.duan
+ */
+final class EpochMath {
+
+    static final long MILLIS_PER_SECOND = 1000L;
+    static final long MILLIS_PER_MINUTE = 60_000L;
+    static final long MILLIS_PER_HOUR = 3_600_000L;
+    static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private EpochMath() {
+    }
+
+    /**
+     * Convert date to epoch day.
+     *
+     * @param year  year
+     * @param month month, 1 to 12
+     * @param day   day of month
+     * @return days since 1970-01-01
+     */
+    static long epochDay(int year, int month, int day) {
+        long y = month <= 2 ? year - 1L : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153L * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097 + dayOfEra - 719_468;
+    }
+
+    /**
+     * Convert epoch day to packed date, read with {@link #year(long)}, {@link #month(long)} and {@link #day(long)}.
+     *
+     * @param epochDay days since 1970-01-01
+     * @return packed date
+     */
+    static long civil(long epochDay) {
+        long z = epochDay + 719_468;
+        long era = Math.floorDiv(z, 146_097);
+        long dayOfEra = z - era * 146_097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return year << 9 | month << 5 | day;
+    }
+
+    static int year(long civil) {
+        return (int) (civil >> 9);
+    }
+
+    static int month(long civil) {
+        return (int) (civil >>> 5) & 0xF;
+    }
+
+    static int day(long civil) {
+        return (int) civil & 0x1F;
+    }
+
+    /**
+     * Convert packed fields of {@link FixedDateLayout#parse(CharSequence)} to local millis.
+     *
+     * @param packed packed fields
+     * @return local millis
+     */
+    static long localMillis(long packed) {
+        return epochDay(FixedDateLayout.year(packed), FixedDateLayout.month(packed), FixedDateLayout.day(packed))
+            * MILLIS_PER_DAY + FixedDateLayout.hour(packed) * MILLIS_PER_HOUR
+            + FixedDateLayout.minute(packed) * MILLIS_PER_MINUTE + FixedDateLayout.second(packed) * MILLIS_PER_SECOND
+            + FixedDateLayout.milli(packed);
+    }
+
+    /**
+     * Convert local millis in zone to epoch millis, resolved like {@link java.time.ZonedDateTime#of}: a local time in
+     * a gap is moved later by the length of the gap, an ambiguous one takes the earlier offset.
+     *
+     * @param localMillis local millis
+     * @param zone        zone
+     * @return epoch millis
+     */
+    static long toEpochMilli(long localMillis, ZoneId zone) {
+        if (zone instanceof ZoneOffset) {
+            return localMillis - ((ZoneOffset) zone).getTotalSeconds() * MILLIS_PER_SECOND;
+        }
+        return ZoneOffsetTable.forZone(zone).toEpochMilli(localMillis);
+    }
+
+    /**
+     * Convert epoch millis to local millis in zone.
+     *
+     * @param epochMilli epoch millis
+     * @param zone       zone
+     * @return local millis
+     */
+    static long toLocalMillis(long epochMilli, ZoneId zone) {
+        if (zone instanceof ZoneOffset) {
+            return epochMilli + ((ZoneOffset) zone).getTotalSeconds() * MILLIS_PER_SECOND;
+        }
+        return ZoneOffsetTable.forZone(zone).toLocalMillis(epochMilli);
+    }
+}
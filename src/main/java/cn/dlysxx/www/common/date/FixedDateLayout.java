@@ -0,0 +1,339 @@
+package cn.dlysxx.www.common.date;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.time.ZonedDateTime;
+
+/**
+ * Fixed width date layout, e.g. "uuuu/MM/dd HH:mm:ss".
+ *
+ * <p>
+ * Parses and formats by scanning characters at fixed offsets instead of going through
+ * {@link java.time.format.DateTimeFormatter}, with the same checks as {@link java.time.format.ResolverStyle#STRICT}.
+ * Only 4 digit {@code uuuu}, {@code MM}, {@code dd}, {@code HH}, {@code mm}, {@code ss}, {@code SSS} and literals are
+ * supported. Parse methods return {@code null} instead of throwing, so the caller can fall back to the formatter,
+ * which reports the error.
+ * </p>
+ *
+ * @author lin.duan
+ */
+final class FixedDateLayout {
+
+    static final int YEAR = 1;
+    static final int MONTH = 1 << 1;
+    static final int DAY = 1 << 2;
+    static final int HOUR = 1 << 3;
+    static final int MINUTE = 1 << 4;
+    static final int SECOND = 1 << 5;
+    static final int MILLI = 1 << 6;
+
+    static final int DATE = YEAR | MONTH | DAY;
+    static final int TIME = HOUR | MINUTE;
+    static final int ALL = DATE | TIME | SECOND | MILLI;
+
+    /** Returned by {@link #parse(CharSequence)} for invalid input */
+    static final long INVALID = -1L;
+
+    private final char[] template;
+    private final int fields;
+    private final int yearAt;
+    private final int monthAt;
+    private final int dayAt;
+    private final int hourAt;
+    private final int minuteAt;
+    private final int secondAt;
+    private final int milliAt;
+
+    private FixedDateLayout(char[] template, int[] offsets) {
+        this.template = template;
+        this.yearAt = offsets[0];
+        this.monthAt = offsets[1];
+        this.dayAt = offsets[2];
+        this.hourAt = offsets[3];
+        this.minuteAt = offsets[4];
+        this.secondAt = offsets[5];
+        this.milliAt = offsets[6];
+        int mask = 0;
+        for (int i = 0; i < offsets.length; i++) {
+            if (offsets[i] >= 0) {
+                mask |= 1 << i;
+            }
+        }
+        this.fields = mask;
+    }
+
+    /**
+     * Compile pattern.
+     *
+     * @param pattern {@link java.time.format.DateTimeFormatter#ofPattern} pattern
+     * @return layout, or {@code null} if the pattern is not a supported fixed width pattern
+     */
+    static FixedDateLayout compile(String pattern) {
+        StringBuilder template = new StringBuilder();
+        int[] offsets = {-1, -1, -1, -1, -1, -1, -1};
+        int i = 0;
+        while (i < pattern.length()) {
+            char c = pattern.charAt(i);
+            if (c == '\'') {
+                int end = pattern.indexOf('\'', i + 1);
+                if (end <= i + 1) {
+                    // '' escapes and unterminated quotes are left to the formatter
+                    return null;
+                }
+                template.append(pattern, i + 1, end);
+                i = end + 1;
+            } else if (Character.isLetter(c)) {
+                int run = i;
+                while (run < pattern.length() && pattern.charAt(run) == c) {
+                    run++;
+                }
+                int field = field(c, run - i);
+                if (field < 0 || offsets[field] >= 0) {
+                    return null;
+                }
+                offsets[field] = template.length();
+                for (int j = i; j < run; j++) {
+                    template.append('\0');
+                }
+                i = run;
+            } else if (c == '[' || c == ']' || c == '{' || c == '}' || c == '#') {
+                return null;
+            } else {
+                template.append(c);
+                i++;
+            }
+        }
+        boolean[] has = new boolean[offsets.length];
+        for (int f = 0; f < offsets.length; f++) {
+            has[f] = offsets[f] >= 0;
+        }
+        // only layouts the formatter resolves the same way: day needs year and month, smaller time units need
+        // larger ones
+        if (has[2] && !(has[0] && has[1]) || has[4] && !has[3] || has[5] && !has[4] || has[6] && !has[5]
+            || has[3] && !has[4]) {
+            return null;
+        }
+        return new FixedDateLayout(template.toString().toCharArray(), offsets);
+    }
+
+    private static int field(char c, int width) {
+        switch (c) {
+            case 'u':
+                return width == 4 ? 0 : -1;
+            case 'M':
+                return width == 2 ? 1 : -1;
+            case 'd':
+                return width == 2 ? 2 : -1;
+            case 'H':
+                return width == 2 ? 3 : -1;
+            case 'm':
+                return width == 2 ? 4 : -1;
+            case 's':
+                return width == 2 ? 5 : -1;
+            case 'S':
+                return width == 3 ? 6 : -1;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * @return offset of the millisecond digits, or -1
+     */
+    int milliAt() {
+        return milliAt;
+    }
+
+    /**
+     * Check if the layout has all the fields.
+     *
+     * @param mask field mask, e.g. {@link #DATE}
+     * @return has all fields: true
+     */
+    boolean has(int mask) {
+        return (fields & mask) == mask;
+    }
+
+    /**
+     * Parse and validate all fields into one packed value, absent fields are 1 for month and day, 0 otherwise.
+     *
+     * @param s text
+     * @return packed fields, or {@link #INVALID}
+     */
+    long parse(CharSequence s) {
+        if (s.length() != template.length) {
+            return INVALID;
+        }
+        for (int i = 0; i < template.length; i++) {
+            char t = template[i];
+            if (t != '\0' && s.charAt(i) != t) {
+                return INVALID;
+            }
+        }
+        int year = yearAt < 0 ? 0 : digits(s, yearAt, 4);
+        int month = monthAt < 0 ? 1 : digits(s, monthAt, 2);
+        int day = dayAt < 0 ? 1 : digits(s, dayAt, 2);
+        int hour = hourAt < 0 ? 0 : digits(s, hourAt, 2);
+        int minute = minuteAt < 0 ? 0 : digits(s, minuteAt, 2);
+        int second = secondAt < 0 ? 0 : digits(s, secondAt, 2);
+        int milli = milliAt < 0 ? 0 : digits(s, milliAt, 3);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || hour < 0 || hour > 23 || minute < 0 || minute > 59
+            || second < 0 || second > 59 || milli < 0) {
+            return INVALID;
+        }
+        if (dayAt >= 0 && day > lengthOfMonth(year, month)) {
+            return INVALID;
+        }
+        return (long) year << 36 | (long) month << 32 | (long) day << 27 | (long) hour << 22 | (long) minute << 16
+            | (long) second << 10 | milli;
+    }
+
+    static int year(long packed) {
+        return (int) (packed >>> 36);
+    }
+
+    static int month(long packed) {
+        return (int) (packed >>> 32) & 0xF;
+    }
+
+    static int day(long packed) {
+        return (int) (packed >>> 27) & 0x1F;
+    }
+
+    static int hour(long packed) {
+        return (int) (packed >>> 22) & 0x1F;
+    }
+
+    static int minute(long packed) {
+        return (int) (packed >>> 16) & 0x3F;
+    }
+
+    static int second(long packed) {
+        return (int) (packed >>> 10) & 0x3F;
+    }
+
+    static int milli(long packed) {
+        return (int) packed & 0x3FF;
+    }
+
+    LocalDateTime parseLocalDateTime(CharSequence s) {
+        if (!has(DATE | TIME)) {
+            return null;
+        }
+        long p = parse(s);
+        if (p == INVALID) {
+            return null;
+        }
+        return LocalDateTime.of(year(p), month(p), day(p), hour(p), minute(p), second(p), milli(p) * 1_000_000);
+    }
+
+    LocalDate parseLocalDate(CharSequence s) {
+        if (!has(DATE)) {
+            return null;
+        }
+        long p = parse(s);
+        return p == INVALID ? null : LocalDate.of(year(p), month(p), day(p));
+    }
+
+    LocalTime parseLocalTime(CharSequence s) {
+        if (!has(TIME)) {
+            return null;
+        }
+        long p = parse(s);
+        return p == INVALID ? null : LocalTime.of(hour(p), minute(p), second(p), milli(p) * 1_000_000);
+    }
+
+    YearMonth parseYearMonth(CharSequence s) {
+        if (!has(YEAR | MONTH)) {
+            return null;
+        }
+        long p = parse(s);
+        return p == INVALID ? null : YearMonth.of(year(p), month(p));
+    }
+
+    String format(ZonedDateTime zonedDateTime) {
+        return format(ALL, zonedDateTime.getYear(), zonedDateTime.getMonthValue(), zonedDateTime.getDayOfMonth(),
+            zonedDateTime.getHour(), zonedDateTime.getMinute(), zonedDateTime.getSecond(), zonedDateTime.getNano());
+    }
+
+    String format(LocalDateTime localDateTime) {
+        return format(ALL, localDateTime.getYear(), localDateTime.getMonthValue(), localDateTime.getDayOfMonth(),
+            localDateTime.getHour(), localDateTime.getMinute(), localDateTime.getSecond(), localDateTime.getNano());
+    }
+
+    String format(LocalDate localDate) {
+        return format(ALL, localDate.getYear(), localDate.getMonthValue(), localDate.getDayOfMonth(), 0, 0, 0, 0);
+    }
+
+    String format(LocalTime localTime) {
+        return format(TIME | SECOND | MILLI, 0, 1, 1, localTime.getHour(), localTime.getMinute(),
+            localTime.getSecond(), localTime.getNano());
+    }
+
+    String format(YearMonth yearMonth) {
+        return format(YEAR | MONTH, yearMonth.getYear(), yearMonth.getMonthValue(), 1, 0, 0, 0, 0);
+    }
+
+    /**
+     * Format fields.
+     *
+     * @param provided fields the value has
+     * @return text, or {@code null} if the layout needs a field the value does not have or the year is not 4 digits
+     */
+    String format(int provided, int year, int month, int day, int hour, int minute, int second, int nano) {
+        if ((fields & ~provided) != 0 || yearAt >= 0 && (year < 0 || year > 9999)) {
+            return null;
+        }
+        char[] chars = template.clone();
+        put(chars, yearAt, year, 4);
+        put(chars, monthAt, month, 2);
+        put(chars, dayAt, day, 2);
+        put(chars, hourAt, hour, 2);
+        put(chars, minuteAt, minute, 2);
+        put(chars, secondAt, second, 2);
+        put(chars, milliAt, nano / 1_000_000, 3);
+        return new String(chars);
+    }
+
+    private static void put(char[] chars, int at, int value, int width) {
+        if (at < 0) {
+            return;
+        }
+        for (int i = at + width - 1; i >= at; i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    private static int digits(CharSequence s, int at, int width) {
+        int value = 0;
+        for (int i = at; i < at + width; i++) {
+            int digit = s.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return isLeapYear(year) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    static boolean isLeapYear(int year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+}
@@ -0,0 +1,204 @@
+package cn.dlysxx.www.common.date;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntConsumer;
+import java.util.function.ToLongFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable index of periods, answering "which periods contain this time" without checking every period.
+ *
+ * <p>
+ * Periods are closed intervals of epoch values (millis or days), the same as
+ * {@link DateUtil#isIntime(long, long, long)}. They are sorted by start and kept as an implicit interval tree, the
+ * middle of each range being the root of the range with the largest end of its subtree. A query allocates nothing
+ * and only visits nodes on the path of a match or on the path where starts pass the end of the range, so reporting
+ * k matches takes O(min(n, (k + 1) log n)); {@link #anyContaining(long)} follows a single path, O(log n). Matches
+ * are reported by the index of the period in the input. Instances are thread safe.
+ * </p>
+ *
+ * @author lin.duan
+ */
+public final class IntervalIndex {
+
+    private final long[] starts;
+    private final long[] ends;
+    private final long[] maxEnds;
+    private final int[] ids;
+
+    private IntervalIndex(long[] starts, long[] ends, int[] ids) {
+        this.starts = starts;
+        this.ends = ends;
+        this.ids = ids;
+        this.maxEnds = new long[starts.length];
+        maxEnd(0, starts.length);
+    }
+
+    /**
+     * Build index of periods.
+     *
+     * @param starts start of each period
+     * @param ends   end of each period, in the same unit as starts
+     * @return {@link IntervalIndex}, period {@code i} is reported as index {@code i}
+     * @throws IllegalArgumentException if the lengths differ or a period ends before it starts
+     */
+    public static IntervalIndex of(long[] starts, long[] ends) {
+        if (starts.length != ends.length) {
+            throw new IllegalArgumentException("starts and ends must have the same length: " + starts.length + ", "
+                + ends.length);
+        }
+        for (int i = 0; i < starts.length; i++) {
+            if (ends[i] < starts[i]) {
+                throw new IllegalArgumentException("period " + i + " ends before it starts: " + starts[i] + " > "
+                    + ends[i]);
+            }
+        }
+        int[] order = IntStream.range(0, starts.length).boxed()
+            .sorted(Comparator.comparingLong(i -> starts[i])).mapToInt(Integer::intValue).toArray();
+        long[] sortedStarts = new long[order.length];
+        long[] sortedEnds = new long[order.length];
+        for (int i = 0; i < order.length; i++) {
+            sortedStarts[i] = starts[order[i]];
+            sortedEnds[i] = ends[order[i]];
+        }
+        return new IntervalIndex(sortedStarts, sortedEnds, order);
+    }
+
+    /**
+     * Build index of periods.
+     *
+     * @param periods periods, e.g. campaigns
+     * @param start   start of a period (e.g. {@code c -> c.getStart().getTime()})
+     * @param end     end of a period, in the same unit as start
+     * @param <T>     type of period
+     * @return {@link IntervalIndex}, {@code periods.get(i)} is reported as index {@code i}
+     * @throws IllegalArgumentException if a period ends before it starts
+     */
+    public static <T> IntervalIndex of(List<T> periods, ToLongFunction<? super T> start,
+        ToLongFunction<? super T> end) {
+        long[] starts = new long[periods.size()];
+        long[] ends = new long[periods.size()];
+        int i = 0;
+        for (T period : periods) {
+            starts[i] = start.applyAsLong(period);
+            ends[i] = end.applyAsLong(period);
+            i++;
+        }
+        return of(starts, ends);
+    }
+
+    /**
+     * @return number of periods
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Report periods containing the target, in ascending order of start.
+     *
+     * @param target target (epoch millis or epoch day)
+     * @param action called with the index of each period
+     */
+    public void forEachContaining(long target, IntConsumer action) {
+        forEachOverlapping(target, target, action);
+    }
+
+    /**
+     * Report periods overlapping {@code [from, to]}, in ascending order of start.
+     *
+     * @param from   start of the range (inclusive)
+     * @param to     end of the range (inclusive)
+     * @param action called with the index of each period
+     */
+    public void forEachOverlapping(long from, long to, IntConsumer action) {
+        if (from <= to) {
+            overlapping(0, ids.length, from, to, action);
+        }
+    }
+
+    /**
+     * Check if any period contains the target.
+     *
+     * @param target target (epoch millis or epoch day)
+     * @return intime of any period: true
+     */
+    public boolean anyContaining(long target) {
+        int lo = 0;
+        int hi = ids.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (maxEnds[mid] < target) {
+                return false;
+            }
+            if (starts[mid] <= target && ends[mid] >= target) {
+                return true;
+            }
+            // the left half has the larger end only if its max end reaches the target
+            if (lo < mid && maxEnds[(lo + mid) >>> 1] >= target) {
+                hi = mid;
+            } else if (starts[mid] <= target) {
+                lo = mid + 1;
+            } else {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Count periods containing the target.
+     *
+     * @param target target (epoch millis or epoch day)
+     * @return number of periods
+     */
+    public int countContaining(long target) {
+        return count(0, ids.length, target, target);
+    }
+
+    private void overlapping(int lo, int hi, long from, long to, IntConsumer action) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        if (maxEnds[mid] < from) {
+            return;
+        }
+        overlapping(lo, mid, from, to, action);
+        if (starts[mid] <= to) {
+            if (ends[mid] >= from) {
+                action.accept(ids[mid]);
+            }
+            overlapping(mid + 1, hi, from, to, action);
+        }
+    }
+
+    private int count(int lo, int hi, long from, long to) {
+        if (lo >= hi) {
+            return 0;
+        }
+        int mid = (lo + hi) >>> 1;
+        if (maxEnds[mid] < from) {
+            return 0;
+        }
+        int count = count(lo, mid, from, to);
+        if (starts[mid] <= to) {
+            if (ends[mid] >= from) {
+                count++;
+            }
+            count += count(mid + 1, hi, from, to);
+        }
+        return count;
+    }
+
+    private long maxEnd(int lo, int hi) {
+        if (lo >= hi) {
+            return Long.MIN_VALUE;
+        }
+        int mid = (lo + hi) >>> 1;
+        long max = Math.max(ends[mid], Math.max(maxEnd(lo, mid), maxEnd(mid + 1, hi)));
+        maxEnds[mid] = max;
+        return max;
+    }
+}
@@ -0,0 +1,215 @@
+package cn.dlysxx.www.common.date;
+
+import java.time.ZoneId;
+import java.util.Arrays;
+
+/**
+ * Count and sum of values per time bucket, e.g. events per hour.
+ *
+ * <p>
+ * Buckets are kept in an open addressing map of primitive arrays, so adding a value allocates nothing unless the map
+ * grows. Instances are not thread safe: aggregate per thread and {@link #merge(TimeBucketAggregator)} the results.
+ * </p>
+ *
+ * @author lin.duan
+ */
+public final class TimeBucketAggregator {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final TimeGranularity granularity;
+    private final ZoneId zone;
+    private long[] keys;
+    private long[] counts;
+    private long[] sums;
+    private boolean[] used;
+    private int size;
+
+    /**
+     * Constructor.
+     *
+     * @param granularity {@link TimeGranularity} of the buckets
+     * @param zone        {@link ZoneId} of the local bucket boundaries (e.g. ZoneId.of("Asia/Shanghai"))
+     */
+    public TimeBucketAggregator(TimeGranularity granularity, ZoneId zone) {
+        this.granularity = granularity;
+        this.zone = zone;
+        allocate(INITIAL_CAPACITY);
+    }
+
+    public TimeGranularity getGranularity() {
+        return granularity;
+    }
+
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    /**
+     * Count an event.
+     *
+     * @param epochMilli epoch millis of the event
+     */
+    public void add(long epochMilli) {
+        add(epochMilli, 0L);
+    }
+
+    /**
+     * Count an event and add its value to the sum of its bucket.
+     *
+     * @param epochMilli epoch millis of the event
+     * @param value      value of the event
+     */
+    public void add(long epochMilli, long value) {
+        accumulate(granularity.bucket(epochMilli, zone), 1L, value);
+    }
+
+    /**
+     * Add the buckets of another aggregator of the same granularity and zone.
+     *
+     * @param other {@link TimeBucketAggregator}
+     * @throws IllegalArgumentException if the granularity or zone differs
+     */
+    public void merge(TimeBucketAggregator other) {
+        if (other.granularity != granularity || !other.zone.equals(zone)) {
+            throw new IllegalArgumentException("Cannot merge " + other.granularity + " " + other.zone + " into "
+                + granularity + " " + zone);
+        }
+        for (int i = 0; i < other.keys.length; i++) {
+            if (other.used[i]) {
+                accumulate(other.keys[i], other.counts[i], other.sums[i]);
+            }
+        }
+    }
+
+    /**
+     * @return number of buckets
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get bucket starts in ascending order.
+     *
+     * @return epoch millis of each bucket start
+     */
+    public long[] getBuckets() {
+        long[] buckets = new long[size];
+        int n = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i]) {
+                buckets[n++] = keys[i];
+            }
+        }
+        Arrays.sort(buckets);
+        return buckets;
+    }
+
+    /**
+     * Get count of bucket.
+     *
+     * @param bucket epoch millis of the bucket start (e.g. from {@link #getBuckets()})
+     * @return count, 0 if there is no such bucket
+     */
+    public long getCount(long bucket) {
+        int i = find(bucket);
+        return used[i] ? counts[i] : 0L;
+    }
+
+    /**
+     * Get sum of bucket.
+     *
+     * @param bucket epoch millis of the bucket start (e.g. from {@link #getBuckets()})
+     * @return sum, 0 if there is no such bucket
+     */
+    public long getSum(long bucket) {
+        int i = find(bucket);
+        return used[i] ? sums[i] : 0L;
+    }
+
+    /**
+     * Report buckets in ascending order.
+     *
+     * @param action called with each bucket
+     */
+    public void forEach(BucketConsumer action) {
+        for (long bucket : getBuckets()) {
+            int i = find(bucket);
+            action.accept(bucket, counts[i], sums[i]);
+        }
+    }
+
+    private void accumulate(long bucket, long count, long sum) {
+        int i = find(bucket);
+        if (!used[i]) {
+            if ((size + 1) * 4 > keys.length * 3) {
+                grow();
+                i = find(bucket);
+            }
+            used[i] = true;
+            keys[i] = bucket;
+            size++;
+        }
+        counts[i] += count;
+        sums[i] += sum;
+    }
+
+    /**
+     * @return slot of the key, or the empty slot where it belongs
+     */
+    private int find(long key) {
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        while (used[i] && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        long[] oldCounts = counts;
+        long[] oldSums = sums;
+        boolean[] oldUsed = used;
+        allocate(oldKeys.length * 2);
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldUsed[j]) {
+                int i = find(oldKeys[j]);
+                used[i] = true;
+                keys[i] = oldKeys[j];
+                counts[i] = oldCounts[j];
+                sums[i] = oldSums[j];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        counts = new long[capacity];
+        sums = new long[capacity];
+        used = new boolean[capacity];
+    }
+
+    private static int hash(long key) {
+        // bucket starts are multiples of a minute, mix the high bits into the low ones
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ h >>> 32);
+    }
+
+    /**
+     * Receiver of one bucket.
+     */
+    @FunctionalInterface
+    public interface BucketConsumer {
+
+        /**
+         * Accept bucket.
+         *
+         * @param bucket epoch millis of the bucket start
+         * @param count  number of events
+         * @param sum    sum of the values
+         */
+        void accept(long bucket, long count, long sum);
+    }
+}
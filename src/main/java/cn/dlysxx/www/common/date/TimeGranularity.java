@@ -0,0 +1,125 @@
+package cn.dlysxx.www.common.date;
+
+import java.time.ZoneId;
+
+/**
+ * Granularity of time buckets, e.g. to roll events up per hour or per month.
+ *
+ * <p>
+ * A bucket is identified by its start in epoch millis: the local start of the minute, hour, day, ISO week (Monday),
+ * month or year in the zone, resolved like {@link java.time.ZonedDateTime#of} when it falls in a gap. Buckets are
+ * computed with arithmetic on epoch values and {@link ZoneOffsetTable}, without temporal objects.
+ * </p>
+ *
+ * @author lin.duan
+ */
+public enum TimeGranularity {
+
+    MINUTE {
+        @Override
+        public long truncateLocalMillis(long localMillis) {
+            return localMillis - Math.floorMod(localMillis, EpochMath.MILLIS_PER_MINUTE);
+        }
+
+        @Override
+        long nextLocalMillis(long localStart) {
+            return localStart + EpochMath.MILLIS_PER_MINUTE;
+        }
+    },
+    HOUR {
+        @Override
+        public long truncateLocalMillis(long localMillis) {
+            return localMillis - Math.floorMod(localMillis, EpochMath.MILLIS_PER_HOUR);
+        }
+
+        @Override
+        long nextLocalMillis(long localStart) {
+            return localStart + EpochMath.MILLIS_PER_HOUR;
+        }
+    },
+    DAY {
+        @Override
+        public long truncateLocalMillis(long localMillis) {
+            return localMillis - Math.floorMod(localMillis, EpochMath.MILLIS_PER_DAY);
+        }
+
+        @Override
+        long nextLocalMillis(long localStart) {
+            return localStart + EpochMath.MILLIS_PER_DAY;
+        }
+    },
+    WEEK {
+        @Override
+        public long truncateLocalMillis(long localMillis) {
+            long epochDay = Math.floorDiv(localMillis, EpochMath.MILLIS_PER_DAY);
+            // 1970-01-01 is a Thursday, 3 days after Monday
+            return (epochDay - Math.floorMod(epochDay + 3, 7L)) * EpochMath.MILLIS_PER_DAY;
+        }
+
+        @Override
+        long nextLocalMillis(long localStart) {
+            return localStart + 7 * EpochMath.MILLIS_PER_DAY;
+        }
+    },
+    MONTH {
+        @Override
+        public long truncateLocalMillis(long localMillis) {
+            long civil = EpochMath.civil(Math.floorDiv(localMillis, EpochMath.MILLIS_PER_DAY));
+            return EpochMath.epochDay(EpochMath.year(civil), EpochMath.month(civil), 1) * EpochMath.MILLIS_PER_DAY;
+        }
+
+        @Override
+        long nextLocalMillis(long localStart) {
+            long civil = EpochMath.civil(Math.floorDiv(localStart, EpochMath.MILLIS_PER_DAY));
+            int month = EpochMath.month(civil);
+            return (month == 12 ? EpochMath.epochDay(EpochMath.year(civil) + 1, 1, 1)
+                : EpochMath.epochDay(EpochMath.year(civil), month + 1, 1)) * EpochMath.MILLIS_PER_DAY;
+        }
+    },
+    YEAR {
+        @Override
+        public long truncateLocalMillis(long localMillis) {
+            long civil = EpochMath.civil(Math.floorDiv(localMillis, EpochMath.MILLIS_PER_DAY));
+            return EpochMath.epochDay(EpochMath.year(civil), 1, 1) * EpochMath.MILLIS_PER_DAY;
+        }
+
+        @Override
+        long nextLocalMillis(long localStart) {
+            long civil = EpochMath.civil(Math.floorDiv(localStart, EpochMath.MILLIS_PER_DAY));
+            return EpochMath.epochDay(EpochMath.year(civil) + 1, 1, 1) * EpochMath.MILLIS_PER_DAY;
+        }
+    };
+
+    /**
+     * Truncate local millis (millis of a local date-time as if it were in UTC) to the start of its bucket.
+     *
+     * @param localMillis local millis
+     * @return local millis of the bucket start
+     */
+    public abstract long truncateLocalMillis(long localMillis);
+
+    abstract long nextLocalMillis(long localStart);
+
+    /**
+     * Get bucket of instant.
+     *
+     * @param epochMilli epoch millis
+     * @param zone       {@link ZoneId} of the local bucket boundaries (e.g. ZoneId.of("Asia/Shanghai"))
+     * @return epoch millis of the bucket start
+     */
+    public long bucket(long epochMilli, ZoneId zone) {
+        return EpochMath.toEpochMilli(truncateLocalMillis(EpochMath.toLocalMillis(epochMilli, zone)), zone);
+    }
+
+    /**
+     * Get bucket following the bucket of instant, e.g. the end (exclusive) of a range query.
+     *
+     * @param epochMilli epoch millis
+     * @param zone       {@link ZoneId} of the local bucket boundaries (e.g. ZoneId.of("Asia/Shanghai"))
+     * @return epoch millis of the next bucket start
+     */
+    public long nextBucket(long epochMilli, ZoneId zone) {
+        long localStart = truncateLocalMillis(EpochMath.toLocalMillis(epochMilli, zone));
+        return EpochMath.toEpochMilli(nextLocalMillis(localStart), zone);
+    }
+}
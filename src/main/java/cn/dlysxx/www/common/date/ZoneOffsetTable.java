@@ -0,0 +1,199 @@
+package cn.dlysxx.www.common.date;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Offsets of one time zone for a range of years, precomputed from its {@link ZoneRules}.
+ *
+ * <p>
+ * Transition instants are kept in a sorted {@code long[]} with the offset after each, so converting epoch millis to
+ * local millis and back is a binary search plus arithmetic. Local times are resolved like
+ * {@link java.time.ZonedDateTime#of}: a local time in a gap is moved later by the length of the gap, an ambiguous one
+ * takes the earlier offset. Values outside the years of the table are converted with the {@link ZoneRules}.
+ * Instances are immutable.
+ * </p>
+ *
+ * @author lin.duan
+ */
+public final class ZoneOffsetTable {
+
+    /** Default first year of tables returned by {@link #forZone(ZoneId)} */
+    public static final int DEFAULT_FIRST_YEAR = 1970;
+
+    /** Default last year of tables returned by {@link #forZone(ZoneId)} */
+    public static final int DEFAULT_LAST_YEAR = 2100;
+
+    /** Largest offset supported by {@link ZoneOffset}, in millis */
+    private static final long MAX_OFFSET_MILLIS = 18 * EpochMath.MILLIS_PER_HOUR;
+
+    private static final Map<ZoneId, ZoneOffsetTable> CACHE_ZONE_OFFSET_TABLE = new ConcurrentHashMap<>();
+
+    private static volatile int defaultFirstYear = DEFAULT_FIRST_YEAR;
+    private static volatile int defaultLastYear = DEFAULT_LAST_YEAR;
+
+    private final ZoneId zone;
+    private final ZoneRules rules;
+    private final int firstYear;
+    private final int lastYear;
+    private final long startMillis;
+    private final long endMillis;
+    /** Transition instants */
+    private final long[] transitions;
+    /** Local millis from which the offset after each transition applies */
+    private final long[] localSwitches;
+    /** offsets[i] applies before transitions[i], the last one after all transitions */
+    private final int[] offsetMillis;
+
+    private ZoneOffsetTable(ZoneId zone, int firstYear, int lastYear) {
+        this.zone = zone;
+        this.rules = zone.getRules();
+        this.firstYear = firstYear;
+        this.lastYear = lastYear;
+        this.startMillis = EpochMath.epochDay(firstYear, 1, 1) * EpochMath.MILLIS_PER_DAY;
+        this.endMillis = EpochMath.epochDay(lastYear + 1, 1, 1) * EpochMath.MILLIS_PER_DAY;
+
+        long[] instants = new long[16];
+        int[] offsets = new int[17];
+        offsets[0] = millis(rules.getOffset(Instant.ofEpochMilli(startMillis)));
+        int count = 0;
+        ZoneOffsetTransition transition = rules.nextTransition(Instant.ofEpochMilli(startMillis));
+        while (transition != null && transition.toEpochSecond() * EpochMath.MILLIS_PER_SECOND < endMillis) {
+            if (count == instants.length) {
+                instants = Arrays.copyOf(instants, count * 2);
+                offsets = Arrays.copyOf(offsets, count * 2 + 1);
+            }
+            instants[count] = transition.toEpochSecond() * EpochMath.MILLIS_PER_SECOND;
+            offsets[++count] = millis(transition.getOffsetAfter());
+            transition = rules.nextTransition(transition.getInstant());
+        }
+        this.transitions = Arrays.copyOf(instants, count);
+        this.offsetMillis = Arrays.copyOf(offsets, count + 1);
+        this.localSwitches = new long[count];
+        for (int i = 0; i < count; i++) {
+            // before the switch a local time is in the offset before: gaps are moved later, overlaps take the earlier
+            localSwitches[i] = transitions[i] + Math.max(offsetMillis[i], offsetMillis[i + 1]);
+        }
+    }
+
+    /**
+     * Get table of zone for the default years, created once per zone.
+     *
+     * @param zone {@link ZoneId} (e.g. ZoneId.of("Asia/Shanghai"))
+     * @return {@link ZoneOffsetTable}
+     */
+    public static ZoneOffsetTable forZone(ZoneId zone) {
+        return CACHE_ZONE_OFFSET_TABLE.computeIfAbsent(zone,
+            z -> new ZoneOffsetTable(z, defaultFirstYear, defaultLastYear));
+    }
+
+    /**
+     * Create table of zone.
+     *
+     * @param zone      {@link ZoneId} (e.g. ZoneId.of("Asia/Shanghai"))
+     * @param firstYear first year
+     * @param lastYear  last year (inclusive)
+     * @return {@link ZoneOffsetTable}
+     */
+    public static ZoneOffsetTable create(ZoneId zone, int firstYear, int lastYear) {
+        checkYears(firstYear, lastYear);
+        return new ZoneOffsetTable(zone, firstYear, lastYear);
+    }
+
+    /**
+     * Set years of tables returned by {@link #forZone(ZoneId)}, dropping the cached tables.
+     *
+     * @param firstYear first year
+     * @param lastYear  last year (inclusive)
+     */
+    public static synchronized void setDefaultYears(int firstYear, int lastYear) {
+        checkYears(firstYear, lastYear);
+        defaultFirstYear = firstYear;
+        defaultLastYear = lastYear;
+        CACHE_ZONE_OFFSET_TABLE.clear();
+    }
+
+    private static void checkYears(int firstYear, int lastYear) {
+        if (firstYear > lastYear || firstYear < -999_999 || lastYear > 999_999) {
+            throw new IllegalArgumentException("Invalid years: " + firstYear + "-" + lastYear);
+        }
+    }
+
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    public int getFirstYear() {
+        return firstYear;
+    }
+
+    public int getLastYear() {
+        return lastYear;
+    }
+
+    /**
+     * Get offset at instant.
+     *
+     * @param epochMilli epoch millis
+     * @return offset in millis
+     */
+    public int getOffsetMillis(long epochMilli) {
+        if (epochMilli < startMillis || epochMilli >= endMillis) {
+            return millis(rules.getOffset(Instant.ofEpochMilli(epochMilli)));
+        }
+        return offsetMillis[upperBound(transitions, epochMilli)];
+    }
+
+    /**
+     * Convert epoch millis to local millis.
+     *
+     * @param epochMilli epoch millis
+     * @return millis of the local date-time as if it were in UTC
+     */
+    public long toLocalMillis(long epochMilli) {
+        return epochMilli + getOffsetMillis(epochMilli);
+    }
+
+    /**
+     * Convert local millis to epoch millis, resolved like {@link java.time.ZonedDateTime#of}.
+     *
+     * @param localMillis millis of the local date-time as if it were in UTC
+     * @return epoch millis
+     */
+    public long toEpochMilli(long localMillis) {
+        if (localMillis >= startMillis + MAX_OFFSET_MILLIS && localMillis < endMillis - MAX_OFFSET_MILLIS) {
+            return localMillis - offsetMillis[upperBound(localSwitches, localMillis)];
+        }
+        long localSecond = Math.floorDiv(localMillis, EpochMath.MILLIS_PER_SECOND);
+        int nano = (int) Math.floorMod(localMillis, EpochMath.MILLIS_PER_SECOND) * 1_000_000;
+        return LocalDateTime.ofEpochSecond(localSecond, nano, ZoneOffset.UTC).atZone(zone).toInstant().toEpochMilli();
+    }
+
+    /**
+     * @return number of values less than or equal to the key
+     */
+    private static int upperBound(long[] values, long key) {
+        int lo = 0;
+        int hi = values.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (values[mid] <= key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static int millis(ZoneOffset offset) {
+        return offset.getTotalSeconds() * 1000;
+    }
+}
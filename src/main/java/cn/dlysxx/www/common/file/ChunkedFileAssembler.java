@@ -0,0 +1,265 @@
+package cn.dlysxx.www.common.file;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+
+/**
+ * Assembler of one file received in chunks of a fixed size, e.g. the parts of a parallel upload.
+ *
+ * <p>
+ * The file is created next to the target with its final length, and every chunk is written at its own offset, so
+ * chunks may arrive in any order and from several threads at once. {@link #finish(boolean)} renames the complete file into
+ * place; {@link #close()} before that discards it.
+ * </p>
+ *
+ * <pre>
+ * try (ChunkedFileAssembler assembler = ChunkedFileAssembler.create(target, size, 8 * 1024 * 1024)) {
+ *     // from the request threads
+ *     assembler.writeChunk(index, request.getInputStream());
+ *     ...
+ *     if (assembler.isComplete()) {
+ *         assembler.finish(true);
+ *     }
+ * }
+ * </pre>
+ *
+ * @author shuai
+ **/
+public final class ChunkedFileAssembler implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path target;
+    private final Path part;
+    private final long size;
+    private final int chunkSize;
+    private final int chunkCount;
+    private final FileChannel channel;
+    /** Completed chunks, guarded by itself */
+    private final BitSet completed;
+    private volatile boolean finished;
+
+    private ChunkedFileAssembler(Path target, Path part, long size, int chunkSize, FileChannel channel) {
+        this.target = target;
+        this.part = part;
+        this.size = size;
+        this.chunkSize = chunkSize;
+        this.chunkCount = (int) ((size + chunkSize - 1) / chunkSize);
+        this.channel = channel;
+        this.completed = new BitSet(chunkCount);
+    }
+
+    /**
+     * Create assembler.
+     *
+     * @param target    target file, replaced on {@link #finish(boolean)}
+     * @param size      size of the file
+     * @param chunkSize size of every chunk but the last one
+     * @return {@link ChunkedFileAssembler}
+     * @throws IOException IOException, e.g. if the directory of the target does not exist or has less usable space
+     *                     than {@code size}
+     */
+    public static ChunkedFileAssembler create(Path target, long size, int chunkSize) throws IOException {
+        if (size < 0 || chunkSize <= 0 || (size + chunkSize - 1) / chunkSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid size " + size + " or chunk size " + chunkSize);
+        }
+        Path absolute = target.toAbsolutePath();
+        Path part = FileUtil.createTempSibling(absolute);
+        FileChannel channel = null;
+        try {
+            // the file only gets its length below, the blocks are allocated as chunks arrive, so a disk too small for
+            // the file is caught here instead of by a late chunk; other writers may still fill the disk meanwhile
+            long usable = Files.getFileStore(part).getUsableSpace();
+            if (usable < size) {
+                throw new IOException("Not enough space for " + size + " bytes in " + absolute.getParent()
+                    + ": " + usable + " bytes usable");
+            }
+            channel = FileChannel.open(part, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if (size > 0) {
+                // extend the (sparse) file to its final size, so that the chunks only write inside it
+                channel.write(ByteBuffer.allocate(1), size - 1);
+            }
+            return new ChunkedFileAssembler(absolute, part, size, chunkSize, channel);
+        } catch (IOException | RuntimeException e) {
+            if (channel != null) {
+                channel.close();
+            }
+            Files.deleteIfExists(part);
+            throw e;
+        }
+    }
+
+    /**
+     * Get number of chunks.
+     *
+     * @return number of chunks
+     */
+    public int getChunkCount() {
+        return chunkCount;
+    }
+
+    /**
+     * Get size of chunk.
+     *
+     * @param index chunk index
+     * @return size of the chunk, smaller for the last chunk
+     */
+    public int getChunkSize(int index) {
+        checkIndex(index);
+        return (int) Math.min(chunkSize, size - (long) index * chunkSize);
+    }
+
+    /**
+     * Write chunk. Writing a chunk again replaces it, e.g. when an upload is retried; the chunk is missing until
+     * the write succeeds. {@code in} is not closed.
+     *
+     * @param index chunk index
+     * @param in    data of the chunk, exactly {@link #getChunkSize(int)} bytes
+     * @throws IOException IOException, also thrown if the data has not the size of the chunk
+     */
+    public void writeChunk(int index, InputStream in) throws IOException {
+        int length = getChunkSize(index);
+        long position = (long) index * chunkSize;
+        mark(index, false);
+        byte[] buffer = new byte[Math.min(length, BUFFER_SIZE)];
+        int written = 0;
+        while (written < length) {
+            int n = in.read(buffer, 0, Math.min(buffer.length, length - written));
+            if (n < 0) {
+                throw new IOException("Chunk " + index + " too short: " + written + " of " + length + " bytes");
+            }
+            write(ByteBuffer.wrap(buffer, 0, n), position + written);
+            written += n;
+        }
+        if (in.read() >= 0) {
+            throw new IOException("Chunk " + index + " longer than " + length + " bytes");
+        }
+        mark(index, true);
+    }
+
+    /**
+     * Write chunk. Writing a chunk again replaces it, e.g. when an upload is retried; the chunk is missing until
+     * the write succeeds.
+     *
+     * @param index chunk index
+     * @param data  remaining bytes are the data of the chunk, exactly {@link #getChunkSize(int)} bytes
+     * @throws IOException IOException
+     */
+    public void writeChunk(int index, ByteBuffer data) throws IOException {
+        int length = getChunkSize(index);
+        if (data.remaining() != length) {
+            throw new IOException("Chunk " + index + " has " + data.remaining() + " bytes instead of " + length);
+        }
+        mark(index, false);
+        write(data, (long) index * chunkSize);
+        mark(index, true);
+    }
+
+    /**
+     * Check chunk.
+     *
+     * @param index chunk index
+     * @return {@code true} if the chunk has been written
+     */
+    public boolean isCompleted(int index) {
+        checkIndex(index);
+        synchronized (completed) {
+            return completed.get(index);
+        }
+    }
+
+    /**
+     * Check whether all chunks have been written.
+     *
+     * @return {@code true} if all chunks have been written
+     */
+    public boolean isComplete() {
+        synchronized (completed) {
+            return completed.cardinality() == chunkCount;
+        }
+    }
+
+    /**
+     * Get indexes of the chunks not written yet, e.g. to resume an upload.
+     *
+     * @return chunk indexes in ascending order
+     */
+    public int[] getMissingChunks() {
+        synchronized (completed) {
+            int[] missing = new int[chunkCount - completed.cardinality()];
+            int i = 0;
+            for (int index = completed.nextClearBit(0); index < chunkCount; index = completed.nextClearBit(index + 1)) {
+                missing[i++] = index;
+            }
+            return missing;
+        }
+    }
+
+    /**
+     * Rename the complete file into place. Call when all writes have returned.
+     *
+     * @param fsync force the data to the device before the rename, and the rename after it
+     * @return target file
+     * @throws IOException IOException
+     * @throws IllegalStateException if chunks are missing or the assembler is closed
+     */
+    public Path finish(boolean fsync) throws IOException {
+        if (!isComplete()) {
+            throw new IllegalStateException("Missing chunks of " + target + ": " + getMissingChunks().length);
+        }
+        if (finished || !channel.isOpen()) {
+            throw new IllegalStateException("Assembler of " + target + " is closed");
+        }
+        if (fsync) {
+            channel.force(true);
+        }
+        channel.close();
+        Files.move(part, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        finished = true;
+        if (fsync) {
+            FileUtil.forceDirectory(target.getParent());
+        }
+        return target;
+    }
+
+    /**
+     * Close assembler, the partial file is deleted unless {@link #finish(boolean)} succeeded.
+     *
+     * @throws IOException IOException
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        if (!finished) {
+            Files.deleteIfExists(part);
+        }
+    }
+
+    private void write(ByteBuffer data, long position) throws IOException {
+        // positional writes leave the channel position alone, so threads do not interfere
+        while (data.hasRemaining()) {
+            position += channel.write(data, position);
+        }
+    }
+
+    private void mark(int index, boolean done) {
+        // a chunk being rewritten is incomplete until the write succeeds
+        synchronized (completed) {
+            completed.set(index, done);
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= chunkCount) {
+            throw new IndexOutOfBoundsException("Chunk " + index + " of " + chunkCount);
+        }
+    }
+}
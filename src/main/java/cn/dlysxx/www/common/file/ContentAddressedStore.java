@@ -0,0 +1,188 @@
+package cn.dlysxx.www.common.file;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+
+/**
+ * Store of files keyed by the hex digest of their content.
+ *
+ * <p>
+ * The digest is computed while the file is copied into the store, so storing costs one pass over the data, and a
+ * content stored twice takes the disk space of one file. Files are kept under two levels of directories named after
+ * the first characters of the key (e.g. {@code root/e3/b0/e3b0c442...}), so no directory grows too large. Content
+ * always enters and leaves the store as a copy, never as a hard link, so writing to a file that was stored or handed
+ * out cannot change stored content.
+ * </p>
+ *
+ * @author shuai
+ **/
+public final class ContentAddressedStore {
+
+    /** Default digest algorithm */
+    public static final String DEFAULT_ALGORITHM = "SHA-256";
+
+    private final Path root;
+    private final Path tmp;
+    /** Options of copies into the store */
+    private final TransferOptions options;
+    /** Options of copies out of the store */
+    private final TransferOptions copyOptions;
+
+    private ContentAddressedStore(Path root, TransferOptions options, TransferOptions copyOptions) {
+        this.root = root;
+        this.tmp = root.resolve("tmp");
+        this.options = options;
+        this.copyOptions = copyOptions;
+    }
+
+    /**
+     * Open store with {@link #DEFAULT_ALGORITHM}, the directory is created if needed.
+     *
+     * @param root directory of the store
+     * @return {@link ContentAddressedStore}
+     * @throws IOException IOException
+     */
+    public static ContentAddressedStore open(Path root) throws IOException {
+        return open(root, DEFAULT_ALGORITHM, false);
+    }
+
+    /**
+     * Open store, the directory is created if needed.
+     *
+     * @param root      directory of the store
+     * @param algorithm {@link MessageDigest} algorithm, the same for every open of one store
+     * @param fsync     force stored files to the device before they become visible
+     * @return {@link ContentAddressedStore}
+     * @throws IOException IOException
+     */
+    public static ContentAddressedStore open(Path root, String algorithm, boolean fsync) throws IOException {
+        if (algorithm == null) {
+            throw new IllegalArgumentException("algorithm is required");
+        }
+        TransferOptions options = new TransferOptions();
+        options.setDigestAlgorithm(algorithm);
+        options.setFsync(fsync);
+        TransferOptions copyOptions = new TransferOptions();
+        copyOptions.setAtomicMove(true);
+        copyOptions.setFsync(fsync);
+        ContentAddressedStore store = new ContentAddressedStore(root.toAbsolutePath(), options, copyOptions);
+        Files.createDirectories(store.tmp);
+        return store;
+    }
+
+    /**
+     * Store content. {@code in} is not closed.
+     *
+     * @param in content
+     * @return key of the content
+     * @throws IOException IOException
+     */
+    public String put(InputStream in) throws IOException {
+        Path file = Files.createTempFile(tmp, "put", ".part");
+        try {
+            String key = FileUtil.transfer(in, file, options).getDigestHex();
+            Path path = path(key);
+            if (!Files.exists(path)) {
+                Files.createDirectories(path.getParent());
+                // the same content may be stored at the same time: whichever rename comes last wins, both are equal
+                Files.move(file, path, StandardCopyOption.ATOMIC_MOVE);
+                if (options.isFsync()) {
+                    FileUtil.forceDirectory(path.getParent());
+                }
+            }
+            return key;
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Store file. The file is copied into the store while its digest is computed, so it may be modified or deleted
+     * afterwards.
+     *
+     * @param file file
+     * @return key of the content
+     * @throws IOException IOException
+     */
+    public String put(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return put(in);
+        }
+    }
+
+    /**
+     * Check content.
+     *
+     * @param key key of the content
+     * @return {@code true} if the content is stored
+     */
+    public boolean contains(String key) {
+        return Files.exists(path(key));
+    }
+
+    /**
+     * Get file of content.
+     *
+     * @param key key of the content
+     * @return file, to be read only, or {@code null} if the content is not stored
+     */
+    public Path get(String key) {
+        Path path = path(key);
+        return Files.exists(path) ? path : null;
+    }
+
+    /**
+     * Open content.
+     *
+     * @param key key of the content
+     * @return stream of the content, to be closed by the caller
+     * @throws IOException IOException, also thrown if the content is not stored
+     */
+    public InputStream open(String key) throws IOException {
+        return Files.newInputStream(require(key));
+    }
+
+    /**
+     * Copy content to path, e.g. the location of a download. The content is copied by the file system without passing
+     * through the heap, into a temp file renamed into place, so readers of the target never see a partial file. The
+     * target may be modified without changing the stored content.
+     *
+     * @param key    key of the content
+     * @param target path, replaced if it exists
+     * @throws IOException IOException, also thrown if the content is not stored
+     */
+    public void copyTo(String key, Path target) throws IOException {
+        FileUtil.transfer(require(key), target, copyOptions);
+    }
+
+    /**
+     * Remove content from store. Copies made by {@link #copyTo(String, Path)} keep their data.
+     *
+     * @param key key of the content
+     * @return {@code true} if the content was stored
+     * @throws IOException IOException
+     */
+    public boolean delete(String key) throws IOException {
+        return Files.deleteIfExists(path(key));
+    }
+
+    private Path require(String key) throws IOException {
+        Path path = path(key);
+        if (!Files.exists(path)) {
+            throw new FileNotFoundException("No content " + key);
+        }
+        return path;
+    }
+
+    private Path path(String key) {
+        if (key.length() < 4 || !key.chars().allMatch(c -> c >= '0' && c <= '9' || c >= 'a' && c <= 'f')) {
+            throw new IllegalArgumentException("Invalid key: " + key);
+        }
+        return root.resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key);
+    }
+}
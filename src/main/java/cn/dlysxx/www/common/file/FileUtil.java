@@ -1,9 +1,25 @@
 package cn.dlysxx.www.common.file;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * FileUtil.
@@ -12,24 +28,212 @@ import java.io.OutputStream;
  **/
 public class FileUtil {
 
+    /** Copy buffers of the default size, at most one per processor is kept */
+    private static final BlockingQueue<byte[]> BUFFERS =
+        new ArrayBlockingQueue<>(Runtime.getRuntime().availableProcessors());
+
     /**
-     * File input stream convert to File.
+     * File input stream convert to File. {@code ins} is closed.
      *
      * @param ins file stream
      * @param file file
+     * @throws UncheckedIOException if the stream cannot be read or the file cannot be written
      */
     public static void inputStreamToFile(InputStream ins, File file) {
+        try (InputStream in = ins) {
+            transfer(in, file.toPath(), new TransferOptions());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write " + file, e);
+        }
+    }
+
+    /**
+     * Copy stream into file, replacing it. A {@link FileInputStream} of a regular file is copied by the file system
+     * ({@link FileChannel#transferFrom}) without passing through the heap, unless a digest is requested: the digest
+     * is then computed from the copy buffer, so the data is still read only once. Other sources, including pipes and
+     * files of /proc which report no size, are copied through the buffer up to their end. {@code in} is not closed.
+     *
+     * @param in      source
+     * @param target  target file
+     * @param options buffer size, fsync, atomic move and digest
+     * @return bytes copied, throughput and digest
+     * @throws IOException IOException, the target is left unchanged with {@link TransferOptions#isAtomicMove()}
+     */
+    public static TransferResult transfer(InputStream in, Path target, TransferOptions options) throws IOException {
+        long start = System.nanoTime();
+        MessageDigest digest = digest(options.getDigestAlgorithm());
+        Path file = options.isAtomicMove() ? createTempSibling(target) : target;
+        long bytes;
+        try {
+            try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+                bytes = in instanceof FileInputStream && digest == null && hasSize(((FileInputStream) in).getChannel())
+                    ? transfer(((FileInputStream) in).getChannel(), out)
+                    : transfer(in, out, options.getBufferSize(), digest);
+                if (options.isFsync()) {
+                    out.force(true);
+                }
+            }
+            if (file != target) {
+                Files.move(file, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                if (options.isFsync()) {
+                    // the rename is only durable once the directory is
+                    forceDirectory(target.toAbsolutePath().getParent());
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            if (file != target) {
+                Files.deleteIfExists(file);
+            }
+            throw e;
+        }
+        return new TransferResult(bytes, System.nanoTime() - start, digest == null ? null : digest.digest());
+    }
+
+    /**
+     * Copy file, replacing the target. The data is copied by the file system without passing through the heap,
+     * unless a digest is requested.
+     *
+     * @param source  source file
+     * @param target  target file
+     * @param options fsync, atomic move and digest
+     * @return bytes copied, throughput and digest
+     * @throws IOException IOException, the target is left unchanged with {@link TransferOptions#isAtomicMove()}
+     */
+    public static TransferResult transfer(Path source, Path target, TransferOptions options) throws IOException {
+        try (InputStream in = new FileInputStream(source.toFile())) {
+            return transfer(in, target, options);
+        }
+    }
+
+    /**
+     * Check whether the source reports data left by its size. Pipes and files of /proc report 0, and would be copied
+     * as empty by {@link #transfer(FileChannel, FileChannel)}. The size is checked first, a pipe cannot tell its
+     * position.
+     */
+    private static boolean hasSize(FileChannel in) throws IOException {
+        long size = in.size();
+        return size > 0 && size > in.position();
+    }
+
+    private static long transfer(FileChannel in, FileChannel out) throws IOException {
+        long position = in.position();
+        long size = in.size();
+        long bytes = 0;
+        // transferFrom reads from the current position of the source and advances it, like reading the stream would
+        while (position + bytes < size) {
+            long n = out.transferFrom(in, bytes, size - position - bytes);
+            if (n <= 0) {
+                break;
+            }
+            bytes += n;
+        }
+        return bytes;
+    }
+
+    private static long transfer(InputStream in, FileChannel out, int bufferSize, MessageDigest digest)
+        throws IOException {
+        byte[] buffer = buffer(in, bufferSize);
         try {
-            OutputStream os = new FileOutputStream(file);
-            int bytesRead;
-            byte[] buffer = new byte[8192];
-            while ((bytesRead = ins.read(buffer, 0, 8192)) != -1) {
-                os.write(buffer, 0, bytesRead);
-            }
-            os.close();
-            ins.close();
-        } catch (Exception e) {
-            e.printStackTrace();
+            long bytes = 0;
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                if (digest != null) {
+                    digest.update(buffer, 0, n);
+                }
+                ByteBuffer data = ByteBuffer.wrap(buffer, 0, n);
+                while (data.hasRemaining()) {
+                    out.write(data);
+                }
+                bytes += n;
+            }
+            return bytes;
+        } finally {
+            if (buffer.length == TransferOptions.DEFAULT_BUFFER_SIZE) {
+                BUFFERS.offer(buffer);
+            }
+        }
+    }
+
+    /**
+     * Get copy buffer. Sources which know their size get a buffer no larger than the data, others a buffer of
+     * {@code bufferSize}, taken from {@link #BUFFERS} when it has the default size. The size is only a hint, a source
+     * growing meanwhile is still copied to its end.
+     */
+    private static byte[] buffer(InputStream in, int bufferSize) throws IOException {
+        long remaining = -1;
+        if (in instanceof ByteArrayInputStream) {
+            remaining = in.available();
+        } else if (in instanceof FileInputStream && hasSize(((FileInputStream) in).getChannel())) {
+            FileChannel channel = ((FileInputStream) in).getChannel();
+            remaining = channel.size() - channel.position();
+        }
+        if (remaining >= 0 && remaining < bufferSize) {
+            // never empty, reading into an empty buffer would not tell the end of the source
+            return new byte[(int) Math.max(1, remaining)];
+        }
+        if (bufferSize == TransferOptions.DEFAULT_BUFFER_SIZE) {
+            byte[] buffer = BUFFERS.poll();
+            if (buffer != null) {
+                return buffer;
+            }
+        }
+        return new byte[bufferSize];
+    }
+
+    private static MessageDigest digest(String algorithm) {
+        if (algorithm == null) {
+            return null;
+        }
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("Unsupported digest algorithm: " + algorithm, e);
+        }
+    }
+
+    /**
+     * Force directory entries to the device, where the file system supports opening a directory (not on Windows).
+     */
+    static void forceDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // not supported, the rename is as durable as the file system makes it
+        }
+    }
+
+    /**
+     * Create empty file next to target, with the permissions of the target, or the default permissions of new files
+     * if there is no target yet. {@link Files#createTempFile} would make the file readable by its owner only, and the
+     * rename into place would keep that.
+     *
+     * @param target target file
+     * @return new file in the directory of the target
+     * @throws IOException IOException, e.g. if the directory does not exist
+     */
+    static Path createTempSibling(Path target) throws IOException {
+        Path absolute = target.toAbsolutePath();
+        while (true) {
+            Path part = absolute.resolveSibling("." + absolute.getFileName() + "."
+                + Long.toUnsignedString(ThreadLocalRandom.current().nextLong(), Character.MAX_RADIX) + ".part");
+            try {
+                Files.newByteChannel(part, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE).close();
+            } catch (FileAlreadyExistsException e) {
+                continue;
+            }
+            try {
+                if (Files.getFileAttributeView(absolute, PosixFileAttributeView.class) != null
+                    && Files.exists(absolute)) {
+                    Files.setPosixFilePermissions(part, Files.getPosixFilePermissions(absolute));
+                }
+            } catch (NoSuchFileException e) {
+                // target deleted meanwhile, the defaults apply
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(part);
+                throw e;
+            }
+            return part;
         }
     }
 }
@@ -0,0 +1,255 @@
+package cn.dlysxx.www.common.file;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ref.Cleaner;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Temp data of {@link TempStorage}, kept in memory while small and spilled into a file beyond that.
+ *
+ * <p>
+ * Write the data through {@link #getOutputStream()}, then read it any number of times through
+ * {@link #getInputStream()}. Not thread safe.
+ * </p>
+ *
+ * <pre>
+ * try (TempBuffer buffer = TempStorage.getDefault().newBuffer()) {
+ *     request.getInputStream().transferTo(buffer.getOutputStream());
+ *     try (InputStream in = buffer.getInputStream()) {
+ *         ...
+ *     }
+ * }
+ * </pre>
+ *
+ * @author shuai
+ **/
+public final class TempBuffer implements Closeable {
+
+    private final TempStorage storage;
+    private final State state;
+    private final Cleaner.Cleanable cleanable;
+    private final OutputStream out = new Writer();
+    private long size;
+    private boolean writing = true;
+
+    TempBuffer(TempStorage storage) {
+        this.storage = storage;
+        this.state = new State(storage);
+        this.cleanable = TempStorage.CLEANER.register(this, state);
+    }
+
+    /**
+     * Get stream to write data. Closing the stream ends writing.
+     *
+     * @return stream
+     */
+    public OutputStream getOutputStream() {
+        return out;
+    }
+
+    /**
+     * Open data, writing ends.
+     *
+     * @return stream of the data, to be closed by the caller
+     * @throws IOException IOException
+     */
+    public InputStream getInputStream() throws IOException {
+        out.close();
+        if (state.file != null) {
+            return Files.newInputStream(state.file);
+        }
+        return new BlockInputStream();
+    }
+
+    /**
+     * Get size of the data.
+     *
+     * @return bytes written
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Check whether data is in memory.
+     *
+     * @return {@code false} if the data has been spilled into a file
+     */
+    public boolean isInMemory() {
+        return state.file == null;
+    }
+
+    /**
+     * Release memory and delete file. Streams of the data in memory fail afterwards.
+     */
+    @Override
+    public void close() {
+        state.closed = true;
+        cleanable.clean();
+    }
+
+    private void spill() throws IOException {
+        Path file = storage.createFile("buffer", ".tmp");
+        OutputStream fileOut = null;
+        try {
+            fileOut = new BufferedOutputStream(Files.newOutputStream(file), TempStorage.BLOCK_SIZE);
+            long remaining = size;
+            for (byte[] block : state.blocks) {
+                int n = (int) Math.min(block.length, remaining);
+                fileOut.write(block, 0, n);
+                remaining -= n;
+            }
+        } catch (IOException | RuntimeException e) {
+            if (fileOut != null) {
+                fileOut.close();
+            }
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        state.file = file;
+        state.fileOut = fileOut;
+        state.blocks.forEach(storage::release);
+        state.blocks.clear();
+    }
+
+    private final class Writer extends OutputStream {
+
+        private final byte[] one = new byte[1];
+
+        @Override
+        public void write(int b) throws IOException {
+            one[0] = (byte) b;
+            write(one, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (!writing || state.closed) {
+                throw new IOException("Temp buffer is not writable");
+            }
+            while (len > 0) {
+                if (state.fileOut != null) {
+                    state.fileOut.write(b, off, len);
+                    size += len;
+                    return;
+                }
+                int offset = (int) (size % TempStorage.BLOCK_SIZE);
+                if (offset == 0 && size == (long) state.blocks.size() * TempStorage.BLOCK_SIZE) {
+                    byte[] block = size + len > storage.getMemoryThreshold() ? null : storage.allocate();
+                    if (block == null) {
+                        spill();
+                        continue;
+                    }
+                    state.blocks.add(block);
+                }
+                int n = Math.min(len, TempStorage.BLOCK_SIZE - offset);
+                System.arraycopy(b, off, state.blocks.get(state.blocks.size() - 1), offset, n);
+                size += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (state.fileOut != null) {
+                state.fileOut.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (writing) {
+                writing = false;
+                if (state.fileOut != null) {
+                    state.fileOut.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Resources of a buffer, released by {@link #close()} or once the buffer is garbage collected. Must not refer to
+     * the buffer.
+     */
+    private static final class State implements Runnable {
+
+        private final TempStorage storage;
+        private final List<byte[]> blocks = new ArrayList<>();
+        private Path file;
+        private OutputStream fileOut;
+        private volatile boolean closed;
+
+        private State(TempStorage storage) {
+            this.storage = storage;
+        }
+
+        @Override
+        public void run() {
+            closed = true;
+            blocks.forEach(storage::release);
+            blocks.clear();
+            try {
+                if (fileOut != null) {
+                    fileOut.close();
+                }
+                if (file != null) {
+                    Files.deleteIfExists(file);
+                }
+            } catch (IOException e) {
+                // left for the shutdown sweep of the storage
+            }
+        }
+    }
+
+    /**
+     * Stream of the data in memory, keeps the buffer reachable while it is read.
+     */
+    private final class BlockInputStream extends InputStream {
+
+        private final byte[] one = new byte[1];
+        private long position;
+
+        @Override
+        public int read() throws IOException {
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (state.closed) {
+                throw new IOException("Temp buffer is closed");
+            }
+            if (len == 0) {
+                return 0;
+            }
+            if (position >= size) {
+                return -1;
+            }
+            int offset = (int) (position % TempStorage.BLOCK_SIZE);
+            int n = (int) Math.min(Math.min(len, TempStorage.BLOCK_SIZE - offset), size - position);
+            System.arraycopy(state.blocks.get((int) (position / TempStorage.BLOCK_SIZE)), offset, b, off, n);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            long skipped = Math.max(0, Math.min(n, size - position));
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, size - position);
+        }
+    }
+}
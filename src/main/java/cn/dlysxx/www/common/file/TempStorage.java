@@ -0,0 +1,306 @@
+package cn.dlysxx.www.common.file;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Managed temp storage.
+ *
+ * <p>
+ * {@link TempBuffer}s keep their data in pooled memory blocks and spill into a file only when they grow beyond
+ * {@link #getMemoryThreshold()}, or when all buffers together hold {@link #getMaxMemory()}. Files are created in a
+ * subdirectory of the storage directory owned by the running process, which holds a lock on the file
+ * {@value #LOCK_FILE} in it until it exits: the subdirectory is deleted on shutdown, and subdirectories whose lock is
+ * free, left behind by processes which are gone (e.g. killed), are deleted when a storage is created on the
+ * directory. Unlike process ids, the locks tell the owner apart when processes of several containers share the
+ * directory or an id has been reused. Subdirectories without a lock file are never deleted. Buffers which are not
+ * closed are released once they are garbage collected.
+ * </p>
+ *
+ * @author shuai
+ **/
+public final class TempStorage {
+
+    /** Default largest size of a buffer kept in memory (1 MiB) */
+    public static final int DEFAULT_MEMORY_THRESHOLD = 1024 * 1024;
+
+    /** Default largest memory of all buffers together (64 MiB) */
+    public static final long DEFAULT_MAX_MEMORY = 64L * 1024 * 1024;
+
+    static final int BLOCK_SIZE = 64 * 1024;
+
+    /** Free blocks kept for reuse at most (16 MiB) */
+    private static final int MAX_POOLED_BLOCKS = 256;
+
+    /** Lock file of a process directory, held by its process and containing the process id */
+    static final String LOCK_FILE = ".lock";
+
+    static final Cleaner CLEANER = Cleaner.create();
+
+    /** Process directories of this process by storage directory, guarded by the class */
+    private static final Map<Path, ProcessDirectory> PROCESS_DIRECTORIES = new HashMap<>();
+
+    private static volatile TempStorage defaultStorage;
+
+    private final Path directory;
+    private final int memoryThreshold;
+    private final long maxMemory;
+    private final AtomicLong memory = new AtomicLong();
+    private final Queue<byte[]> pool = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    private TempStorage(Path directory, int memoryThreshold, long maxMemory) {
+        this.directory = directory;
+        this.memoryThreshold = memoryThreshold;
+        this.maxMemory = maxMemory;
+    }
+
+    /**
+     * Create storage. Keep one storage per directory for the lifetime of the application, storages created on the
+     * same directory share the directory of the process.
+     *
+     * @param directory       storage directory, created if needed
+     * @param memoryThreshold largest size of a buffer kept in memory, 0 to always use files
+     * @param maxMemory       largest memory of all buffers together
+     * @return {@link TempStorage}
+     * @throws IOException IOException
+     */
+    public static TempStorage create(Path directory, int memoryThreshold, long maxMemory) throws IOException {
+        if (memoryThreshold < 0 || maxMemory < 0) {
+            throw new IllegalArgumentException("Invalid memory threshold " + memoryThreshold + " or max memory "
+                + maxMemory);
+        }
+        return new TempStorage(processDirectory(directory.toAbsolutePath().normalize()), memoryThreshold, maxMemory);
+    }
+
+    /**
+     * Get directory of this process in storage directory, created once with one shutdown hook deleting it.
+     */
+    private static synchronized Path processDirectory(Path directory) throws IOException {
+        ProcessDirectory processDirectory = PROCESS_DIRECTORIES.get(directory);
+        if (processDirectory == null) {
+            sweep(directory);
+            Files.createDirectories(directory);
+            processDirectory = ProcessDirectory.create(directory);
+            PROCESS_DIRECTORIES.put(directory, processDirectory);
+            Runtime.getRuntime().addShutdownHook(new Thread(processDirectory::delete, "temp-storage-sweeper"));
+        }
+        return processDirectory.path;
+    }
+
+    /**
+     * Get default storage in "dlysxx-common" of the system temp directory, with {@link #DEFAULT_MEMORY_THRESHOLD}
+     * and {@link #DEFAULT_MAX_MEMORY}.
+     *
+     * @return {@link TempStorage}
+     * @throws UncheckedIOException if the directory cannot be created
+     */
+    public static TempStorage getDefault() {
+        TempStorage storage = defaultStorage;
+        if (storage == null) {
+            synchronized (TempStorage.class) {
+                storage = defaultStorage;
+                if (storage == null) {
+                    try {
+                        storage = create(Paths.get(System.getProperty("java.io.tmpdir"), "dlysxx-common"),
+                            DEFAULT_MEMORY_THRESHOLD, DEFAULT_MAX_MEMORY);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Failed to create temp storage", e);
+                    }
+                    defaultStorage = storage;
+                }
+            }
+        }
+        return storage;
+    }
+
+    /**
+     * Get directory of the files of this process.
+     *
+     * @return directory
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public int getMemoryThreshold() {
+        return memoryThreshold;
+    }
+
+    public long getMaxMemory() {
+        return maxMemory;
+    }
+
+    /**
+     * Get memory held by buffers.
+     *
+     * @return bytes
+     */
+    public long getMemoryUsed() {
+        return memory.get();
+    }
+
+    /**
+     * Create buffer.
+     *
+     * @return {@link TempBuffer}, to be closed by the caller
+     */
+    public TempBuffer newBuffer() {
+        return new TempBuffer(this);
+    }
+
+    /**
+     * Create empty file, deleted on shutdown unless the caller deletes or moves it before.
+     *
+     * @param prefix prefix of the file name
+     * @param suffix suffix of the file name, {@code null} for ".tmp"
+     * @return file
+     * @throws IOException IOException
+     */
+    public Path createFile(String prefix, String suffix) throws IOException {
+        return Files.createTempFile(directory, prefix, suffix);
+    }
+
+    /**
+     * Take memory block, {@code null} if the buffers hold {@link #getMaxMemory()} already.
+     */
+    byte[] allocate() {
+        if (memory.addAndGet(BLOCK_SIZE) > maxMemory) {
+            memory.addAndGet(-BLOCK_SIZE);
+            return null;
+        }
+        byte[] block = pool.poll();
+        if (block == null) {
+            return new byte[BLOCK_SIZE];
+        }
+        pooled.decrementAndGet();
+        return block;
+    }
+
+    void release(byte[] block) {
+        memory.addAndGet(-BLOCK_SIZE);
+        if (pooled.incrementAndGet() <= MAX_POOLED_BLOCKS) {
+            pool.offer(block);
+        } else {
+            pooled.decrementAndGet();
+        }
+    }
+
+    /**
+     * Delete directories of processes which are gone, i.e. whose lock file can be locked.
+     */
+    private static void sweep(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (DirectoryStream<Path> children = Files.newDirectoryStream(directory)) {
+            for (Path child : children) {
+                Path lockFile = child.resolve(LOCK_FILE);
+                if (!Files.isRegularFile(lockFile)) {
+                    // not a process directory, or one being created
+                    continue;
+                }
+                try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.WRITE)) {
+                    FileLock lock = channel.tryLock();
+                    // an empty lock file is being locked by its process right now
+                    if (lock != null && channel.size() > 0) {
+                        delete(child);
+                    }
+                } catch (OverlappingFileLockException e) {
+                    // locked by this process
+                } catch (IOException e) {
+                    // deleted meanwhile, or not ours to lock, left for the next sweep
+                }
+            }
+        }
+    }
+
+    private static void delete(Path directory) {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> {
+                try {
+                    Files.deleteIfExists(p);
+                } catch (IOException e) {
+                    // in use, left for the next sweep
+                }
+            });
+        } catch (IOException | UncheckedIOException e) {
+            // already gone, or left for the next sweep
+        }
+    }
+
+    /**
+     * Directory of this process in a storage directory, with the lock of its lock file held until shutdown.
+     */
+    private static final class ProcessDirectory {
+
+        private static final int MAX_ATTEMPTS = 3;
+
+        private final Path path;
+        private final FileChannel lockChannel;
+
+        private ProcessDirectory(Path path, FileChannel lockChannel) {
+            this.path = path;
+            this.lockChannel = lockChannel;
+        }
+
+        private static ProcessDirectory create(Path directory) throws IOException {
+            long pid = ProcessHandle.current().pid();
+            for (int attempt = 1; ; attempt++) {
+                Path path = Files.createTempDirectory(directory, pid + "-");
+                FileChannel channel = null;
+                boolean locked = false;
+                try {
+                    channel = FileChannel.open(path.resolve(LOCK_FILE), StandardOpenOption.CREATE_NEW,
+                        StandardOpenOption.WRITE);
+                    if (channel.tryLock() != null) {
+                        // only a lock file with content is swept, so the directory is ours from here
+                        channel.write(ByteBuffer.wrap(Long.toString(pid).getBytes(StandardCharsets.US_ASCII)));
+                        locked = true;
+                        return new ProcessDirectory(path, channel);
+                    }
+                } finally {
+                    if (!locked) {
+                        if (channel != null) {
+                            channel.close();
+                        }
+                        TempStorage.delete(path);
+                    }
+                }
+                // a sweep of another process held the new lock file at that moment
+                if (attempt == MAX_ATTEMPTS) {
+                    throw new IOException("Failed to lock a temp directory in " + directory);
+                }
+            }
+        }
+
+        private void delete() {
+            try {
+                // release the lock first, a locked file cannot be deleted everywhere
+                lockChannel.close();
+            } catch (IOException e) {
+                // deleted below anyway
+            }
+            TempStorage.delete(path);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package cn.dlysxx.www.common.file;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Options of {@link FileUtil#transfer}.
+ *
+ * @author shuai
+ **/
+public class TransferOptions {
+
+    /** Default buffer size (1 MiB) */
+    public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+    /** Size of the copy buffer of stream sources */
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+
+    /** Force the data, and with {@link #atomicMove} the rename, to the device before returning */
+    private boolean fsync;
+
+    /** Write into a temp file next to the target and rename it into place, so readers never see a partial file */
+    private boolean atomicMove;
+
+    /** {@link MessageDigest} algorithm (e.g. "SHA-256") computed while copying, {@code null} for none */
+    private String digestAlgorithm;
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public void setBufferSize(int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("bufferSize must be positive: " + bufferSize);
+        }
+        this.bufferSize = bufferSize;
+    }
+
+    public boolean isFsync() {
+        return fsync;
+    }
+
+    public void setFsync(boolean fsync) {
+        this.fsync = fsync;
+    }
+
+    public boolean isAtomicMove() {
+        return atomicMove;
+    }
+
+    public void setAtomicMove(boolean atomicMove) {
+        this.atomicMove = atomicMove;
+    }
+
+    public String getDigestAlgorithm() {
+        return digestAlgorithm;
+    }
+
+    public void setDigestAlgorithm(String digestAlgorithm) {
+        if (digestAlgorithm != null) {
+            try {
+                MessageDigest.getInstance(digestAlgorithm);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalArgumentException("Unsupported digest algorithm: " + digestAlgorithm, e);
+            }
+        }
+        this.digestAlgorithm = digestAlgorithm;
+    }
+}
@@ -0,0 +1,74 @@
+package cn.dlysxx.www.common.file;
+
+import java.time.Duration;
+
+/**
+ * Result of {@link FileUtil#transfer}.
+ *
+ * @author shuai
+ **/
+public final class TransferResult {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final long bytes;
+    private final long nanos;
+    private final byte[] digest;
+
+    TransferResult(long bytes, long nanos, byte[] digest) {
+        this.bytes = bytes;
+        this.nanos = nanos;
+        this.digest = digest;
+    }
+
+    /**
+     * @return number of bytes copied
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return time of the copy, fsync and rename included
+     */
+    public Duration getDuration() {
+        return Duration.ofNanos(nanos);
+    }
+
+    /**
+     * @return throughput in bytes per second
+     */
+    public double getBytesPerSecond() {
+        return nanos == 0 ? 0.0 : bytes * 1e9 / nanos;
+    }
+
+    /**
+     * @return digest of the copied bytes, or {@code null} without {@link TransferOptions#getDigestAlgorithm()}
+     */
+    public byte[] getDigest() {
+        return digest == null ? null : digest.clone();
+    }
+
+    /**
+     * @return digest as lower case hex (e.g. "e3b0c442..."), or {@code null} without
+     *         {@link TransferOptions#getDigestAlgorithm()}
+     */
+    public String getDigestHex() {
+        return digest == null ? null : hex(digest);
+    }
+
+    static String hex(byte[] digest) {
+        char[] hex = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            hex[i * 2] = HEX[(digest[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX[digest[i] & 0xF];
+        }
+        return new String(hex);
+    }
+
+    @Override
+    public String toString() {
+        return "TransferResult{bytes=" + bytes + ", duration=" + getDuration() + ", bytesPerSecond="
+            + (long) getBytesPerSecond() + (digest == null ? "" : ", digest=" + getDigestHex()) + '}';
+    }
+}
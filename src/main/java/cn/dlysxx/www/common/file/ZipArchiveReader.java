@@ -0,0 +1,175 @@
+package cn.dlysxx.www.common.file;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.utils.IOUtils;
+
+/**
+ * Random access reader of one zip file.
+ *
+ * <p>
+ * The central directory is read once when the reader is opened and kept as an index of entry names, so reading one
+ * entry of a large archive reads only that entry. Ranges of stored entries are read at their offset in the file
+ * without decompressing anything. Keep one open reader per archive and close it when done: reads from several
+ * threads at once are supported.
+ * </p>
+ *
+ * @author shuai
+ **/
+public final class ZipArchiveReader implements Closeable {
+
+    private final FileChannel channel;
+    private final ZipFile zipFile;
+    private final Map<String, ZipArchiveEntry> index;
+    private final List<String> names;
+
+    private ZipArchiveReader(FileChannel channel) throws IOException {
+        this.channel = channel;
+        this.zipFile = new ZipFile(channel);
+        Map<String, ZipArchiveEntry> entries = new HashMap<>();
+        List<String> entryNames = new ArrayList<>();
+        Enumeration<ZipArchiveEntry> e = zipFile.getEntries();
+        while (e.hasMoreElements()) {
+            ZipArchiveEntry entry = e.nextElement();
+            if (!entry.isDirectory() && entries.putIfAbsent(entry.getName(), entry) == null) {
+                entryNames.add(entry.getName());
+            }
+        }
+        this.index = entries;
+        this.names = Collections.unmodifiableList(entryNames);
+    }
+
+    /**
+     * Open zip file.
+     *
+     * @param file zip file
+     * @return {@link ZipArchiveReader}
+     * @throws IOException IOException, e.g. if the file is not a zip file
+     */
+    public static ZipArchiveReader open(File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            return new ZipArchiveReader(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Get names of the entries in the order of the central directory, directories excluded.
+     *
+     * @return entry names
+     */
+    public List<String> getNames() {
+        return names;
+    }
+
+    /**
+     * Get entry.
+     *
+     * @param name entry name (e.g. "reports/2016-04.csv")
+     * @return {@link ZipArchiveEntry}, or {@code null} if there is no such entry
+     */
+    public ZipArchiveEntry getEntry(String name) {
+        return index.get(name);
+    }
+
+    /**
+     * Open decompressed data of entry.
+     *
+     * @param name entry name
+     * @return stream of the entry, to be closed by the caller
+     * @throws IOException IOException, also thrown if there is no such entry
+     */
+    public InputStream read(String name) throws IOException {
+        return zipFile.getInputStream(require(name));
+    }
+
+    /**
+     * Copy decompressed data of entry into stream. {@code out} is not closed.
+     *
+     * @param name entry name
+     * @param out  destination
+     * @return number of bytes copied
+     * @throws IOException IOException, also thrown if there is no such entry
+     */
+    public long copyTo(String name, OutputStream out) throws IOException {
+        try (InputStream in = read(name)) {
+            return IOUtils.copy(in, out);
+        }
+    }
+
+    /**
+     * Read range of the decompressed data of entry.
+     *
+     * @param name   entry name
+     * @param offset offset in the decompressed data
+     * @param length number of bytes, fewer are returned at the end of the entry
+     * @return data
+     * @throws IOException IOException, also thrown if there is no such entry
+     */
+    public byte[] readRange(String name, long offset, int length) throws IOException {
+        ZipArchiveEntry entry = require(name);
+        if (offset < 0 || length < 0) {
+            throw new IllegalArgumentException("Invalid range: " + offset + ", " + length);
+        }
+        long size = entry.getSize();
+        if (entry.getMethod() == ZipEntry.STORED && size >= 0 && entry.getDataOffset() >= 0) {
+            int n = (int) Math.max(0L, Math.min(length, size - offset));
+            ByteBuffer buffer = ByteBuffer.allocate(n);
+            long position = entry.getDataOffset() + offset;
+            while (buffer.hasRemaining()) {
+                // positional reads leave the channel position alone, so threads do not interfere
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new EOFException("Truncated zip entry " + name);
+                }
+            }
+            return buffer.array();
+        }
+        try (InputStream in = read(name)) {
+            long skipped = IOUtils.skip(in, offset);
+            if (skipped < offset) {
+                return new byte[0];
+            }
+            if (size < 0) {
+                // no size to bound the range by, the buffer grows with the data actually read
+                return IOUtils.readRange(in, length);
+            }
+            byte[] data = new byte[(int) Math.max(0L, Math.min(length, size - offset))];
+            int n = IOUtils.readFully(in, data);
+            return n == data.length ? data : Arrays.copyOf(data, n);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        zipFile.close();
+    }
+
+    private ZipArchiveEntry require(String name) throws IOException {
+        ZipArchiveEntry entry = index.get(name);
+        if (entry == null) {
+            throw new FileNotFoundException("No zip entry " + name);
+        }
+        return entry;
+    }
+}
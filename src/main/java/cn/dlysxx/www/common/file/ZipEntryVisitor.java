@@ -0,0 +1,23 @@
+package cn.dlysxx.www.common.file;
+
+import java.io.IOException;
+import java.io.InputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+
+/**
+ * Receiver of the entries of {@link ZipUtil#decompressFromZip(InputStream, ZipLimits, ZipEntryVisitor)}.
+ *
+ * @author shuai
+ **/
+@FunctionalInterface
+public interface ZipEntryVisitor {
+
+    /**
+     * Visit entry. The stream is only valid during the call, need not be read to the end and need not be closed.
+     *
+     * @param entry entry, never a directory
+     * @param in    decompressed data of the entry
+     * @throws IOException IOException
+     */
+    void visit(ZipArchiveEntry entry, InputStream in) throws IOException;
+}
@@ -0,0 +1,78 @@
+package cn.dlysxx.www.common.file;
+
+/**
+ * Limits of {@link ZipUtil} decompression, protecting against zip bombs. Exceeding a limit throws
+ * {@link java.util.zip.ZipException}.
+ *
+ * @author shuai
+ **/
+public class ZipLimits {
+
+    /** Default largest total size of the decompressed entries (1 GiB) */
+    public static final long DEFAULT_MAX_TOTAL_BYTES = 1L << 30;
+
+    /** Default largest number of entries */
+    public static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+    /** Default largest ratio of decompressed to compressed size of an entry */
+    public static final int DEFAULT_MAX_COMPRESSION_RATIO = 100;
+
+    /** Largest total size of the decompressed entries */
+    private long maxTotalBytes = DEFAULT_MAX_TOTAL_BYTES;
+
+    /** Largest number of entries, directories included */
+    private int maxEntries = DEFAULT_MAX_ENTRIES;
+
+    /**
+     * Largest ratio of decompressed to compressed size of an entry, checked once the entry exceeds 64 KiB. The ratio
+     * is that of the data decompressed so far, so an entry starting with a long run of repeated bytes can exceed it
+     * even if the whole entry does not.
+     */
+    private int maxCompressionRatio = DEFAULT_MAX_COMPRESSION_RATIO;
+
+    /**
+     * Create limits that are never exceeded, e.g. for archives created by the application itself.
+     *
+     * @return {@link ZipLimits}
+     */
+    public static ZipLimits unlimited() {
+        ZipLimits limits = new ZipLimits();
+        limits.setMaxTotalBytes(Long.MAX_VALUE);
+        limits.setMaxEntries(Integer.MAX_VALUE);
+        limits.setMaxCompressionRatio(Integer.MAX_VALUE);
+        return limits;
+    }
+
+    public long getMaxTotalBytes() {
+        return maxTotalBytes;
+    }
+
+    public void setMaxTotalBytes(long maxTotalBytes) {
+        if (maxTotalBytes < 0) {
+            throw new IllegalArgumentException("maxTotalBytes must not be negative: " + maxTotalBytes);
+        }
+        this.maxTotalBytes = maxTotalBytes;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public void setMaxEntries(int maxEntries) {
+        if (maxEntries < 0) {
+            throw new IllegalArgumentException("maxEntries must not be negative: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+    }
+
+    public int getMaxCompressionRatio() {
+        return maxCompressionRatio;
+    }
+
+    public void setMaxCompressionRatio(int maxCompressionRatio) {
+        if (maxCompressionRatio < 0) {
+            throw new IllegalArgumentException("maxCompressionRatio must not be negative: " + maxCompressionRatio);
+        }
+        this.maxCompressionRatio = maxCompressionRatio;
+    }
+}
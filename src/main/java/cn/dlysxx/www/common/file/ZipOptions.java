@@ -0,0 +1,121 @@
+package cn.dlysxx.www.common.file;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+import java.util.zip.Deflater;
+
+/**
+ * Options of {@link ZipUtil} compression.
+ *
+ * @author shuai
+ **/
+public class ZipOptions {
+
+    /** Default buffer size */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Default largest total size of a batch of files compressed in parallel (256 MiB). The scatter data of up to this
+     * much input is held by the temp storage until the batch is written into the archive, in memory up to
+     * {@link TempStorage#getMaxMemory()} and in files beyond that.
+     */
+    public static final long DEFAULT_MAX_SCATTER_BYTES = 256L * 1024 * 1024;
+
+    /** Compression level, {@link Deflater#DEFAULT_COMPRESSION} or 0 (none) to 9 (best) */
+    private int level = Deflater.DEFAULT_COMPRESSION;
+
+    /** Size of the read and write buffers */
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+
+    /** Files stored without compression, e.g. already compressed images and archives */
+    private Predicate<? super File> stored = f -> false;
+
+    /** Compression threads of {@link ZipUtil#compressToZipInParallel} */
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /** Storage of the scatter data of parallel compression, {@code null} for {@link TempStorage#getDefault()} */
+    private TempStorage tempStorage;
+
+    /** Largest total size of a batch of files compressed in parallel, larger files are compressed sequentially */
+    private long maxScatterBytes = DEFAULT_MAX_SCATTER_BYTES;
+
+    /**
+     * Create predicate storing files by extension.
+     *
+     * @param extensions extensions without dot, case insensitive (e.g. "jpg", "png", "zip")
+     * @return predicate for {@link #setStored(Predicate)}
+     */
+    public static Predicate<File> extensions(String... extensions) {
+        Set<String> lower = new TreeSet<>();
+        Arrays.stream(extensions).map(e -> e.toLowerCase(Locale.ROOT)).forEach(lower::add);
+        return f -> {
+            String name = f.getName();
+            int dot = name.lastIndexOf('.');
+            return dot >= 0 && lower.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+        };
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public void setLevel(int level) {
+        if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+        }
+        this.level = level;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public void setBufferSize(int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("bufferSize must be positive: " + bufferSize);
+        }
+        this.bufferSize = bufferSize;
+    }
+
+    public Predicate<? super File> getStored() {
+        return stored;
+    }
+
+    public void setStored(Predicate<? super File> stored) {
+        this.stored = stored;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    public TempStorage getTempStorage() {
+        return tempStorage;
+    }
+
+    public void setTempStorage(TempStorage tempStorage) {
+        this.tempStorage = tempStorage;
+    }
+
+    public long getMaxScatterBytes() {
+        return maxScatterBytes;
+    }
+
+    public void setMaxScatterBytes(long maxScatterBytes) {
+        if (maxScatterBytes < 0) {
+            throw new IllegalArgumentException("maxScatterBytes must not be negative: " + maxScatterBytes);
+        }
+        this.maxScatterBytes = maxScatterBytes;
+    }
+}
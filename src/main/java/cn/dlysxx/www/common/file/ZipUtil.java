@@ -1,16 +1,41 @@
 package cn.dlysxx.www.common.file;
 
+import cn.dlysxx.www.common.crypto.AESCryptoUtil;
 import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.InvalidAlgorithmParameterException;
+import java.security.InvalidKeyException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import org.apache.commons.compress.archivers.zip.ParallelScatterZipCreator;
 import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
 import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
 import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.parallel.ScatterGatherBackingStore;
 import org.apache.commons.compress.utils.IOUtils;
+import org.apache.commons.io.output.CloseShieldOutputStream;
 
 /**
  * Utility Class for compressing/decompressing.
@@ -20,7 +45,8 @@ import org.apache.commons.compress.utils.IOUtils;
 public class ZipUtil {
 
     /**
-     * Compress files into one single zip file.
+     * Compress files into one single zip file in {@link TempStorage#getDefault()}. The file is deleted on shutdown,
+     * delete or move it when done.
      *
      * @param fileName zip filename
      * @param files    files to be compressed
@@ -28,35 +54,411 @@ public class ZipUtil {
      * @throws IOException IOException
      */
     public static File compressToZip(String fileName, List<File> files) throws IOException {
-        File zipFile = File.createTempFile(fileName, "zip");
-        ZipArchiveOutputStream os = new ZipArchiveOutputStream(zipFile);
-        for (File f : files) {
-            ZipArchiveEntry entry = new ZipArchiveEntry(f, f.getName());
-            os.putArchiveEntry(entry);
-            IOUtils.copy(new FileInputStream(f), os);
+        File zipFile = TempStorage.getDefault().createFile(fileName, "zip").toFile();
+        try (ZipArchiveOutputStream os = new ZipArchiveOutputStream(zipFile)) {
+            writeEntries(os, files, new ZipOptions());
         }
-        os.closeArchiveEntry();
-        os.finish();
         return zipFile;
     }
 
     /**
-     * Decompress zip file.
+     * Compress files into zip stream. {@code out} is not closed.
+     *
+     * @param files files to be compressed
+     * @param out   zip destination
+     * @throws IOException IOException
+     */
+    public static void compressToZip(List<File> files, OutputStream out) throws IOException {
+        compressToZip(files, out, new ZipOptions());
+    }
+
+    /**
+     * Compress files into zip stream, e.g. straight into a download response without any temp file. {@code out} is
+     * not closed.
+     *
+     * @param files   files to be compressed
+     * @param out     zip destination
+     * @param options compression level, buffer size and stored entries
+     * @throws IOException IOException
+     */
+    public static void compressToZip(List<File> files, OutputStream out, ZipOptions options) throws IOException {
+        // closing the archive releases its deflater, the shield keeps out open
+        try (ZipArchiveOutputStream os = new ZipArchiveOutputStream(
+            new BufferedOutputStream(CloseShieldOutputStream.wrap(out), options.getBufferSize()))) {
+            writeEntries(os, files, options);
+        }
+    }
+
+    /**
+     * Compress files into zip stream on {@link ZipOptions#getParallelism()} threads. Each thread deflates its entries
+     * into a {@link TempBuffer} of {@link ZipOptions#getTempStorage()}, which stays in memory for small inputs, the
+     * buffers are then copied into the archive, so entries are not in the order of {@code files}. The files are
+     * compressed in batches of at most {@link ZipOptions#getMaxScatterBytes()} in total
+     * ({@link ZipOptions#DEFAULT_MAX_SCATTER_BYTES} by default), so the buffers never hold more than one batch; a
+     * file larger than that is deflated on the calling thread straight into the archive. {@code out} is not closed.
+     *
+     * @param files   files to be compressed
+     * @param out     zip destination
+     * @param options compression level, buffer size, stored entries, threads and scatter files
+     * @throws IOException IOException
+     */
+    public static void compressToZipInParallel(List<File> files, OutputStream out, ZipOptions options)
+        throws IOException {
+        if (options.getParallelism() == 1) {
+            compressToZip(files, out, options);
+            return;
+        }
+        TempStorage storage = options.getTempStorage() != null ? options.getTempStorage() : TempStorage.getDefault();
+        try (ZipArchiveOutputStream os = new ZipArchiveOutputStream(
+            new BufferedOutputStream(CloseShieldOutputStream.wrap(out), options.getBufferSize()))) {
+            os.setLevel(options.getLevel());
+            List<File> batch = new ArrayList<>();
+            long batchBytes = 0;
+            byte[] buffer = null;
+            for (File f : files) {
+                long length = f.length();
+                if (length > options.getMaxScatterBytes()) {
+                    if (buffer == null) {
+                        buffer = new byte[options.getBufferSize()];
+                    }
+                    writeEntry(os, f, options, buffer);
+                    continue;
+                }
+                if (batchBytes + length > options.getMaxScatterBytes()) {
+                    writeBatch(os, batch, options, storage);
+                    batch.clear();
+                    batchBytes = 0;
+                }
+                batch.add(f);
+                batchBytes += length;
+            }
+            writeBatch(os, batch, options, storage);
+        }
+    }
+
+    /**
+     * Deflate files on {@link ZipOptions#getParallelism()} threads and copy the scatter buffers into the archive.
+     */
+    private static void writeBatch(ZipArchiveOutputStream os, List<File> batch, ZipOptions options,
+        TempStorage storage) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        // writeTo shuts the executor down, so every batch has its own
+        int threads = Math.min(options.getParallelism(), batch.size());
+        // bounded queue, the caller compresses when the threads are behind
+        ExecutorService executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(threads * 2), new ThreadPoolExecutor.CallerRunsPolicy());
+        Queue<TempBackingStore> stores = new ConcurrentLinkedQueue<>();
+        ParallelScatterZipCreator creator = new ParallelScatterZipCreator(executor, () -> {
+            TempBackingStore store = new TempBackingStore(storage.newBuffer());
+            stores.add(store);
+            return store;
+        }, options.getLevel());
+        try {
+            for (File f : batch) {
+                ZipArchiveEntry entry = new ZipArchiveEntry(f, f.getName());
+                entry.setMethod(options.getStored().test(f) ? ZipEntry.STORED : ZipEntry.DEFLATED);
+                creator.addArchiveEntry(entry, () -> {
+                    try {
+                        return new BufferedInputStream(new FileInputStream(f), options.getBufferSize());
+                    } catch (FileNotFoundException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+            creator.writeTo(os);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while compressing");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof UncheckedIOException ? e.getCause().getCause() : e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        } finally {
+            executor.shutdownNow();
+            // writeTo releases the buffers, which are left behind when an entry fails before it is reached
+            awaitTermination(executor);
+            stores.forEach(TempBackingStore::close);
+        }
+    }
+
+    private static void awaitTermination(ExecutorService executor) {
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                // the threads finish the file they are reading
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Compress files into AES encrypted zip stream in one pass, without any temp file. The result can be read by
+     * {@link AESCryptoUtil#decryptFile} or {@link #decompressFromEncryptedZip}. {@code out} is not closed.
+     *
+     * @param files    files to be compressed
+     * @param out      encrypted zip destination
+     * @param password AES password
+     * @throws InvalidKeyException                Invalid Key Exception
+     * @throws InvalidAlgorithmParameterException Invalid Algorithm Parameter Exception
+     * @throws IOException                        IOException
+     */
+    public static void compressToEncryptedZip(List<File> files, OutputStream out, String password)
+        throws InvalidKeyException, InvalidAlgorithmParameterException, IOException {
+        try (OutputStream encrypted = AESCryptoUtil.encryptingOutputStream(CloseShieldOutputStream.wrap(out),
+            password)) {
+            compressToZip(files, encrypted);
+        }
+    }
+
+    /**
+     * Decompress zip file into one temp file per entry in {@link TempStorage#getDefault()}, directories are skipped.
+     * The files are deleted on shutdown, delete or move them when done. The archive is not limited, use
+     * {@link #decompressFromZip(InputStream, ZipLimits, ZipEntryVisitor)} for uploaded archives. {@code input} is not
+     * closed.
      *
      * @param input zip file stream
      * @param files decompressed file list
      * @throws IOException IOException
      */
     public static void decompressFromZip(InputStream input, List<File> files) throws IOException {
+        decompressFromZip(input, ZipLimits.unlimited(), (entry, in) -> {
+            File file = createTempFile(entry.getName());
+            try {
+                Files.copy(in, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                Files.deleteIfExists(file.toPath());
+                throw e;
+            }
+            files.add(file);
+        });
+    }
+
+    /**
+     * Decompress zip stream entry by entry, handing the data of each entry to the visitor without any temp file.
+     * Directories are skipped. {@code input} is not closed.
+     *
+     * @param input   zip file stream
+     * @param limits  limits of total size, entry count and compression ratio
+     * @param visitor receiver of each entry
+     * @throws ZipException if a limit is exceeded
+     * @throws IOException  IOException, or thrown by the visitor
+     */
+    public static void decompressFromZip(InputStream input, ZipLimits limits, ZipEntryVisitor visitor)
+        throws IOException {
         ZipArchiveInputStream archive = new ZipArchiveInputStream(new BufferedInputStream(input));
+        LimitedEntryStream limited = new LimitedEntryStream(archive, limits);
         ZipArchiveEntry entry;
+        int entries = 0;
         while ((entry = archive.getNextZipEntry()) != null) {
-            String fileName = entry.getName();
-            System.out.println(fileName);
-            File file = File.createTempFile(fileName.substring(0, fileName.lastIndexOf(".")),
-                fileName.substring(fileName.lastIndexOf(".")));
-            IOUtils.copy(archive, new FileOutputStream(file));
-            files.add(file);
+            if (++entries > limits.getMaxEntries()) {
+                throw new ZipException("Zip has more than " + limits.getMaxEntries() + " entries");
+            }
+            if (entry.isDirectory()) {
+                continue;
+            }
+            limited.startEntry(entry);
+            visitor.visit(entry, limited);
+            // the rest of an entry is decompressed to skip it anyway, so it counts as well
+            IOUtils.skip(limited, Long.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Decompress zip stream into store. The digest of each entry is computed while it is stored, and entries already
+     * in the store take no more disk space. {@code input} is not closed.
+     *
+     * @param input  zip file stream
+     * @param limits limits of total size, entry count and compression ratio
+     * @param store  destination
+     * @return key of the content of each entry by entry name, in the order of the archive
+     * @throws ZipException if a limit is exceeded
+     * @throws IOException  IOException
+     */
+    public static Map<String, String> decompressFromZip(InputStream input, ZipLimits limits,
+        ContentAddressedStore store) throws IOException {
+        Map<String, String> keys = new LinkedHashMap<>();
+        decompressFromZip(input, limits, (entry, in) -> keys.put(entry.getName(), store.put(in)));
+        return keys;
+    }
+
+    /**
+     * Decompress AES encrypted zip stream in one pass, without decrypting into a temp file first.
+     *
+     * @param input    encrypted zip stream
+     * @param password AES password
+     * @param files    decompressed file list
+     * @throws InvalidKeyException                Invalid Key Exception
+     * @throws InvalidAlgorithmParameterException Invalid Algorithm Parameter Exception
+     * @throws IOException                        IOException, also thrown for a wrong password
+     */
+    public static void decompressFromEncryptedZip(InputStream input, String password, List<File> files)
+        throws InvalidKeyException, InvalidAlgorithmParameterException, IOException {
+        InputStream decrypted = AESCryptoUtil.decryptingInputStream(input, password);
+        decompressFromZip(decrypted, files);
+        // read up to the last block, so that a wrong password is reported by the padding check
+        IOUtils.skip(decrypted, Long.MAX_VALUE);
+    }
+
+    /**
+     * Decompress AES encrypted zip stream entry by entry, handing the data of each entry to the visitor.
+     *
+     * @param input    encrypted zip stream
+     * @param password AES password
+     * @param limits   limits of total size, entry count and compression ratio
+     * @param visitor  receiver of each entry
+     * @throws InvalidKeyException                Invalid Key Exception
+     * @throws InvalidAlgorithmParameterException Invalid Algorithm Parameter Exception
+     * @throws ZipException                       if a limit is exceeded
+     * @throws IOException                        IOException, also thrown for a wrong password
+     */
+    public static void decompressFromEncryptedZip(InputStream input, String password, ZipLimits limits,
+        ZipEntryVisitor visitor) throws InvalidKeyException, InvalidAlgorithmParameterException, IOException {
+        InputStream decrypted = AESCryptoUtil.decryptingInputStream(input, password);
+        decompressFromZip(decrypted, limits, visitor);
+        IOUtils.skip(decrypted, Long.MAX_VALUE);
+    }
+
+    /**
+     * Create temp file keeping the name and extension of the entry where possible.
+     */
+    private static File createTempFile(String entryName) throws IOException {
+        String name = entryName.substring(entryName.lastIndexOf('/') + 1);
+        int dot = name.lastIndexOf('.');
+        String prefix = dot > 0 ? name.substring(0, dot) : name;
+        String suffix = dot > 0 ? name.substring(dot) : null;
+        return TempStorage.getDefault().createFile(prefix, suffix).toFile();
+    }
+
+    private static void writeEntries(ZipArchiveOutputStream os, List<File> files, ZipOptions options)
+        throws IOException {
+        os.setLevel(options.getLevel());
+        byte[] buffer = new byte[options.getBufferSize()];
+        for (File f : files) {
+            writeEntry(os, f, options, buffer);
+        }
+        os.finish();
+    }
+
+    private static void writeEntry(ZipArchiveOutputStream os, File f, ZipOptions options, byte[] buffer)
+        throws IOException {
+        ZipArchiveEntry entry = new ZipArchiveEntry(f, f.getName());
+        if (options.getStored().test(f)) {
+            // a stream cannot be rewound to patch the header, so stored entries need size and CRC up front
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(f.length());
+            entry.setCrc(crc(f, buffer));
+        }
+        os.putArchiveEntry(entry);
+        try (InputStream in = new FileInputStream(f)) {
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                os.write(buffer, 0, n);
+            }
+        }
+        os.closeArchiveEntry();
+    }
+
+    private static long crc(File f, byte[] buffer) throws IOException {
+        CRC32 crc = new CRC32();
+        try (InputStream in = new FileInputStream(f)) {
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                crc.update(buffer, 0, n);
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Data of the current entry, counted against the limits.
+     */
+    private static final class LimitedEntryStream extends InputStream {
+        /** Entries smaller than this are not checked for their compression ratio */
+        private static final long RATIO_GRACE_BYTES = 64 * 1024;
+
+        private final ZipArchiveInputStream archive;
+        private final ZipLimits limits;
+        private long totalBytes;
+        private long entryBytes;
+        private String entryName;
+
+        private LimitedEntryStream(ZipArchiveInputStream archive, ZipLimits limits) {
+            this.archive = archive;
+            this.limits = limits;
+        }
+
+        private void startEntry(ZipArchiveEntry entry) {
+            entryName = entry.getName();
+            entryBytes = 0;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = archive.read();
+            if (b != -1) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = archive.read(b, off, len);
+            if (n > 0) {
+                count(n);
+            }
+            return n;
+        }
+
+        @Override
+        public void close() {
+            // the archive is closed by its owner
+        }
+
+        private void count(int n) throws ZipException {
+            totalBytes += n;
+            entryBytes += n;
+            if (totalBytes > limits.getMaxTotalBytes()) {
+                throw new ZipException("Zip is larger than " + limits.getMaxTotalBytes() + " bytes decompressed");
+            }
+            if (entryBytes > RATIO_GRACE_BYTES
+                && entryBytes / Math.max(1L, archive.getCompressedCount()) > limits.getMaxCompressionRatio()) {
+                throw new ZipException("Zip entry " + entryName + " exceeds compression ratio "
+                    + limits.getMaxCompressionRatio());
+            }
+        }
+    }
+
+    /**
+     * Scatter data of one compression thread, in memory while small.
+     */
+    private static final class TempBackingStore implements ScatterGatherBackingStore {
+
+        private final TempBuffer buffer;
+
+        private TempBackingStore(TempBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return buffer.getInputStream();
+        }
+
+        @Override
+        public void writeOut(byte[] data, int offset, int length) throws IOException {
+            buffer.getOutputStream().write(data, offset, length);
+        }
+
+        @Override
+        public void closeForWriting() throws IOException {
+            buffer.getOutputStream().close();
+        }
+
+        @Override
+        public void close() {
+            buffer.close();
         }
     }
 }
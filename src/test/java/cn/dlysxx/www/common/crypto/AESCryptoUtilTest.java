@@ -0,0 +1,287 @@
+package cn.dlysxx.www.common.crypto;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AESCryptoUtilTest {
+
+    private static final String PASSWORD = "secret";
+    private static final byte[] SALT = {1, 2, 3, 4, 5, 6, 7, 8};
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void fileRoundTripAcrossBufferBoundaries() throws Exception {
+        for (int size : new int[] {0, 15, 16, 17, 64 * 1024 - 1, 64 * 1024, 64 * 1024 + 16, 200 * 1024 + 5}) {
+            byte[] plain = random(size);
+            Path in = write("plain", plain);
+            Path encrypted = dir.resolve("encrypted");
+            Path decrypted = dir.resolve("decrypted");
+            AESCryptoUtil.encryptFile(in.toString(), encrypted.toString(), PASSWORD);
+            AESCryptoUtil.decryptFile(encrypted.toString(), decrypted.toString(), PASSWORD);
+            assertArrayEquals(plain, Files.readAllBytes(decrypted), "size " + size);
+
+            // the file format is the OpenSSL "Salted__" format
+            byte[] data = Files.readAllBytes(encrypted);
+            assertEquals(16 + (size / 16 + 1) * 16, data.length, "size " + size);
+            assertArrayEquals("Salted__".getBytes(StandardCharsets.US_ASCII), Arrays.copyOf(data, 8));
+            assertArrayEquals(plain, openSsl(Cipher.DECRYPT_MODE, PASSWORD, Arrays.copyOfRange(data, 8, 16),
+                Arrays.copyOfRange(data, 16, data.length)));
+        }
+    }
+
+    @Test
+    void decryptsOpenSslFormat() throws Exception {
+        byte[] plain = random(100_000);
+        Path encrypted = write("encrypted", salted(openSsl(Cipher.ENCRYPT_MODE, PASSWORD, SALT, plain)));
+        Path decrypted = dir.resolve("decrypted");
+        AESCryptoUtil.decryptFile(encrypted.toString(), decrypted.toString(), PASSWORD);
+        assertArrayEquals(plain, Files.readAllBytes(decrypted));
+    }
+
+    @Test
+    void failedDecryptionLeavesOutputUnchanged() throws Exception {
+        byte[] plain = random(100_000);
+        byte[] encrypted = salted(openSsl(Cipher.ENCRYPT_MODE, PASSWORD, SALT, plain));
+        Path wrongPassword = write("wrong", encrypted);
+        Path truncated = write("truncated", Arrays.copyOf(encrypted, encrypted.length - 1));
+        Path decrypted = write("decrypted", new byte[] {42});
+
+        assertThrows(BadPaddingException.class,
+            () -> AESCryptoUtil.decryptFile(wrongPassword.toString(), decrypted.toString(), "wrong"));
+        assertThrows(IllegalBlockSizeException.class,
+            () -> AESCryptoUtil.decryptFile(truncated.toString(), decrypted.toString(), PASSWORD));
+        assertArrayEquals(new byte[] {42}, Files.readAllBytes(decrypted));
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(0, files.filter(p -> p.toString().endsWith(".part")).count());
+        }
+    }
+
+    @Test
+    void outputHasThePermissionsOfANewFileOrTheReplacedOne() throws Exception {
+        assumeTrue(Files.getFileAttributeView(dir, PosixFileAttributeView.class) != null, "no POSIX permissions");
+        Path in = write("plain", random(1000));
+        Path encrypted = dir.resolve("encrypted");
+        AESCryptoUtil.encryptFile(in.toString(), encrypted.toString(), PASSWORD);
+        // like any file created by this process, not owner only like a temp file
+        assertEquals(Files.getPosixFilePermissions(Files.createFile(dir.resolve("new"))),
+            Files.getPosixFilePermissions(encrypted));
+
+        Path decrypted = write("decrypted", new byte[1]);
+        Set<PosixFilePermission> permissions = PosixFilePermissions.fromString("rw-r-----");
+        Files.setPosixFilePermissions(decrypted, permissions);
+        AESCryptoUtil.decryptFile(encrypted.toString(), decrypted.toString(), PASSWORD);
+        assertEquals(permissions, Files.getPosixFilePermissions(decrypted));
+    }
+
+    @Test
+    void filesAreEncryptedConcurrently() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                byte[] plain = random(70_000 + i);
+                Path in = write("plain-" + i, plain);
+                futures.add(executor.submit(() -> {
+                    Path encrypted = Paths.get(in + ".aes");
+                    Path decrypted = Paths.get(in + ".out");
+                    AESCryptoUtil.encryptFile(in.toString(), encrypted.toString(), PASSWORD);
+                    AESCryptoUtil.decryptFile(encrypted.toString(), decrypted.toString(), PASSWORD);
+                    assertArrayEquals(plain, Files.readAllBytes(decrypted));
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void stringAndFileFormatsAgree() throws Exception {
+        byte[] encrypted = AESCryptoUtil.encryptString("héllo wörld", PASSWORD);
+        Path in = write("encrypted", encrypted);
+        Path decrypted = dir.resolve("decrypted");
+        AESCryptoUtil.decryptFile(in.toString(), decrypted.toString(), PASSWORD);
+        assertEquals("héllo wörld", new String(Files.readAllBytes(decrypted), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void batchRoundTripKeepsOrderAndNulls() throws Exception {
+        AESKey key = AESKey.of(PASSWORD);
+        // below and above the parallel threshold
+        for (int size : new int[] {0, 10, 5000}) {
+            String[] plain = new String[size];
+            for (int i = 0; i < size; i++) {
+                plain[i] = i % 7 == 3 ? null : "value-" + i;
+            }
+            String[] encrypted = AESCryptoUtil.encryptStrings(plain, key);
+            assertEquals(size, encrypted.length);
+            for (int i = 0; i < size; i++) {
+                if (plain[i] == null) {
+                    assertNull(encrypted[i]);
+                } else {
+                    // single value API and the OpenSSL reference agree with the batch
+                    assertEquals(plain[i], new String(AESCryptoUtil.decryptString(encrypted[i], PASSWORD),
+                        StandardCharsets.UTF_8));
+                }
+            }
+            assertArrayEquals(plain, AESCryptoUtil.decryptStrings(Arrays.asList(encrypted), key));
+        }
+    }
+
+    @Test
+    void batchValuesUseRandomSalts() throws Exception {
+        String[] encrypted = AESCryptoUtil.encryptStrings(new String[] {"same", "same"}, AESKey.of(PASSWORD));
+        assertNotEquals(encrypted[0], encrypted[1]);
+        byte[] data = Base64.getDecoder().decode(encrypted[0]);
+        assertArrayEquals("same".getBytes(StandardCharsets.UTF_8), openSsl(Cipher.DECRYPT_MODE, PASSWORD,
+            Arrays.copyOfRange(data, 8, 16), Arrays.copyOfRange(data, 16, data.length)));
+    }
+
+    @Test
+    void batchFailureThrowsCheckedException() throws Exception {
+        AESKey key = AESKey.of(PASSWORD);
+        String[] encrypted = AESCryptoUtil.encryptStrings(Collections.nCopies(2000, "value"), key);
+        encrypted[1500] = Base64.getEncoder().encodeToString(salted(new byte[15]));
+        assertThrows(IllegalBlockSizeException.class, () -> AESCryptoUtil.decryptStrings(encrypted, key));
+        assertThrows(IllegalArgumentException.class, () -> AESKey.of(null));
+    }
+
+    @Test
+    void base64RoundTrip() throws Exception {
+        for (String plain : new String[] {"", "a", "0123456789abcdef", "中文 text"}) {
+            String encrypted = AESCryptoUtil.encryptBase64(plain, PASSWORD);
+            assertEquals(plain, AESCryptoUtil.decryptBase64(encrypted, PASSWORD));
+            byte[] data = Base64.getDecoder().decode(encrypted);
+            assertArrayEquals("Salted__".getBytes(StandardCharsets.US_ASCII), Arrays.copyOf(data, 8));
+        }
+        String reference = Base64.getEncoder().encodeToString(
+            salted(openSsl(Cipher.ENCRYPT_MODE, PASSWORD, SALT, "中文 text".getBytes(StandardCharsets.UTF_8))));
+        assertEquals("中文 text", AESCryptoUtil.decryptBase64(reference, PASSWORD));
+    }
+
+    @Test
+    void streamsMatchByteArrayFormat() throws Exception {
+        byte[] plain = random(100_003);
+        ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+        try (OutputStream out = AESCryptoUtil.encryptingOutputStream(encrypted, PASSWORD)) {
+            // uneven writes across block boundaries
+            for (int i = 0; i < plain.length; i += 1001) {
+                out.write(plain, i, Math.min(1001, plain.length - i));
+            }
+        }
+        byte[] data = encrypted.toByteArray();
+        assertArrayEquals(plain, openSsl(Cipher.DECRYPT_MODE, PASSWORD, Arrays.copyOfRange(data, 8, 16),
+            Arrays.copyOfRange(data, 16, data.length)));
+
+        byte[] reference = salted(openSsl(Cipher.ENCRYPT_MODE, PASSWORD, SALT, plain));
+        try (InputStream in = AESCryptoUtil.decryptingInputStream(new ByteArrayInputStream(reference), PASSWORD)) {
+            assertArrayEquals(plain, in.readAllBytes());
+        }
+    }
+
+    @Test
+    void base64StreamsMatchBase64Strings() throws Exception {
+        String plain = "streamed 中文 value";
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        try (OutputStream out = AESCryptoUtil.encryptingBase64OutputStream(text, PASSWORD)) {
+            out.write(plain.getBytes(StandardCharsets.UTF_8));
+        }
+        String encrypted = new String(text.toByteArray(), StandardCharsets.US_ASCII);
+        assertEquals(plain, AESCryptoUtil.decryptBase64(encrypted, PASSWORD));
+
+        byte[] base64 = AESCryptoUtil.encryptBase64(plain, PASSWORD).getBytes(StandardCharsets.US_ASCII);
+        try (InputStream in = AESCryptoUtil.decryptingBase64InputStream(new ByteArrayInputStream(base64),
+            PASSWORD)) {
+            assertEquals(plain, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void decryptingStreamRejectsBadInput() throws Exception {
+        assertThrows(IOException.class,
+            () -> AESCryptoUtil.decryptingInputStream(new ByteArrayInputStream(new byte[10]), PASSWORD));
+        byte[] reference = salted(openSsl(Cipher.ENCRYPT_MODE, PASSWORD, SALT, random(1000)));
+        try (InputStream in = AESCryptoUtil.decryptingInputStream(
+            new ByteArrayInputStream(Arrays.copyOf(reference, reference.length - 1)), PASSWORD)) {
+            assertThrows(IOException.class, in::readAllBytes);
+        }
+    }
+
+    /**
+     * Reference implementation of OpenSSL "enc -aes-128-cbc -md md5", independent of the class under test.
+     */
+    static byte[] openSsl(int mode, String password, byte[] salt, byte[] data) throws Exception {
+        byte[] pass = password.getBytes(StandardCharsets.UTF_8);
+        MessageDigest md5 = MessageDigest.getInstance("MD5");
+        byte[] d1 = md5.digest(concat(pass, salt));
+        byte[] d2 = md5.digest(concat(d1, pass, salt));
+        Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        cipher.init(mode, new SecretKeySpec(d1, "AES"), new IvParameterSpec(d2));
+        return cipher.doFinal(data);
+    }
+
+    static byte[] salted(byte[] cipherText) {
+        return concat("Salted__".getBytes(StandardCharsets.US_ASCII), SALT, cipherText);
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.write(part, 0, part.length);
+        }
+        return out.toByteArray();
+    }
+
+    private Path write(String name, byte[] data) throws Exception {
+        Path file = dir.resolve(name);
+        Files.write(file, data);
+        return file;
+    }
+
+    static byte[] random(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,171 @@
+package cn.dlysxx.www.common.crypto;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AESGCMCryptoUtilTest {
+
+    private static final String PASSWORD = "secret";
+    private static final int CHUNK = 1024;
+    private static final int HEADER_LENGTH = 44;
+
+    private static ForkJoinPool pool;
+
+    @TempDir
+    Path dir;
+
+    @BeforeAll
+    static void createPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void shutdownPool() {
+        pool.shutdown();
+    }
+
+    @Test
+    void roundTripAtChunkBoundaries() throws Exception {
+        for (int size : new int[] {0, 1, 16, CHUNK - 1, CHUNK, CHUNK + 1, 5 * CHUNK + 3}) {
+            byte[] plain = random(size);
+            Path encrypted = encrypt(plain);
+            long chunks = Math.max(1, (size + CHUNK - 1) / CHUNK);
+            assertEquals(HEADER_LENGTH + size + chunks * 16, Files.size(encrypted), "size " + size);
+
+            Path decrypted = dir.resolve("plain-" + size);
+            AESGCMCryptoUtil.decryptFile(encrypted.toString(), decrypted.toString(), PASSWORD, pool);
+            assertArrayEquals(plain, Files.readAllBytes(decrypted), "size " + size);
+        }
+    }
+
+    @Test
+    void chunkDecryptsWithPlainJce() throws Exception {
+        byte[] plain = random(3 * CHUNK);
+        byte[] encrypted = Files.readAllBytes(encrypt(plain));
+        ByteBuffer header = ByteBuffer.wrap(encrypted, 0, HEADER_LENGTH);
+        assertArrayEquals("DLYGCM01".getBytes(StandardCharsets.US_ASCII), bytes(header, 8));
+        byte[] salt = bytes(header, 16);
+        int iterations = header.getInt();
+        byte[] noncePrefix = bytes(header, 4);
+        assertEquals(CHUNK, header.getInt());
+        assertEquals(plain.length, header.getLong());
+
+        byte[] key = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256")
+            .generateSecret(new PBEKeySpec(PASSWORD.toCharArray(), salt, iterations, 256)).getEncoded();
+        byte[] nonce = ByteBuffer.allocate(12).put(noncePrefix).putLong(2).array();
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(key, "AES"), new GCMParameterSpec(128, nonce));
+        cipher.updateAAD(encrypted, 0, HEADER_LENGTH);
+        int offset = HEADER_LENGTH + 2 * (CHUNK + 16);
+        assertArrayEquals(Arrays.copyOfRange(plain, 2 * CHUNK, 3 * CHUNK),
+            cipher.doFinal(encrypted, offset, CHUNK + 16));
+    }
+
+    @Test
+    void wrongPasswordFailsAndDeletesOutput() throws Exception {
+        Path encrypted = encrypt(random(2 * CHUNK));
+        Path decrypted = dir.resolve("plain");
+        assertThrows(BadPaddingException.class,
+            () -> AESGCMCryptoUtil.decryptFile(encrypted.toString(), decrypted.toString(), "wrong", pool));
+        assertFalse(Files.exists(decrypted));
+    }
+
+    @Test
+    void tamperedChunkOrHeaderFails() throws Exception {
+        Path encrypted = encrypt(random(2 * CHUNK));
+        byte[] original = Files.readAllBytes(encrypted);
+        // last byte of the last tag, and the nonce prefix which is only bound through the AAD
+        for (int position : new int[] {original.length - 1, 8 + 16 + 4}) {
+            byte[] tampered = original.clone();
+            tampered[position] ^= 1;
+            Files.write(encrypted, tampered);
+            Path decrypted = dir.resolve("plain");
+            assertThrows(BadPaddingException.class,
+                () -> AESGCMCryptoUtil.decryptFile(encrypted.toString(), decrypted.toString(), PASSWORD, pool));
+            assertFalse(Files.exists(decrypted));
+        }
+    }
+
+    @Test
+    void invalidFileIsRejectedWithoutTouchingOutput() throws Exception {
+        Path encrypted = encrypt(random(CHUNK));
+        byte[] original = Files.readAllBytes(encrypted);
+        Files.write(encrypted, Arrays.copyOf(original, original.length - 1));
+        Path decrypted = dir.resolve("plain");
+        Files.write(decrypted, new byte[] {42});
+        assertThrows(IOException.class,
+            () -> AESGCMCryptoUtil.decryptFile(encrypted.toString(), decrypted.toString(), PASSWORD, pool));
+        assertArrayEquals(new byte[] {42}, Files.readAllBytes(decrypted));
+
+        // chunk size beyond the limit in the header
+        byte[] huge = original.clone();
+        ByteBuffer.wrap(huge).putInt(8 + 16 + 4 + 4, Integer.MAX_VALUE - 8);
+        Files.write(encrypted, huge);
+        assertThrows(IOException.class,
+            () -> AESGCMCryptoUtil.decryptFile(encrypted.toString(), decrypted.toString(), PASSWORD, pool));
+    }
+
+    @Test
+    void chunkSizeIsBounded() throws Exception {
+        Path plain = dir.resolve("in");
+        Files.write(plain, random(10));
+        for (int chunkSize : new int[] {0, AESGCMCryptoUtil.MAX_CHUNK_SIZE + 1, Integer.MAX_VALUE}) {
+            assertThrows(IllegalArgumentException.class, () -> AESGCMCryptoUtil.encryptFile(plain.toString(),
+                dir.resolve("out").toString(), PASSWORD, chunkSize, pool));
+        }
+    }
+
+    @Test
+    void failedEncryptionDeletesOutput() throws Exception {
+        Path plain = dir.resolve("in");
+        Files.write(plain, random(3 * CHUNK));
+        Path encrypted = dir.resolve("out");
+        ForkJoinPool stopped = new ForkJoinPool(1);
+        stopped.shutdown();
+        assertThrows(RejectedExecutionException.class, () -> AESGCMCryptoUtil.encryptFile(plain.toString(),
+            encrypted.toString(), PASSWORD, CHUNK, stopped));
+        assertFalse(Files.exists(encrypted));
+    }
+
+    private Path encrypt(byte[] plain) throws Exception {
+        Path in = Files.createTempFile(dir, "plain", ".bin");
+        Files.write(in, plain);
+        Path out = Files.createTempFile(dir, "encrypted", ".bin");
+        AESGCMCryptoUtil.encryptFile(in.toString(), out.toString(), PASSWORD, CHUNK, pool);
+        return out;
+    }
+
+    private static byte[] bytes(ByteBuffer buffer, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static byte[] random(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,65 @@
+package cn.dlysxx.www.common.crypto;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.util.Arrays;
+import java.util.Base64;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.junit.jupiter.api.Test;
+
+class BlindIndexUtilTest {
+
+    @Test
+    void matchesRfc4231Vector() throws Exception {
+        byte[] expected = new BigInteger("5bdcc146bf60754e6a042426089575c75a003f089d2739839dec58b964ec3843", 16)
+            .toByteArray();
+        String index = BlindIndexUtil.blindIndex("what do ya want for nothing?", "Jefe");
+        assertArrayEquals(Arrays.copyOfRange(expected, expected.length - 32, expected.length),
+            Base64.getDecoder().decode(index));
+    }
+
+    @Test
+    void matchesFreshMacWhenKeysAlternate() throws Exception {
+        String[] keys = {"index-key-1", "index-key-2", "密钥"};
+        for (int i = 0; i < 30; i++) {
+            String key = keys[i % keys.length];
+            String value = "138000000" + i;
+            assertEquals(hmac(value, key, 32), BlindIndexUtil.blindIndex(value, key));
+            assertEquals(hmac(value, key, 8), BlindIndexUtil.blindIndex(value, key, 8));
+        }
+    }
+
+    @Test
+    void truncatedIndexIsPrefixOfFullIndex() throws Exception {
+        byte[] full = Base64.getDecoder().decode(BlindIndexUtil.blindIndex("value", "key"));
+        for (int length = 1; length <= BlindIndexUtil.MAX_LENGTH; length++) {
+            assertArrayEquals(Arrays.copyOf(full, length),
+                Base64.getDecoder().decode(BlindIndexUtil.blindIndex("value", "key", length)));
+        }
+    }
+
+    @Test
+    void rejectsInvalidInput() throws Exception {
+        assertNull(BlindIndexUtil.blindIndex(null, "key"));
+        assertThrows(IllegalArgumentException.class, () -> BlindIndexUtil.blindIndex("value", "key", 0));
+        assertThrows(IllegalArgumentException.class, () -> BlindIndexUtil.blindIndex("value", "key", 33));
+        assertThrows(InvalidKeyException.class, () -> BlindIndexUtil.blindIndex("value", ""));
+        assertThrows(InvalidKeyException.class, () -> BlindIndexUtil.blindIndex("value", null));
+        // a failed call does not break the next one on the same thread
+        assertEquals(hmac("value", "key", 32), BlindIndexUtil.blindIndex("value", "key"));
+    }
+
+    private static String hmac(String value, String key, int length) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        byte[] digest = mac.doFinal(value.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(Arrays.copyOf(digest, length));
+    }
+}
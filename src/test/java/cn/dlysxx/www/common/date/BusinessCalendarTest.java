@@ -0,0 +1,160 @@
+package cn.dlysxx.www.common.date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BusinessCalendarTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void matchesBruteForce() {
+        Random random = new Random(9);
+        // one year, a leap year span, and weekends of 0, 2 and 6 days
+        int[][] years = {{2024, 2024}, {2023, 2026}, {1999, 2001}};
+        DayOfWeek[][] weekends = {{DayOfWeek.SATURDAY, DayOfWeek.SUNDAY}, {}, {DayOfWeek.MONDAY, DayOfWeek.TUESDAY,
+            DayOfWeek.WEDNESDAY, DayOfWeek.THURSDAY, DayOfWeek.FRIDAY, DayOfWeek.SATURDAY}};
+        for (int[] range : years) {
+            for (DayOfWeek[] weekend : weekends) {
+                LocalDate first = LocalDate.of(range[0], 1, 1);
+                LocalDate end = LocalDate.of(range[1] + 1, 1, 1);
+                int dayCount = (int) (end.toEpochDay() - first.toEpochDay());
+                Set<DayOfWeek> weekendSet = EnumSet.noneOf(DayOfWeek.class);
+                weekendSet.addAll(Arrays.asList(weekend));
+                boolean[] working = new boolean[dayCount];
+                for (int i = 0; i < dayCount; i++) {
+                    working[i] = !weekendSet.contains(first.plusDays(i).getDayOfWeek());
+                }
+                BusinessCalendar.Builder builder = BusinessCalendar.builder(range[0], range[1]).weekend(weekend);
+                for (int i = 0; i < dayCount / 10; i++) {
+                    int offset = random.nextInt(dayCount);
+                    working[offset] = random.nextBoolean();
+                    if (working[offset]) {
+                        builder.workday(first.plusDays(offset));
+                    } else {
+                        builder.holiday(first.plusDays(offset));
+                    }
+                }
+                check(builder.build(), first, working, random);
+            }
+        }
+    }
+
+    private static void check(BusinessCalendar calendar, LocalDate first, boolean[] working, Random random) {
+        int dayCount = working.length;
+        int[] before = new int[dayCount + 1];
+        for (int i = 0; i < dayCount; i++) {
+            assertEquals(working[i], calendar.isWorkingDay(first.plusDays(i)), first.plusDays(i)::toString);
+            before[i + 1] = before[i] + (working[i] ? 1 : 0);
+        }
+        for (int q = 0; q < 3000; q++) {
+            int start = random.nextInt(dayCount + 1);
+            int end = random.nextInt(dayCount + 1);
+            assertEquals(before[end] - before[start],
+                calendar.workingDaysBetween(first.plusDays(start), first.plusDays(end)));
+
+            int from = random.nextInt(dayCount);
+            int days = random.nextInt(5) == 0 ? 0 : random.nextInt(2 * dayCount / 3) - dayCount / 3;
+            LocalDate date = first.plusDays(from);
+            int expected = add(working, from, days);
+            if (expected < 0) {
+                assertThrows(DateTimeException.class, () -> calendar.addWorkingDays(date, days));
+            } else {
+                assertEquals(first.plusDays(expected), calendar.addWorkingDays(date, days), date + " + " + days);
+            }
+        }
+        assertThrows(DateTimeException.class, () -> calendar.isWorkingDay(first.minusDays(1)));
+        assertThrows(DateTimeException.class, () -> calendar.isWorkingDay(first.plusDays(dayCount)));
+        assertEquals(before[dayCount], calendar.workingDaysBetween(first, first.plusDays(dayCount)));
+    }
+
+    /**
+     * Step day by day, -1 if the calendar ends first.
+     */
+    private static int add(boolean[] working, int from, int days) {
+        int offset = from;
+        int remaining = Math.abs(days);
+        int step = days > 0 ? 1 : -1;
+        while (remaining > 0) {
+            offset += step;
+            if (offset < 0 || offset >= working.length) {
+                return -1;
+            }
+            if (working[offset]) {
+                remaining--;
+            }
+        }
+        return offset;
+    }
+
+    @Test
+    void nextAndPreviousWorkingDay() {
+        BusinessCalendar calendar = BusinessCalendar.builder(2024, 2024)
+            .holiday(LocalDate.of(2024, 1, 1))
+            .workday(LocalDate.of(2024, 1, 6))
+            .build();
+        // Monday 2024-01-01 is a holiday, Saturday 2024-01-06 a working day, 2023 is outside
+        assertEquals(LocalDate.of(2024, 1, 2), calendar.nextWorkingDay(LocalDate.of(2024, 1, 1)));
+        assertEquals(LocalDate.of(2024, 1, 6), calendar.nextWorkingDay(LocalDate.of(2024, 1, 5)));
+        assertEquals(LocalDate.of(2024, 1, 8), calendar.nextWorkingDay(LocalDate.of(2024, 1, 6)));
+        assertEquals(LocalDate.of(2024, 1, 6), calendar.previousWorkingDay(LocalDate.of(2024, 1, 7)));
+        assertThrows(DateTimeException.class, () -> calendar.previousWorkingDay(LocalDate.of(2024, 1, 2)));
+        assertThrows(DateTimeException.class, () -> calendar.nextWorkingDay(LocalDate.of(2024, 12, 31)));
+        assertEquals(Math.toIntExact(LocalDate.of(2024, 1, 2).toEpochDay()),
+            calendar.addWorkingDays(Math.toIntExact(LocalDate.of(2024, 1, 1).toEpochDay()), 1));
+    }
+
+    @Test
+    void parsesCalendarFile() throws Exception {
+        String text = "# test calendar\n"
+            + "weekend FRIDAY SATURDAY\n"
+            + "holiday 2025-01-01 New Year's Day\n"
+            + "\n"
+            + "workday 2025-01-03   # Friday\n"
+            + "holiday 2025-01-03\n"
+            + "years 2025 2025\n";
+        Path file = dir.resolve("XX" + BusinessCalendar.EXTENSION);
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+        BusinessCalendar calendar = BusinessCalendar.load(file);
+        assertEquals(2025, calendar.getFirstYear());
+        assertEquals(2025, calendar.getLastYear());
+        assertFalse(calendar.isWorkingDay(LocalDate.of(2025, 1, 1)));
+        // the later entry of the same day wins
+        assertFalse(calendar.isWorkingDay(LocalDate.of(2025, 1, 3)));
+        assertTrue(calendar.isWorkingDay(LocalDate.of(2025, 1, 5)));
+
+        BusinessCalendar.register("XX-test", calendar);
+        assertSame(calendar, BusinessCalendar.forRegion("XX-test"));
+        assertThrows(IllegalArgumentException.class, () -> BusinessCalendar.forRegion("no-such-region"));
+    }
+
+    @Test
+    void rejectsInvalidInput() {
+        assertThrows(IllegalArgumentException.class, () -> BusinessCalendar.parse(new StringReader("weekend SUNDAY")));
+        assertThrows(IllegalArgumentException.class,
+            () -> BusinessCalendar.parse(new StringReader("years 2024 2024\nholiday 2024-02-30")));
+        assertThrows(IllegalArgumentException.class,
+            () -> BusinessCalendar.parse(new StringReader("years 2024 2024\nvacation 2024-02-01")));
+        assertThrows(IllegalArgumentException.class, () -> BusinessCalendar.builder(2025, 2024));
+        assertThrows(IllegalArgumentException.class,
+            () -> BusinessCalendar.builder(2024, 2024).holiday(LocalDate.of(2025, 1, 1)));
+    }
+}
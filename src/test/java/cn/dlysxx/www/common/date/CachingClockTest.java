@@ -0,0 +1,60 @@
+package cn.dlysxx.www.common.date;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.ZoneId;
+import org.junit.jupiter.api.Test;
+
+class CachingClockTest {
+
+    private static final ZoneId ZONE = ZoneId.of("Asia/Shanghai");
+
+    @Test
+    void nowStringIsTheCurrentTimeAcrossSeconds() throws Exception {
+        // fixed layout with milliseconds, fixed layout without, formatter with milliseconds, formatter with micros
+        String[] formats = {DateUtil.UUUUMMDDHHMMSSSSS_HYPHEN, DateUtil.UUUUMMDDHHMMSS_SLASH,
+            DateUtil.ISO_ZONED_DATE_TIME, "uuuu-MM-dd HH:mm:ss.SSSSSS"};
+        long[] resolution = {1, 1000, 1, 1};
+        CachingClock[] clocks = new CachingClock[formats.length];
+        for (int i = 0; i < formats.length; i++) {
+            clocks[i] = DateUtil.cachingClock(formats[i], ZONE);
+        }
+
+        Thread[] threads = new Thread[4];
+        Throwable[] failure = new Throwable[1];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                try {
+                    long end = System.currentTimeMillis() + 1100;
+                    while (System.currentTimeMillis() < end) {
+                        for (int i = 0; i < clocks.length; i++) {
+                            long before = System.currentTimeMillis();
+                            String text = clocks[i].nowString();
+                            long after = System.currentTimeMillis();
+                            long millis = DateUtil.toEpochMilli(text, formats[i], ZONE);
+                            assertTrue(millis >= before - before % resolution[i] && millis <= after,
+                                text + " not within " + before + " and " + after);
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure[0] = e;
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (failure[0] != null) {
+            throw new AssertionError(failure[0]);
+        }
+    }
+
+    @Test
+    void stringZoneMatchesZoneId() {
+        long before = System.currentTimeMillis();
+        String text = DateUtil.cachingClock(DateUtil.UUUUMMDDHHMMSSSSS, "JST").nowString();
+        long millis = DateUtil.toEpochMilli(text, DateUtil.UUUUMMDDHHMMSSSSS, ZoneId.of("Asia/Tokyo"));
+        assertTrue(millis >= before && millis <= System.currentTimeMillis(), text);
+    }
+}
@@ -0,0 +1,93 @@
+package cn.dlysxx.www.common.date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+class DateTimeFormatterCacheTest {
+
+    @Test
+    void countsHitsAndMisses() {
+        DateTimeFormatterCache cache = new DateTimeFormatterCache(4);
+        assertSame(cache.get("uuuu"), cache.get("uuuu"));
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(ResolverStyle.STRICT, cache.get("uuuu").getResolverStyle());
+        assertThrows(DateTimeParseException.class, () -> LocalDate.parse("2023/02/29", cache.get("uuuu/MM/dd")));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() {
+        DateTimeFormatterCache cache = new DateTimeFormatterCache(2);
+        cache.get("uuuu");
+        cache.get("MM");
+        cache.get("uuuu");
+        cache.get("dd");
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        long misses = cache.getMissCount();
+        cache.get("uuuu");
+        assertEquals(misses, cache.getMissCount());
+        cache.get("MM");
+        assertEquals(misses + 1, cache.getMissCount());
+    }
+
+    @Test
+    void pinnedPatternsAreNeverEvicted() {
+        DateTimeFormatterCache cache = new DateTimeFormatterCache(1);
+        cache.precompile(Arrays.asList("uuuu", "MM"));
+        for (int i = 0; i < 10; i++) {
+            cache.get("HH'" + i + "'");
+        }
+        assertEquals(3, cache.size());
+        assertEquals(9, cache.getEvictionCount());
+        long misses = cache.getMissCount();
+        cache.get("uuuu");
+        cache.get("MM");
+        assertEquals(misses, cache.getMissCount());
+
+        // shrinking evicts, pinning moves a recent pattern out of the bounded part
+        cache.setMaximumSize(0);
+        assertEquals(2, cache.size());
+        cache.get("dd");
+        assertEquals(2, cache.size());
+        cache.pin("dd");
+        assertEquals(3, cache.size());
+        assertThrows(IllegalArgumentException.class, () -> cache.setMaximumSize(-1));
+        assertThrows(IllegalArgumentException.class, () -> cache.pin("uuuu-MM-dd'"));
+    }
+
+    @Test
+    void concurrentGetsReturnEquivalentFormatters() throws Exception {
+        DateTimeFormatterCache cache = new DateTimeFormatterCache(8);
+        Thread[] threads = new Thread[8];
+        DateTimeFormatter[][] seen = new DateTimeFormatter[threads.length][];
+        for (int t = 0; t < threads.length; t++) {
+            int index = t;
+            threads[t] = new Thread(() -> {
+                seen[index] = new DateTimeFormatter[1000];
+                for (int i = 0; i < 1000; i++) {
+                    seen[index][i] = cache.get("uuuu-MM-dd'" + i % 16 + "'");
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(8, cache.size());
+        for (DateTimeFormatter[] formatters : seen) {
+            for (int i = 0; i < formatters.length; i++) {
+                assertEquals("2020-01-02" + i % 16, formatters[i].format(LocalDate.of(2020, 1, 2)));
+            }
+        }
+        assertEquals(8L * 1000, cache.getHitCount() + cache.getMissCount());
+    }
+}
@@ -0,0 +1,92 @@
+package cn.dlysxx.www.common.date;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.ResolverStyle;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.ToLongFunction;
+
+/**
+ * Timing harness of the {@link DateUtil} fast paths against the plain java.time calls they replace. Run with
+ * {@code gradle benchmark}; prints nanoseconds per call of each path, the best of several rounds after warm up.
+ *
+ * <p>
+ * Not a JMH benchmark: the numbers are indicative and only comparable within one run on one machine.
+ * </p>
+ *
+ * @author shuai
+ **/
+public final class DateUtilBenchmark {
+
+    private static final int SIZE = 4096;
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int ROUNDS = 10;
+    private static final int ITERATIONS = 100;
+
+    private static final String ZONE = "Asia/Tokyo";
+    private static final String FORMAT = DateUtil.UUUUMMDDHHMMSS_SLASH;
+
+    /** Keeps the results alive, so that the calls are not optimized away */
+    private static long sink;
+
+    private DateUtilBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        Random random = new Random(1);
+        LocalDateTime[] times = new LocalDateTime[SIZE];
+        String[] texts = new String[SIZE];
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern(FORMAT, Locale.ROOT)
+            .withResolverStyle(ResolverStyle.STRICT);
+        for (int i = 0; i < SIZE; i++) {
+            times[i] = LocalDateTime.of(1970, 1, 1, 0, 0).plusSeconds(random.nextInt(1_900_000_000));
+            texts[i] = formatter.format(times[i]);
+        }
+        ZoneId zone = ZoneId.of(ZONE);
+
+        System.out.println("zone resolution, LocalDateTime to ZonedDateTime");
+        run("ZoneId.of per call", times,
+            t -> ZonedDateTime.of(t, ZoneId.of(ZONE, ZoneId.SHORT_IDS)).toEpochSecond());
+        run("DateUtil String zone (cached)", times, t -> DateUtil.toZonedDateTime(t, ZONE).toEpochSecond());
+        run("DateUtil ZoneId overload", times, t -> DateUtil.toZonedDateTime(t, zone).toEpochSecond());
+
+        System.out.println("parse \"" + FORMAT + "\"");
+        run("DateTimeFormatter", texts, s -> LocalDateTime.parse(s, formatter).getSecond());
+        run("DateUtil.toLocalDateTime", texts, s -> DateUtil.toLocalDateTime(s, FORMAT).getSecond());
+        run("DateTimeFormatter to epoch millis", texts,
+            s -> LocalDateTime.parse(s, formatter).atZone(zone).toInstant().toEpochMilli());
+        run("DateUtil.toEpochMilli", texts, s -> DateUtil.toEpochMilli(s, FORMAT, zone));
+
+        System.out.println("format \"" + FORMAT + "\"");
+        run("DateTimeFormatter", times, t -> formatter.format(t).length());
+        run("DateUtil.toString", times, t -> DateUtil.toString(t, FORMAT).length());
+        System.out.println("checksum " + sink);
+    }
+
+    private static <T> void run(String name, T[] inputs, ToLongFunction<T> operation) {
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            time(inputs, operation);
+        }
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            best = Math.min(best, time(inputs, operation));
+        }
+        System.out.printf(Locale.ROOT, "  %-36s %8.1f ns/op%n", name, (double) best / (ITERATIONS * inputs.length));
+    }
+
+    private static <T> long time(T[] inputs, ToLongFunction<T> operation) {
+        long result = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            for (T input : inputs) {
+                result += operation.applyAsLong(input);
+            }
+        }
+        long nanos = System.nanoTime() - start;
+        sink += result;
+        return nanos;
+    }
+}
@@ -0,0 +1,198 @@
+package cn.dlysxx.www.common.date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.ResolverStyle;
+import java.time.temporal.TemporalAccessor;
+import java.time.temporal.TemporalQueries;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class DateUtilTest {
+
+    private static final String[] ZONES = {"UTC", "JST", "ECT", "Asia/Shanghai", "Europe/Paris",
+        "America/New_York", "Australia/Lord_Howe", "+05:30", "GMT-03:00"};
+
+    @Test
+    void zoneIdIsResolvedOnceWithShortIds() {
+        for (String zone : ZONES) {
+            ZoneId resolved = DateUtil.getZoneId(zone);
+            assertEquals(ZoneId.of(zone, ZoneId.SHORT_IDS), resolved);
+            assertSame(resolved, DateUtil.getZoneId(zone));
+        }
+        assertEquals(ZoneId.of("Asia/Tokyo"), DateUtil.getZoneId("JST"));
+        // invalid ids are not cached and fail every time
+        assertThrows(DateTimeException.class, () -> DateUtil.getZoneId("Mars/Olympus"));
+        assertThrows(DateTimeException.class, () -> DateUtil.getZoneId("Mars/Olympus"));
+    }
+
+    @Test
+    void stringAndZoneIdOverloadsAgree() {
+        Random random = new Random(3);
+        for (String zone : ZONES) {
+            ZoneId zoneId = ZoneId.of(zone, ZoneId.SHORT_IDS);
+            for (int i = 0; i < 200; i++) {
+                LocalDateTime local = LocalDateTime.of(1950 + random.nextInt(150), 1, 1, 0, 0)
+                    .plusMinutes(random.nextInt(366 * 24 * 60));
+                ZonedDateTime expected = ZonedDateTime.of(local, zoneId);
+                assertEquals(expected, DateUtil.toZonedDateTime(local, zone));
+                assertEquals(expected, DateUtil.toZonedDateTime(local, zoneId));
+                ZonedDateTime utc = expected.withZoneSameInstant(ZoneId.of("UTC"));
+                assertEquals(expected.toLocalDateTime(), DateUtil.toLocalDateTime(utc, zone));
+                assertEquals(expected.toLocalDateTime(), DateUtil.toLocalDateTime(utc, zoneId));
+                assertEquals(DateUtil.toString(utc, zone, DateUtil.UUUUMMDDHHMMSS_SLASH),
+                    DateUtil.toString(utc, zoneId, DateUtil.UUUUMMDDHHMMSS_SLASH));
+            }
+        }
+    }
+
+    @Test
+    void zoneConversionMatchesJavaTimeAtAnyYear() {
+        Random random = new Random(7);
+        List<LocalDateTime> locals = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            locals.add(LocalDateTime.of(1900 + random.nextInt(200), 1, 1, 0, 0)
+                .plusSeconds(random.nextInt(366 * 86400)).plusNanos(random.nextInt(1_000_000_000)));
+        }
+        // beyond the range of epoch millis, and at the ends of LocalDateTime where the conversion may not fit
+        for (int year : new int[] {-999_999_999, -300_000_000, -146_000_000, 146_000_000, 300_000_000, 999_999_999}) {
+            locals.add(LocalDateTime.of(year, 6, 15, 12, 30, 45, 123_456_789));
+        }
+        locals.add(LocalDateTime.MIN);
+        locals.add(LocalDateTime.MAX);
+        for (String from : ZONES) {
+            ZoneId fromId = ZoneId.of(from, ZoneId.SHORT_IDS);
+            for (String to : ZONES) {
+                ZoneId toId = ZoneId.of(to, ZoneId.SHORT_IDS);
+                for (LocalDateTime local : locals) {
+                    LocalDateTime expected;
+                    try {
+                        expected = local.atZone(fromId).withZoneSameInstant(toId).toLocalDateTime();
+                    } catch (DateTimeException e) {
+                        assertThrows(DateTimeException.class, () -> DateUtil.toLocalDateTime(local, fromId, toId));
+                        continue;
+                    }
+                    assertEquals(expected, DateUtil.toLocalDateTime(local, fromId, toId),
+                        from + " " + to + " " + local);
+                }
+            }
+        }
+    }
+
+    @Test
+    void nullValuesStayNullWithAnyZone() {
+        assertNull(DateUtil.toZonedDateTime((LocalDateTime) null, "Mars/Olympus"));
+        assertNull(DateUtil.toZonedDateTime((LocalDate) null, (ZoneId) null));
+    }
+
+    @Test
+    void epochApiMatchesJavaTime() {
+        Random random = new Random(6);
+        String[] formats = {DateUtil.UUUUMMDDHHMMSS_SLASH, DateUtil.UUUUMMDDHHMMSSSSS, DateUtil.ISO_LOCAL_DATE_TIME,
+            DateUtil.UUUUMMDD, DateUtil.UUUUMMDDHHMM_HYPHEN, "dd.MM.uuuu HH:mm"};
+        for (String zone : ZONES) {
+            ZoneId zoneId = ZoneId.of(zone, ZoneId.SHORT_IDS);
+            for (String format : formats) {
+                DateTimeFormatter formatter = DateTimeFormatter.ofPattern(format);
+                for (int i = 0; i < 300; i++) {
+                    LocalDateTime local = LocalDateTime.of(1900 + random.nextInt(200), 1, 1, 0, 0)
+                        .plusSeconds(random.nextInt(366 * 86400)).plusNanos(random.nextInt(1000) * 1_000_000L);
+                    String text = formatter.format(local);
+                    LocalDateTime parsed = parse(text, formatter);
+                    long epochMilli = parsed.atZone(zoneId).toInstant().toEpochMilli();
+                    assertEquals(epochMilli, DateUtil.toEpochMilli(text, format, zone), text);
+                    assertEquals(epochMilli, DateUtil.toEpochMilli(text, format, zoneId), text);
+                    assertEquals(formatter.format(Instant.ofEpochMilli(epochMilli).atZone(zoneId)),
+                        DateUtil.epochMilliToString(epochMilli, zoneId, format));
+                    assertEquals(parsed.toLocalDate().toEpochDay(), DateUtil.toEpochDay(text, format));
+                    assertEquals(formatter.format(parsed.toLocalDate().atStartOfDay()),
+                        DateUtil.epochDayToString((int) parsed.toLocalDate().toEpochDay(), format));
+                }
+            }
+        }
+    }
+
+    @Test
+    void epochApiUsesOffsetOfTheTextAndRejectsInvalidText() {
+        String text = "2016-04-19T23:00:00.123+09:00[Asia/Tokyo]";
+        long expected = ZonedDateTime.parse(text, DateTimeFormatter.ofPattern(DateUtil.ISO_ZONED_DATE_TIME))
+            .toInstant().toEpochMilli();
+        assertEquals(expected, DateUtil.toEpochMilli(text, DateUtil.ISO_ZONED_DATE_TIME, "UTC"));
+        assertThrows(DateTimeException.class,
+            () -> DateUtil.toEpochMilli("2023/02/29 00:00:00", DateUtil.UUUUMMDDHHMMSS_SLASH, "UTC"));
+        assertThrows(DateTimeException.class, () -> DateUtil.toEpochDay("2023-13-01", DateUtil.ISO_LOCAL_DATE));
+        // years beyond the fixed layout fall back to the formatter
+        LocalDate far = LocalDate.of(10000, 1, 1);
+        assertEquals(DateTimeFormatter.ofPattern(DateUtil.UUUUMMDD_SLASH).format(far),
+            DateUtil.epochDayToString((int) far.toEpochDay(), DateUtil.UUUUMMDD_SLASH));
+    }
+
+    private static LocalDateTime parse(String text, DateTimeFormatter formatter) {
+        TemporalAccessor temporal = formatter.withResolverStyle(ResolverStyle.STRICT).parse(text);
+        LocalTime time = temporal.query(TemporalQueries.localTime());
+        return LocalDate.from(temporal).atTime(time != null ? time : LocalTime.MIDNIGHT);
+    }
+
+    @Test
+    void detectFormatMatchesTryingEachPattern() {
+        String[] detectable = {DateUtil.UUUUMMDD, DateUtil.ISO_LOCAL_DATE, DateUtil.UUUUMMDD_SLASH,
+            DateUtil.UUUUMMDDHHMM, DateUtil.UUUUMMDDHHMM_HYPHEN, DateUtil.UUUUMMDDHHMM_SLASH, DateUtil.UUUUMMDDHHMMSS,
+            DateUtil.UUUUMMDDHHMMSS_HYPHEN, DateUtil.UUUUMMDDHHMMSS_SLASH, DateUtil.UUUUMMDDHHMMSSSSS,
+            DateUtil.UUUUMMDDHHMMSSSSS_HYPHEN, DateUtil.UUUUMMDDHHMMSSSSS_SLASH, DateUtil.ISO_LOCAL_DATE_TIME};
+        String noise = "0123456789/-: .T";
+        Random random = new Random(10);
+        ZoneId zone = ZoneId.of("America/New_York");
+        for (String format : detectable) {
+            DateTimeFormatter formatter = DateTimeFormatter.ofPattern(format);
+            for (int i = 0; i < 3000; i++) {
+                String text = formatter.format(LocalDateTime.of(random.nextInt(10000), 1, 1, 0, 0)
+                    .plusSeconds(random.nextInt(366 * 86400)).plusNanos(random.nextInt(1000) * 1_000_000L));
+                if (i % 2 == 1) {
+                    char[] chars = text.toCharArray();
+                    chars[random.nextInt(chars.length)] = noise.charAt(random.nextInt(noise.length()));
+                    text = new String(chars);
+                }
+
+                // reference: try every pattern in turn, at most one can match; the formatter also reads signed
+                // and longer years, only 4 digit years are detected
+                String expected = null;
+                LocalDateTime expectedValue = null;
+                for (String candidate : detectable) {
+                    try {
+                        LocalDateTime value = parse(text, DateTimeFormatter.ofPattern(candidate));
+                        if (value.getYear() < 0 || value.getYear() > 9999) {
+                            continue;
+                        }
+                        assertNull(expected, text + " matches " + expected + " and " + candidate);
+                        expected = candidate;
+                        expectedValue = value;
+                    } catch (DateTimeException e) {
+                        // not this pattern
+                    }
+                }
+                assertEquals(expected, DateUtil.detectFormat(text), text);
+                assertEquals(expectedValue, DateUtil.parseLocalDateTime(text), text);
+                assertEquals(expectedValue == null ? -1L : expectedValue.atZone(zone).toInstant().toEpochMilli(),
+                    DateUtil.parseEpochMilli(text, zone, -1L), text);
+            }
+        }
+        for (String text : new String[] {null, "", "2016", "2016-04-19T23:00:00.123+09:00[Asia/Tokyo]",
+            "2016.04.19", "23:00:00"}) {
+            assertNull(DateUtil.detectFormat(text), text);
+            assertNull(DateUtil.parseLocalDateTime(text), text);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package cn.dlysxx.www.common.date;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.DateTimeException;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class EpochColumnTest {
+
+    private static final ZoneId ZONE = ZoneId.of("Europe/Paris");
+
+    @Test
+    void columnMatchesSingleValuesBelowAndAboveParallelThreshold() {
+        for (int size : new int[] {0, 100, 20_000}) {
+            String[] column = column(size, DateUtil.UUUUMMDDHHMMSS_HYPHEN, new Random(size));
+            EpochColumn parsed = DateUtil.toEpochMilli(column, DateUtil.UUUUMMDDHHMMSS_HYPHEN, ZONE);
+            assertEquals(size, parsed.size());
+            List<Integer> errorRows = new ArrayList<>();
+            for (int row = 0; row < size; row++) {
+                String str = column[row];
+                if (str == null || str.trim().isEmpty()) {
+                    assertFalse(parsed.isPresent(row));
+                    assertNull(parsed.getError(row));
+                    continue;
+                }
+                try {
+                    long expected = DateUtil.toEpochMilli(str, DateUtil.UUUUMMDDHHMMSS_HYPHEN, ZONE);
+                    assertTrue(parsed.isPresent(row));
+                    assertEquals(expected, parsed.get(row));
+                } catch (DateTimeException e) {
+                    assertFalse(parsed.isPresent(row));
+                    assertEquals(0, parsed.get(row));
+                    assertEquals(e.getMessage(), parsed.getError(row));
+                    errorRows.add(row);
+                }
+            }
+            assertArrayEquals(errorRows.stream().mapToInt(Integer::intValue).toArray(), parsed.getErrorRows());
+            assertEquals(!errorRows.isEmpty(), parsed.hasErrors());
+
+            // formatting the values back gives the valid rows
+            String[] formatted = DateUtil.epochMilliToString(parsed.getValues(), ZONE,
+                DateUtil.UUUUMMDDHHMMSS_HYPHEN);
+            for (int row = 0; row < size; row++) {
+                if (parsed.isPresent(row)) {
+                    assertEquals(DateUtil.epochMilliToString(parsed.get(row), ZONE, DateUtil.UUUUMMDDHHMMSS_HYPHEN),
+                        formatted[row]);
+                }
+            }
+        }
+    }
+
+    @Test
+    void epochDayColumnRoundTrip() {
+        String[] column = column(10_000, DateUtil.UUUUMMDD_SLASH, new Random(7));
+        EpochColumn parsed = DateUtil.toEpochDay(Arrays.asList(column), DateUtil.UUUUMMDD_SLASH);
+        String[] formatted = DateUtil.epochDayToString(parsed.getValues(), DateUtil.UUUUMMDD_SLASH);
+        for (int row = 0; row < column.length; row++) {
+            if (parsed.isPresent(row)) {
+                assertEquals(DateUtil.toEpochDay(column[row], DateUtil.UUUUMMDD_SLASH), parsed.get(row));
+                assertEquals(column[row], formatted[row]);
+            } else if (column[row] != null && !column[row].trim().isEmpty()) {
+                assertNotNull(parsed.getError(row));
+            }
+        }
+        assertTrue(parsed.hasErrors());
+    }
+
+    /**
+     * Valid values with some blank, invalid date and garbage rows.
+     */
+    private static String[] column(int size, String format, Random random) {
+        String[] column = new String[size];
+        for (int row = 0; row < size; row++) {
+            String value = DateUtil.epochMilliToString(random.nextLong() % (100L * 365 * 86_400_000), ZONE, format);
+            switch (random.nextInt(20)) {
+                case 0:
+                    column[row] = random.nextBoolean() ? null : " ";
+                    break;
+                case 1:
+                    // February 30th, valid layout but invalid date
+                    column[row] = value.substring(0, 5) + "02" + value.charAt(7) + "30" + value.substring(10);
+                    break;
+                case 2:
+                    column[row] = "not a date";
+                    break;
+                default:
+                    column[row] = value;
+            }
+        }
+        return column;
+    }
+}
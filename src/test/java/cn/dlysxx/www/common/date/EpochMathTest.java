@@ -0,0 +1,68 @@
+package cn.dlysxx.www.common.date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class EpochMathTest {
+
+    @Test
+    void epochDayMatchesLocalDate() {
+        // every day of years -1000 to 10999, across 400 year cycles and negative epoch days
+        LocalDate date = LocalDate.of(-1000, 1, 1);
+        LocalDate end = LocalDate.of(11000, 1, 1);
+        while (date.isBefore(end)) {
+            long epochDay = date.toEpochDay();
+            assertEquals(epochDay, EpochMath.epochDay(date.getYear(), date.getMonthValue(), date.getDayOfMonth()));
+            long civil = EpochMath.civil(epochDay);
+            assertEquals(date.getYear(), EpochMath.year(civil));
+            assertEquals(date.getMonthValue(), EpochMath.month(civil));
+            assertEquals(date.getDayOfMonth(), EpochMath.day(civil));
+            date = date.plusDays(1);
+        }
+    }
+
+    @Test
+    void localMillisMatchesLocalDateTime() {
+        Random random = new Random(4);
+        for (int i = 0; i < 100_000; i++) {
+            LocalDateTime local = LocalDateTime.of(random.nextInt(10000), 1, 1, 0, 0)
+                .plusDays(random.nextInt(366))
+                .plusNanos(random.nextInt(86_400_000) * 1_000_000L);
+            long packed = (long) local.getYear() << 36 | (long) local.getMonthValue() << 32
+                | (long) local.getDayOfMonth() << 27 | (long) local.getHour() << 22 | (long) local.getMinute() << 16
+                | (long) local.getSecond() << 10 | local.getNano() / 1_000_000;
+            assertEquals(local.toInstant(ZoneOffset.UTC).toEpochMilli(), EpochMath.localMillis(packed),
+                local::toString);
+        }
+    }
+
+    @Test
+    void zoneConversionMatchesZonedDateTime() {
+        Random random = new Random(5);
+        ZoneId[] zones = {ZoneOffset.UTC, ZoneOffset.ofHoursMinutes(-9, -30), ZoneId.of("Asia/Shanghai"),
+            ZoneId.of("Europe/London"), ZoneId.of("America/Sao_Paulo"), ZoneId.of("Australia/Lord_Howe")};
+        for (ZoneId zone : zones) {
+            for (int i = 0; i < 20_000; i++) {
+                // random minutes, transitions one by one are checked by ZoneOffsetTableTest
+                LocalDateTime local = LocalDateTime.of(1900 + random.nextInt(200), 1, 1, 0, 0)
+                    .plusMinutes(random.nextInt(366 * 24 * 60));
+                long localMillis = local.toInstant(ZoneOffset.UTC).toEpochMilli();
+                long expected = ZonedDateTime.of(local, zone).toInstant().toEpochMilli();
+                assertEquals(expected, EpochMath.toEpochMilli(localMillis, zone), zone + " " + local);
+
+                long epochMilli = random.nextLong() % (200L * 365 * EpochMath.MILLIS_PER_DAY);
+                LocalDateTime at = LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMilli), zone);
+                assertEquals(at.toInstant(ZoneOffset.UTC).toEpochMilli(), EpochMath.toLocalMillis(epochMilli, zone),
+                    zone + " " + epochMilli);
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package cn.dlysxx.www.common.date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.ResolverStyle;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class FixedDateLayoutTest {
+
+    private static final String[] PATTERNS = {DateUtil.ISO_LOCAL_DATE_TIME, DateUtil.ISO_LOCAL_DATE,
+        DateUtil.ISO_LOCAL_TIME, DateUtil.UUUU, DateUtil.MM, DateUtil.UUUUMM, DateUtil.UUUUMM_HYPHEN,
+        DateUtil.UUUUMM_SLASH, DateUtil.UUUUMMDD, DateUtil.UUUUMMDD_SLASH, DateUtil.UUUUMMDDHHMM,
+        DateUtil.UUUUMMDDHHMM_HYPHEN, DateUtil.UUUUMMDDHHMM_SLASH, DateUtil.UUUUMMDDHHMMSS,
+        DateUtil.UUUUMMDDHHMMSS_HYPHEN, DateUtil.UUUUMMDDHHMMSS_SLASH, DateUtil.UUUUMMDDHHMMSSSSS,
+        DateUtil.UUUUMMDDHHMMSSSSS_HYPHEN, DateUtil.UUUUMMDDHHMMSSSSS_SLASH, DateUtil.HHMMSS_TIME, DateUtil.HHMMSS,
+        DateUtil.HHMMSSSSS};
+
+    private static final ChronoField[] FIELDS = {ChronoField.YEAR, ChronoField.MONTH_OF_YEAR,
+        ChronoField.DAY_OF_MONTH, ChronoField.HOUR_OF_DAY, ChronoField.MINUTE_OF_HOUR, ChronoField.SECOND_OF_MINUTE,
+        ChronoField.MILLI_OF_SECOND};
+
+    private static final String NOISE = "0123456789/-:. Tx";
+
+    @Test
+    void formatMatchesFormatter() {
+        Random random = new Random(1);
+        for (String pattern : PATTERNS) {
+            FixedDateLayout layout = FixedDateLayout.compile(pattern);
+            assertNotNull(layout, pattern);
+            DateTimeFormatter formatter = formatter(pattern);
+            for (int i = 0; i < 2000; i++) {
+                LocalDateTime value = randomDateTime(random);
+                if (layout.has(FixedDateLayout.YEAR) || layout.has(FixedDateLayout.MONTH)) {
+                    assertEquals(formatter.format(value), layout.format(value), pattern);
+                } else {
+                    assertEquals(formatter.format(value.toLocalTime()), layout.format(value.toLocalTime()), pattern);
+                }
+            }
+        }
+    }
+
+    @Test
+    void parseMatchesStrictFormatterOnValidAndMutatedInput() {
+        Random random = new Random(2);
+        for (String pattern : PATTERNS) {
+            FixedDateLayout layout = FixedDateLayout.compile(pattern);
+            DateTimeFormatter formatter = formatter(pattern);
+            for (int i = 0; i < 5000; i++) {
+                String valid = formatter.format(randomDateTime(random));
+                assertNotEquals(FixedDateLayout.INVALID, layout.parse(valid), pattern + " " + valid);
+                assertSameAsFormatter(layout, formatter, valid);
+                assertSameAsFormatter(layout, formatter, mutate(valid, random));
+            }
+        }
+    }
+
+    @Test
+    void calendarEdges() {
+        FixedDateLayout layout = FixedDateLayout.compile(DateUtil.UUUUMMDD_SLASH);
+        assertNotEquals(FixedDateLayout.INVALID, layout.parse("2000/02/29"));
+        assertNotEquals(FixedDateLayout.INVALID, layout.parse("2024/02/29"));
+        assertEquals(FixedDateLayout.INVALID, layout.parse("1900/02/29"));
+        assertEquals(FixedDateLayout.INVALID, layout.parse("2023/02/29"));
+        assertEquals(FixedDateLayout.INVALID, layout.parse("2023/04/31"));
+        assertEquals(FixedDateLayout.INVALID, layout.parse("2023/13/01"));
+        assertEquals(FixedDateLayout.INVALID, layout.parse("2023/00/01"));
+        assertEquals(FixedDateLayout.INVALID, layout.parse("2023/1/01"));
+        assertEquals(FixedDateLayout.INVALID, layout.parse("2023-01-01"));
+        assertNull(FixedDateLayout.compile(DateUtil.HHMMSS).parseLocalDateTime("235959"));
+        assertEquals(LocalTime.of(23, 59, 59), FixedDateLayout.compile(DateUtil.HHMMSS).parseLocalTime("235959"));
+        assertEquals(FixedDateLayout.INVALID, FixedDateLayout.compile(DateUtil.HHMMSS).parse("240000"));
+    }
+
+    @Test
+    void unsupportedPatternsAreNotCompiled() {
+        for (String pattern : new String[] {"uu", "yyyy-MM-dd", "uuuu-M-d", "uuuu-MM-dd'T'HH:mm:ssXXX", "uuuu''MM",
+            "uuuu[-MM]", "dd/MM", "HH:ss", "uuuu-MM-dd HH", "mm:ss"}) {
+            assertNull(FixedDateLayout.compile(pattern), pattern);
+        }
+        assertNotNull(FixedDateLayout.compile("uuuu'年'MM'月'dd'日'"));
+    }
+
+    /**
+     * The layout either rejects the input, leaving it to the formatter, or agrees with the formatter on every field.
+     */
+    private static void assertSameAsFormatter(FixedDateLayout layout, DateTimeFormatter formatter, String s) {
+        long packed = layout.parse(s);
+        if (packed == FixedDateLayout.INVALID) {
+            return;
+        }
+        TemporalAccessor parsed;
+        try {
+            parsed = formatter.parse(s);
+        } catch (DateTimeException e) {
+            throw new AssertionError("Layout accepted " + s + " rejected by " + formatter, e);
+        }
+        long[] fields = {FixedDateLayout.year(packed), FixedDateLayout.month(packed), FixedDateLayout.day(packed),
+            FixedDateLayout.hour(packed), FixedDateLayout.minute(packed), FixedDateLayout.second(packed),
+            FixedDateLayout.milli(packed)};
+        for (int f = 0; f < FIELDS.length; f++) {
+            if (layout.has(1 << f)) {
+                assertEquals(parsed.getLong(FIELDS[f]), fields[f], s + " " + FIELDS[f]);
+            }
+        }
+    }
+
+    private static String mutate(String s, Random random) {
+        char[] chars = s.toCharArray();
+        chars[random.nextInt(chars.length)] = NOISE.charAt(random.nextInt(NOISE.length()));
+        return new String(chars);
+    }
+
+    private static LocalDateTime randomDateTime(Random random) {
+        // mostly recent dates, sometimes any 4 digit year
+        int year = random.nextInt(4) == 0 ? random.nextInt(10000) : 1900 + random.nextInt(200);
+        return LocalDateTime.of(year, 1, 1, 0, 0)
+            .plusDays(random.nextInt(366))
+            .plusSeconds(random.nextInt(86400))
+            .plusNanos(random.nextInt(1000) * 1_000_000L);
+    }
+
+    private static DateTimeFormatter formatter(String pattern) {
+        return DateTimeFormatter.ofPattern(pattern).withResolverStyle(ResolverStyle.STRICT);
+    }
+}
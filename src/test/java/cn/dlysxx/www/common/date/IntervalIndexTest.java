@@ -0,0 +1,88 @@
+package cn.dlysxx.www.common.date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class IntervalIndexTest {
+
+    @Test
+    void queriesMatchBruteForce() {
+        Random random = new Random(8);
+        for (int n : new int[] {0, 1, 2, 3, 7, 64, 1000}) {
+            long[] starts = new long[n];
+            long[] ends = new long[n];
+            for (int i = 0; i < n; i++) {
+                // duplicate starts, points, short and very long periods
+                starts[i] = random.nextInt(500);
+                ends[i] = starts[i] + (random.nextInt(10) == 0 ? random.nextInt(500) : random.nextInt(20));
+            }
+            IntervalIndex index = IntervalIndex.of(starts, ends);
+            assertEquals(n, index.size());
+            for (long target = -5; target < 1100; target++) {
+                List<Integer> expected = bruteForce(starts, ends, target, target);
+                assertEquals(expected, collectContaining(index, target), "n " + n + " target " + target);
+                assertEquals(expected.size(), index.countContaining(target));
+                assertEquals(!expected.isEmpty(), index.anyContaining(target), "n " + n + " target " + target);
+            }
+            for (int q = 0; q < 2000; q++) {
+                long from = random.nextInt(1100) - 5;
+                long to = from + random.nextInt(q % 2 == 0 ? 5 : 300);
+                List<Integer> expected = bruteForce(starts, ends, from, to);
+                List<Integer> actual = new ArrayList<>();
+                index.forEachOverlapping(from, to, actual::add);
+                assertEquals(expected, actual, "n " + n + " [" + from + ", " + to + "]");
+            }
+            List<Integer> none = new ArrayList<>();
+            index.forEachOverlapping(10, 9, none::add);
+            assertEquals(0, none.size());
+        }
+    }
+
+    @Test
+    void extremeValuesAndListInput() {
+        long[] starts = {Long.MIN_VALUE, 0, Long.MAX_VALUE};
+        long[] ends = {Long.MAX_VALUE, 0, Long.MAX_VALUE};
+        IntervalIndex index = IntervalIndex.of(starts, ends);
+        assertEquals(Arrays.asList(0, 1), collectContaining(index, 0));
+        assertEquals(Arrays.asList(0, 2), collectContaining(index, Long.MAX_VALUE));
+        assertEquals(Arrays.asList(0), collectContaining(index, Long.MIN_VALUE));
+
+        List<long[]> periods = Arrays.asList(new long[] {5, 9}, new long[] {1, 3}, new long[] {2, 6});
+        IntervalIndex fromList = IntervalIndex.of(periods, p -> p[0], p -> p[1]);
+        // ascending order of start, reported by position in the list
+        assertEquals(Arrays.asList(1, 2), collectContaining(fromList, 3));
+        assertEquals(Arrays.asList(2, 0), collectContaining(fromList, 5));
+    }
+
+    @Test
+    void rejectsInvalidPeriods() {
+        assertThrows(IllegalArgumentException.class, () -> IntervalIndex.of(new long[] {1}, new long[] {1, 2}));
+        assertThrows(IllegalArgumentException.class, () -> IntervalIndex.of(new long[] {2}, new long[] {1}));
+    }
+
+    private static List<Integer> collectContaining(IntervalIndex index, long target) {
+        List<Integer> result = new ArrayList<>();
+        index.forEachContaining(target, result::add);
+        return result;
+    }
+
+    /**
+     * Overlapping periods in ascending order of start, ties by input position like the stable sort of the index.
+     */
+    private static List<Integer> bruteForce(long[] starts, long[] ends, long from, long to) {
+        List<Integer> result = new ArrayList<>();
+        for (int i = 0; i < starts.length; i++) {
+            if (starts[i] <= to && ends[i] >= from) {
+                result.add(i);
+            }
+        }
+        result.sort((a, b) -> Long.compare(starts[a], starts[b]));
+        return result;
+    }
+}
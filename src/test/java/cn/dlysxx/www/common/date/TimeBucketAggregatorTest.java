@@ -0,0 +1,72 @@
+package cn.dlysxx.www.common.date;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.jupiter.api.Test;
+
+class TimeBucketAggregatorTest {
+
+    private static final ZoneId ZONE = ZoneId.of("Europe/Berlin");
+
+    @Test
+    void matchesTreeMapAndMergesPerThreadResults() {
+        Random random = new Random(13);
+        for (TimeGranularity granularity : TimeGranularity.values()) {
+            Map<Long, long[]> expected = new TreeMap<>();
+            TimeBucketAggregator all = new TimeBucketAggregator(granularity, ZONE);
+            TimeBucketAggregator[] parts = {new TimeBucketAggregator(granularity, ZONE),
+                new TimeBucketAggregator(granularity, ZONE), new TimeBucketAggregator(granularity, ZONE)};
+            // enough buckets to grow the map several times
+            for (int i = 0; i < 50_000; i++) {
+                long epochMilli = random.nextLong() % (30L * 365 * EpochMath.MILLIS_PER_DAY);
+                long value = random.nextInt(1000) - 500;
+                long[] bucket = expected.computeIfAbsent(granularity.bucket(epochMilli, ZONE), k -> new long[2]);
+                bucket[0]++;
+                bucket[1] += value;
+                all.add(epochMilli, value);
+                parts[i % parts.length].add(epochMilli, value);
+            }
+            TimeBucketAggregator merged = new TimeBucketAggregator(granularity, ZONE);
+            for (TimeBucketAggregator part : parts) {
+                merged.merge(part);
+            }
+            for (TimeBucketAggregator aggregator : new TimeBucketAggregator[] {all, merged}) {
+                assertEquals(expected.size(), aggregator.size());
+                assertArrayEquals(expected.keySet().stream().mapToLong(Long::longValue).toArray(),
+                    aggregator.getBuckets());
+                List<long[]> reported = new ArrayList<>();
+                aggregator.forEach((bucket, count, sum) -> reported.add(new long[] {bucket, count, sum}));
+                int i = 0;
+                for (Map.Entry<Long, long[]> entry : expected.entrySet()) {
+                    long bucket = entry.getKey();
+                    assertEquals(entry.getValue()[0], aggregator.getCount(bucket));
+                    assertEquals(entry.getValue()[1], aggregator.getSum(bucket));
+                    assertArrayEquals(new long[] {bucket, entry.getValue()[0], entry.getValue()[1]}, reported.get(i++));
+                }
+            }
+        }
+    }
+
+    @Test
+    void missingBucketsAndMismatchedMerge() {
+        TimeBucketAggregator aggregator = new TimeBucketAggregator(TimeGranularity.HOUR, ZONE);
+        aggregator.add(0L);
+        aggregator.add(1L);
+        assertEquals(1, aggregator.size());
+        assertEquals(2, aggregator.getCount(TimeGranularity.HOUR.bucket(0L, ZONE)));
+        assertEquals(0, aggregator.getSum(TimeGranularity.HOUR.bucket(0L, ZONE)));
+        assertEquals(0, aggregator.getCount(123L));
+        assertThrows(IllegalArgumentException.class,
+            () -> aggregator.merge(new TimeBucketAggregator(TimeGranularity.DAY, ZONE)));
+        assertThrows(IllegalArgumentException.class,
+            () -> aggregator.merge(new TimeBucketAggregator(TimeGranularity.HOUR, ZoneId.of("UTC"))));
+    }
+}
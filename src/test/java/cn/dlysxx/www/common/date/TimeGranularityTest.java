@@ -0,0 +1,94 @@
+package cn.dlysxx.www.common.date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.time.zone.ZoneOffsetTransition;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class TimeGranularityTest {
+
+    /** Zones with half hour offsets, DST at midnight, and a skipped day (Pacific/Apia, 2011-12-30) */
+    private static final ZoneId[] ZONES = {ZoneOffset.UTC, ZoneId.of("Asia/Kolkata"), ZoneId.of("Asia/Shanghai"),
+        ZoneId.of("America/Sao_Paulo"), ZoneId.of("Europe/London"), ZoneId.of("Australia/Lord_Howe"),
+        ZoneId.of("Pacific/Apia"), ZoneId.of("America/Havana")};
+
+    @Test
+    void bucketsMatchJavaTime() {
+        Random random = new Random(12);
+        for (ZoneId zone : ZONES) {
+            List<Long> instants = new ArrayList<>();
+            for (int i = 0; i < 3000; i++) {
+                instants.add(random.nextLong() % (80L * 365 * EpochMath.MILLIS_PER_DAY));
+            }
+            // around every transition, where bucket starts may fall into gaps or overlaps
+            ZoneOffsetTransition transition = zone.getRules().nextTransition(Instant.ofEpochMilli(0));
+            while (transition != null && transition.getInstant().getEpochSecond() < 2_000_000_000L) {
+                long at = transition.toEpochSecond() * 1000;
+                for (long delta : new long[] {-EpochMath.MILLIS_PER_DAY, -EpochMath.MILLIS_PER_HOUR, -1, 0, 1,
+                    EpochMath.MILLIS_PER_HOUR, EpochMath.MILLIS_PER_DAY}) {
+                    instants.add(at + delta);
+                }
+                transition = zone.getRules().nextTransition(transition.getInstant());
+            }
+            for (long epochMilli : instants) {
+                for (TimeGranularity granularity : TimeGranularity.values()) {
+                    LocalDateTime start = localStart(granularity, epochMilli, zone);
+                    String message = granularity + " " + zone + " " + Instant.ofEpochMilli(epochMilli);
+                    assertEquals(start.atZone(zone).toInstant().toEpochMilli(), granularity.bucket(epochMilli, zone),
+                        message);
+                    assertEquals(next(granularity, start).atZone(zone).toInstant().toEpochMilli(),
+                        granularity.nextBucket(epochMilli, zone), message);
+                    long localMillis = LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMilli), zone)
+                        .toInstant(ZoneOffset.UTC).toEpochMilli();
+                    assertEquals(start.toInstant(ZoneOffset.UTC).toEpochMilli(),
+                        granularity.truncateLocalMillis(localMillis), message);
+                }
+            }
+        }
+    }
+
+    private static LocalDateTime localStart(TimeGranularity granularity, long epochMilli, ZoneId zone) {
+        LocalDateTime local = LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMilli), zone);
+        switch (granularity) {
+            case MINUTE:
+                return local.truncatedTo(ChronoUnit.MINUTES);
+            case HOUR:
+                return local.truncatedTo(ChronoUnit.HOURS);
+            case DAY:
+                return local.truncatedTo(ChronoUnit.DAYS);
+            case WEEK:
+                return local.toLocalDate().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).atStartOfDay();
+            case MONTH:
+                return local.toLocalDate().withDayOfMonth(1).atStartOfDay();
+            default:
+                return local.toLocalDate().withDayOfYear(1).atStartOfDay();
+        }
+    }
+
+    private static LocalDateTime next(TimeGranularity granularity, LocalDateTime start) {
+        switch (granularity) {
+            case MINUTE:
+                return start.plusMinutes(1);
+            case HOUR:
+                return start.plusHours(1);
+            case DAY:
+                return start.plusDays(1);
+            case WEEK:
+                return start.plusWeeks(1);
+            case MONTH:
+                return start.plusMonths(1);
+            default:
+                return start.plusYears(1);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package cn.dlysxx.www.common.date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class ZoneOffsetTableTest {
+
+    @Test
+    void matchesZoneRulesAroundEveryTransitionOfEveryZone() {
+        Random random = new Random(11);
+        for (String id : ZoneId.getAvailableZoneIds()) {
+            ZoneId zone = ZoneId.of(id);
+            ZoneRules rules = zone.getRules();
+            ZoneOffsetTable table = ZoneOffsetTable.create(zone, 1970, 2040);
+            long end = LocalDateTime.of(2041, 1, 1, 0, 0).toInstant(ZoneOffset.UTC).toEpochMilli();
+            ZoneOffsetTransition transition = rules.nextTransition(Instant.ofEpochMilli(-1));
+            while (transition != null && transition.toEpochSecond() * 1000 < end) {
+                long instant = transition.toEpochSecond() * 1000;
+                long before = transition.getOffsetBefore().getTotalSeconds() * 1000L;
+                long after = transition.getOffsetAfter().getTotalSeconds() * 1000L;
+                for (long delta : new long[] {-1, 0, 1}) {
+                    check(table, instant + delta);
+                    // local times at both ends of the gap or overlap
+                    checkLocal(table, instant + before + delta);
+                    checkLocal(table, instant + after + delta);
+                    checkLocal(table, instant + (before + after) / 2 + delta);
+                }
+                transition = rules.nextTransition(transition.getInstant());
+            }
+            for (int i = 0; i < 20; i++) {
+                long millis = random.nextLong() % (100L * 365 * EpochMath.MILLIS_PER_DAY);
+                check(table, millis);
+                checkLocal(table, millis);
+            }
+        }
+    }
+
+    @Test
+    void valuesOutsideTheYearsUseZoneRules() {
+        ZoneId zone = ZoneId.of("Europe/Paris");
+        ZoneOffsetTable table = ZoneOffsetTable.create(zone, 2000, 2001);
+        long start = LocalDateTime.of(2000, 1, 1, 0, 0).toInstant(ZoneOffset.UTC).toEpochMilli();
+        long end = LocalDateTime.of(2002, 1, 1, 0, 0).toInstant(ZoneOffset.UTC).toEpochMilli();
+        for (long edge : new long[] {start, end}) {
+            for (long delta = -20 * EpochMath.MILLIS_PER_HOUR; delta <= 20 * EpochMath.MILLIS_PER_HOUR;
+                delta += 15 * EpochMath.MILLIS_PER_MINUTE) {
+                check(table, edge + delta);
+                checkLocal(table, edge + delta);
+            }
+        }
+        // summer before and after the table
+        for (int year : new int[] {1999, 2002, 1900, 2200}) {
+            long summer = LocalDateTime.of(year, 7, 1, 12, 0).toInstant(ZoneOffset.UTC).toEpochMilli();
+            check(table, summer);
+            checkLocal(table, summer);
+        }
+    }
+
+    @Test
+    void defaultTablesAreCachedPerZone() {
+        ZoneId zone = ZoneId.of("Asia/Shanghai");
+        ZoneOffsetTable table = ZoneOffsetTable.forZone(zone);
+        assertSame(table, ZoneOffsetTable.forZone(zone));
+        assertEquals(ZoneOffsetTable.DEFAULT_FIRST_YEAR, table.getFirstYear());
+        assertEquals(ZoneOffsetTable.DEFAULT_LAST_YEAR, table.getLastYear());
+        assertEquals(zone, table.getZone());
+        assertThrows(IllegalArgumentException.class, () -> ZoneOffsetTable.create(zone, 2001, 2000));
+        assertThrows(IllegalArgumentException.class, () -> ZoneOffsetTable.setDefaultYears(0, 1_000_000));
+    }
+
+    private static void check(ZoneOffsetTable table, long epochMilli) {
+        int expected = table.getZone().getRules().getOffset(Instant.ofEpochMilli(epochMilli)).getTotalSeconds() * 1000;
+        assertEquals(expected, table.getOffsetMillis(epochMilli), () -> table.getZone() + " at " + epochMilli);
+        assertEquals(epochMilli + expected, table.toLocalMillis(epochMilli));
+    }
+
+    private static void checkLocal(ZoneOffsetTable table, long localMillis) {
+        LocalDateTime local = LocalDateTime.ofEpochSecond(Math.floorDiv(localMillis, 1000),
+            Math.floorMod(localMillis, 1000) * 1_000_000, ZoneOffset.UTC);
+        assertEquals(local.atZone(table.getZone()).toInstant().toEpochMilli(), table.toEpochMilli(localMillis),
+            () -> table.getZone() + " local " + local);
+    }
+}
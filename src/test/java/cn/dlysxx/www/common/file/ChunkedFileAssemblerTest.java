@@ -0,0 +1,174 @@
+package cn.dlysxx.www.common.file;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ChunkedFileAssemblerTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void chunksInAnyOrderFromSeveralThreads() throws Exception {
+        Random random = new Random(19);
+        // empty, smaller than a chunk, exact multiple, and a short last chunk
+        for (int size : new int[] {0, 1, 1000, 4096, 300_001}) {
+            for (int chunkSize : new int[] {1, 1000, 4096}) {
+                if (chunkSize == 1 && size > 5000) {
+                    continue;
+                }
+                byte[] data = new byte[size];
+                random.nextBytes(data);
+                Path target = dir.resolve("target.bin");
+                Files.write(target, new byte[] {1, 2, 3});
+                ExecutorService executor = Executors.newFixedThreadPool(4);
+                try (ChunkedFileAssembler assembler = ChunkedFileAssembler.create(target, size, chunkSize)) {
+                    assertEquals((size + chunkSize - 1) / chunkSize, assembler.getChunkCount());
+                    List<Integer> order = new ArrayList<>();
+                    IntStream.range(0, assembler.getChunkCount()).forEach(order::add);
+                    Collections.shuffle(order, random);
+                    List<Future<?>> futures = new ArrayList<>();
+                    for (int index : order) {
+                        int offset = index * chunkSize;
+                        int length = assembler.getChunkSize(index);
+                        assertEquals(Math.min(chunkSize, size - offset), length);
+                        boolean stream = index % 2 == 0;
+                        futures.add(executor.submit(() -> {
+                            if (stream) {
+                                assembler.writeChunk(index, new ByteArrayInputStream(data, offset, length));
+                            } else {
+                                assembler.writeChunk(index, ByteBuffer.wrap(data, offset, length));
+                            }
+                            return null;
+                        }));
+                    }
+                    for (Future<?> future : futures) {
+                        future.get();
+                    }
+                    assertTrue(assembler.isComplete());
+                    assertEquals(0, assembler.getMissingChunks().length);
+                    assertEquals(target.toAbsolutePath(), assembler.finish(size % 2 == 0));
+                } finally {
+                    executor.shutdownNow();
+                }
+                assertArrayEquals(data, Files.readAllBytes(target), size + " / " + chunkSize);
+                assertEquals(1, fileCount(), "the partial file is renamed");
+            }
+        }
+    }
+
+    @Test
+    void failedChunksAreMissingUntilRewritten() throws Exception {
+        Path target = dir.resolve("target.bin");
+        byte[] data = new byte[2500];
+        new Random(20).nextBytes(data);
+        try (ChunkedFileAssembler assembler = ChunkedFileAssembler.create(target, data.length, 1000)) {
+            assertArrayEquals(new int[] {0, 1, 2}, assembler.getMissingChunks());
+            assembler.writeChunk(2, ByteBuffer.wrap(data, 2000, 500));
+            assertTrue(assembler.isCompleted(2));
+            assertThrows(IOException.class, () -> assembler.writeChunk(1, new ByteArrayInputStream(data, 0, 999)));
+            assertThrows(IOException.class, () -> assembler.writeChunk(1, new ByteArrayInputStream(data, 0, 1001)));
+            assertThrows(IOException.class, () -> assembler.writeChunk(1, ByteBuffer.wrap(data, 0, 500)));
+            assertFalse(assembler.isCompleted(1));
+            // a retried chunk is missing again until it succeeds
+            assertThrows(IOException.class, () -> assembler.writeChunk(2, new ByteArrayInputStream(data, 0, 10)));
+            assertArrayEquals(new int[] {0, 1, 2}, assembler.getMissingChunks());
+            assertThrows(IllegalStateException.class, () -> assembler.finish(false));
+
+            assembler.writeChunk(0, new ByteArrayInputStream(data, 0, 1000));
+            assembler.writeChunk(1, new ByteArrayInputStream(data, 1000, 1000));
+            assembler.writeChunk(2, new ByteArrayInputStream(data, 2000, 500));
+            assertTrue(assembler.isComplete());
+            assembler.finish(false);
+            assertThrows(IllegalStateException.class, () -> assembler.finish(false));
+        }
+        assertArrayEquals(data, Files.readAllBytes(target));
+    }
+
+    @Test
+    void closeDiscardsThePartialFile() throws Exception {
+        Path target = dir.resolve("target.bin");
+        Files.write(target, new byte[] {1, 2, 3});
+        try (ChunkedFileAssembler assembler = ChunkedFileAssembler.create(target, 5000, 1000)) {
+            assembler.writeChunk(0, ByteBuffer.allocate(1000));
+            assertEquals(2, fileCount());
+        }
+        assertArrayEquals(new byte[] {1, 2, 3}, Files.readAllBytes(target));
+        assertEquals(1, fileCount());
+    }
+
+    @Test
+    void rejectsInvalidInput() throws Exception {
+        Path target = dir.resolve("target.bin");
+        assertThrows(IllegalArgumentException.class, () -> ChunkedFileAssembler.create(target, -1, 10));
+        assertThrows(IllegalArgumentException.class, () -> ChunkedFileAssembler.create(target, 10, 0));
+        assertThrows(IllegalArgumentException.class, () -> ChunkedFileAssembler.create(target, Long.MAX_VALUE, 1));
+        assertThrows(IOException.class, () -> ChunkedFileAssembler.create(dir.resolve("missing/target.bin"), 1, 1));
+        try (ChunkedFileAssembler assembler = ChunkedFileAssembler.create(target, 10, 4)) {
+            assertThrows(IndexOutOfBoundsException.class, () -> assembler.getChunkSize(3));
+            assertThrows(IndexOutOfBoundsException.class, () -> assembler.isCompleted(-1));
+            assertThrows(IndexOutOfBoundsException.class, () -> assembler.writeChunk(3, ByteBuffer.allocate(2)));
+        }
+        assertEquals(0, fileCount());
+    }
+
+    @Test
+    void fileTooLargeForTheDiskIsRejectedUpFront() throws Exception {
+        long size = Files.getFileStore(dir).getUsableSpace() + (1L << 40);
+        IOException e = assertThrows(IOException.class,
+            () -> ChunkedFileAssembler.create(dir.resolve("target.bin"), size, Integer.MAX_VALUE));
+        assertTrue(e.getMessage().startsWith("Not enough space"), e.getMessage());
+        assertEquals(0, fileCount());
+    }
+
+    @Test
+    void fileHasThePermissionsOfANewFileOrTheReplacedOne() throws Exception {
+        assumeTrue(Files.getFileAttributeView(dir, PosixFileAttributeView.class) != null, "no POSIX permissions");
+        Path target = dir.resolve("target.bin");
+        try (ChunkedFileAssembler assembler = ChunkedFileAssembler.create(target, 1, 1)) {
+            assembler.writeChunk(0, ByteBuffer.allocate(1));
+            assembler.finish(false);
+        }
+        assertEquals(Files.getPosixFilePermissions(Files.createFile(dir.resolve("new"))),
+            Files.getPosixFilePermissions(target));
+
+        Set<PosixFilePermission> permissions = PosixFilePermissions.fromString("rw-r-----");
+        Files.setPosixFilePermissions(target, permissions);
+        try (ChunkedFileAssembler assembler = ChunkedFileAssembler.create(target, 1, 1)) {
+            assembler.writeChunk(0, ByteBuffer.allocate(1));
+            assembler.finish(false);
+        }
+        assertEquals(permissions, Files.getPosixFilePermissions(target));
+    }
+
+    private long fileCount() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.count();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package cn.dlysxx.www.common.file;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ContentAddressedStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void keysAreDigestsOfTheContent() throws Exception {
+        Random random = new Random(21);
+        for (String algorithm : new String[] {ContentAddressedStore.DEFAULT_ALGORITHM, "SHA-1", "MD5"}) {
+            ContentAddressedStore store = ContentAddressedStore.open(dir.resolve(algorithm), algorithm, true);
+            for (int size : new int[] {0, 1, 100_000}) {
+                byte[] data = new byte[size];
+                random.nextBytes(data);
+                String expected = TransferResult.hex(MessageDigest.getInstance(algorithm).digest(data));
+                assertFalse(store.contains(expected));
+                assertNull(store.get(expected));
+
+                assertEquals(expected, store.put(new ByteArrayInputStream(data)));
+                Path file = dir.resolve("file.bin");
+                Files.write(file, data);
+                assertEquals(expected, store.put(file));
+                assertTrue(store.contains(expected));
+                assertArrayEquals(data, Files.readAllBytes(store.get(expected)));
+                try (InputStream in = store.open(expected)) {
+                    assertArrayEquals(data, in.readAllBytes());
+                }
+                assertEquals(expected.substring(0, 2), store.get(expected).getParent().getParent().getFileName()
+                    .toString());
+            }
+            assertEquals(0, tempFiles(dir.resolve(algorithm)), "no temp files are left");
+        }
+    }
+
+    @Test
+    void storedContentIsNotSharedWithFiles() throws Exception {
+        ContentAddressedStore store = ContentAddressedStore.open(dir.resolve("store"));
+        byte[] data = "stored content".getBytes();
+        Path file = dir.resolve("upload.txt");
+        Files.write(file, data);
+        String key = store.put(file);
+        // writing the source in place does not change the stored content
+        try (OutputStream out = Files.newOutputStream(file, StandardOpenOption.WRITE)) {
+            out.write("changed".getBytes());
+        }
+        Files.delete(file);
+        assertArrayEquals(data, Files.readAllBytes(store.get(key)));
+
+        Path target = dir.resolve("download.txt");
+        Files.write(target, new byte[10_000]);
+        store.copyTo(key, target);
+        assertArrayEquals(data, Files.readAllBytes(target));
+        try (OutputStream out = Files.newOutputStream(target, StandardOpenOption.WRITE)) {
+            out.write("changed".getBytes());
+        }
+        assertArrayEquals(data, Files.readAllBytes(store.get(key)));
+
+        assertTrue(store.delete(key));
+        assertFalse(store.delete(key));
+        assertEquals("changedcontent", new String(Files.readAllBytes(target)));
+        assertThrows(FileNotFoundException.class, () -> store.copyTo(key, target));
+        assertThrows(FileNotFoundException.class, () -> store.open(key));
+    }
+
+    @Test
+    void sameContentStoredConcurrently() throws Exception {
+        ContentAddressedStore store = ContentAddressedStore.open(dir.resolve("store"));
+        byte[] data = new byte[500_000];
+        new Random(22).nextBytes(data);
+        String expected = TransferResult.hex(MessageDigest.getInstance("SHA-256").digest(data));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                futures.add(executor.submit(() -> store.put(new ByteArrayInputStream(data))));
+            }
+            for (Future<String> future : futures) {
+                assertEquals(expected, future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertArrayEquals(data, Files.readAllBytes(store.get(expected)));
+        assertEquals(0, tempFiles(dir.resolve("store")));
+    }
+
+    @Test
+    void zipEntriesAreStoredByContent() throws Exception {
+        ContentAddressedStore store = ContentAddressedStore.open(dir.resolve("store"));
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(zip)) {
+            for (String name : new String[] {"a.txt", "b.txt", "c.txt"}) {
+                out.putNextEntry(new ZipEntry(name));
+                out.write((name.equals("c.txt") ? "other" : "same").getBytes());
+                out.closeEntry();
+            }
+        }
+        Map<String, String> keys =
+            ZipUtil.decompressFromZip(new ByteArrayInputStream(zip.toByteArray()), new ZipLimits(), store);
+        assertEquals(List.of("a.txt", "b.txt", "c.txt"), new ArrayList<>(keys.keySet()));
+        assertEquals(keys.get("a.txt"), keys.get("b.txt"));
+        assertEquals("other", new String(Files.readAllBytes(store.get(keys.get("c.txt")))));
+    }
+
+    @Test
+    void rejectsInvalidInput() throws Exception {
+        ContentAddressedStore store = ContentAddressedStore.open(dir.resolve("store"));
+        assertThrows(IllegalArgumentException.class, () -> store.contains("abc"));
+        assertThrows(IllegalArgumentException.class, () -> store.get("../../etc/passwd"));
+        assertThrows(IllegalArgumentException.class, () -> store.get("E3B0C442"));
+        assertThrows(IllegalArgumentException.class, () -> ContentAddressedStore.open(dir, null, false));
+        assertThrows(IllegalArgumentException.class, () -> ContentAddressedStore.open(dir, "no-such-digest", false));
+    }
+
+    private static long tempFiles(Path root) throws Exception {
+        try (Stream<Path> files = Files.list(root.resolve("tmp"))) {
+            return files.count();
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package cn.dlysxx.www.common.file;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FileUtilTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void streamsAndFilesAreCopiedWithDigest() throws Exception {
+        Random random = new Random(16);
+        for (int size : new int[] {0, 1, 4096, 3_000_000}) {
+            byte[] data = new byte[size];
+            random.nextBytes(data);
+            Path source = dir.resolve("source.bin");
+            Files.write(source, data);
+            byte[] sha256 = MessageDigest.getInstance("SHA-256").digest(data);
+            for (int bufferSize : new int[] {1, 7, TransferOptions.DEFAULT_BUFFER_SIZE}) {
+                if (bufferSize == 1 && size > 4096) {
+                    continue;
+                }
+                for (boolean atomic : new boolean[] {false, true}) {
+                    TransferOptions options = new TransferOptions();
+                    options.setBufferSize(bufferSize);
+                    options.setAtomicMove(atomic);
+                    options.setFsync(atomic);
+                    Path target = dir.resolve("target.bin");
+                    // longer than the data, so that the target must be truncated
+                    Files.write(target, new byte[size + 10]);
+
+                    TransferResult result = FileUtil.transfer(new ByteArrayInputStream(data), target, options);
+                    assertEquals(size, result.getBytes());
+                    assertNull(result.getDigest());
+                    assertArrayEquals(data, Files.readAllBytes(target));
+
+                    result = FileUtil.transfer(source, target, options);
+                    assertEquals(size, result.getBytes());
+                    assertArrayEquals(data, Files.readAllBytes(target));
+
+                    options.setDigestAlgorithm("SHA-256");
+                    result = FileUtil.transfer(source, target, options);
+                    assertArrayEquals(sha256, result.getDigest());
+                    assertEquals(TransferResult.hex(sha256), result.getDigestHex());
+                    assertArrayEquals(data, Files.readAllBytes(target));
+                    assertEquals(2, fileCount(), "no temp files are left");
+                }
+            }
+        }
+    }
+
+    @Test
+    void fileStreamIsCopiedFromItsPosition() throws Exception {
+        byte[] data = new byte[100_000];
+        new Random(17).nextBytes(data);
+        Path source = dir.resolve("source.bin");
+        Files.write(source, data);
+        Path target = dir.resolve("target.bin");
+        try (FileInputStream in = new FileInputStream(source.toFile())) {
+            assertEquals(1000, in.read(new byte[1000]));
+            assertEquals(data.length - 1000, FileUtil.transfer(in, target, new TransferOptions()).getBytes());
+            // the stream is at its end, as if it had been read
+            assertEquals(-1, in.read());
+        }
+        assertArrayEquals(Arrays.copyOfRange(data, 1000, data.length), Files.readAllBytes(target));
+    }
+
+    @Test
+    void smallSourcesAreCopiedThroughSmallBuffers() throws Exception {
+        byte[] data = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+        Path source = dir.resolve("source.bin");
+        Files.write(source, data);
+        Path target = dir.resolve("target.bin");
+        int[] largest = new int[1];
+        InputStream bytes = new ByteArrayInputStream(data) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                largest[0] = Math.max(largest[0], len);
+                return super.read(b, off, len);
+            }
+        };
+        FileUtil.transfer(bytes, target, new TransferOptions());
+        assertEquals(data.length, largest[0]);
+        assertArrayEquals(data, Files.readAllBytes(target));
+
+        largest[0] = 0;
+        TransferOptions options = new TransferOptions();
+        options.setDigestAlgorithm("SHA-256");
+        try (InputStream in = new FileInputStream(source.toFile()) {
+            @Override
+            public int read(byte[] b) throws IOException {
+                largest[0] = Math.max(largest[0], b.length);
+                return super.read(b);
+            }
+        }) {
+            assertEquals(3, in.skip(3));
+            FileUtil.transfer(in, target, options);
+        }
+        assertEquals(data.length - 3, largest[0]);
+        assertArrayEquals(Arrays.copyOfRange(data, 3, data.length), Files.readAllBytes(target));
+
+        FileUtil.transfer(new ByteArrayInputStream(new byte[0]), target, options);
+        assertEquals(0, Files.size(target));
+    }
+
+    @Test
+    void atomicCopyHasThePermissionsOfANewFileOrTheReplacedOne() throws Exception {
+        assumeTrue(Files.getFileAttributeView(dir, PosixFileAttributeView.class) != null, "no POSIX permissions");
+        TransferOptions options = new TransferOptions();
+        options.setAtomicMove(true);
+        Path target = dir.resolve("target.bin");
+        FileUtil.transfer(new ByteArrayInputStream(new byte[] {1}), target, options);
+        assertEquals(Files.getPosixFilePermissions(Files.createFile(dir.resolve("new"))),
+            Files.getPosixFilePermissions(target));
+
+        Set<PosixFilePermission> permissions = PosixFilePermissions.fromString("rw-r-----");
+        Files.setPosixFilePermissions(target, permissions);
+        FileUtil.transfer(new ByteArrayInputStream(new byte[] {2}), target, options);
+        assertEquals(permissions, Files.getPosixFilePermissions(target));
+        assertArrayEquals(new byte[] {2}, Files.readAllBytes(target));
+    }
+
+    @Test
+    void pipeIsCopiedToItsEnd() throws Exception {
+        Path fifo = dir.resolve("fifo");
+        Process mkfifo;
+        try {
+            mkfifo = new ProcessBuilder("mkfifo", fifo.toString()).start();
+        } catch (IOException e) {
+            mkfifo = null;
+        }
+        assumeTrue(mkfifo != null && mkfifo.waitFor(10, TimeUnit.SECONDS) && mkfifo.exitValue() == 0,
+            "mkfifo is not available");
+        byte[] data = new byte[3_000_000];
+        new Random(18).nextBytes(data);
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+            try (OutputStream out = Files.newOutputStream(fifo)) {
+                out.write(data);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        Path target = dir.resolve("target.bin");
+        try (FileInputStream in = new FileInputStream(fifo.toFile())) {
+            assertEquals(data.length, FileUtil.transfer(in, target, new TransferOptions()).getBytes());
+        }
+        writer.get(10, TimeUnit.SECONDS);
+        assertArrayEquals(data, Files.readAllBytes(target));
+    }
+
+    @Test
+    void procFileIsCopiedToItsEnd() throws Exception {
+        Path cmdline = Paths.get("/proc/self/cmdline");
+        assumeTrue(Files.isReadable(cmdline), "no /proc file system");
+        Path target = dir.resolve("cmdline");
+        FileUtil.transfer(cmdline, target, new TransferOptions());
+        byte[] expected = Files.readAllBytes(cmdline);
+        assertTrue(expected.length > 0);
+        assertArrayEquals(expected, Files.readAllBytes(target));
+    }
+
+    @Test
+    void failedAtomicCopyLeavesTargetUnchanged() throws Exception {
+        Path target = dir.resolve("target.bin");
+        Files.write(target, new byte[] {1, 2, 3});
+        InputStream failing = new InputStream() {
+            private int count;
+
+            @Override
+            public int read() throws IOException {
+                if (++count > 5000) {
+                    throw new IOException("connection reset");
+                }
+                return 'x';
+            }
+        };
+        TransferOptions options = new TransferOptions();
+        options.setAtomicMove(true);
+        options.setBufferSize(100);
+        assertThrows(IOException.class, () -> FileUtil.transfer(failing, target, options));
+        assertArrayEquals(new byte[] {1, 2, 3}, Files.readAllBytes(target));
+        assertEquals(1, fileCount(), "the temp file is deleted");
+    }
+
+    @Test
+    void inputStreamToFileClosesTheStream() throws Exception {
+        boolean[] closed = new boolean[1];
+        InputStream in = new ByteArrayInputStream(new byte[] {4, 5}) {
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+        };
+        Path target = dir.resolve("target.bin");
+        FileUtil.inputStreamToFile(in, target.toFile());
+        assertTrue(closed[0]);
+        assertArrayEquals(new byte[] {4, 5}, Files.readAllBytes(target));
+        assertThrows(UncheckedIOException.class, () -> FileUtil.inputStreamToFile(new ByteArrayInputStream(
+            new byte[1]), dir.resolve("missing").resolve("target.bin").toFile()));
+    }
+
+    @Test
+    void optionsRejectInvalidValues() {
+        TransferOptions options = new TransferOptions();
+        assertThrows(IllegalArgumentException.class, () -> options.setBufferSize(0));
+        assertThrows(IllegalArgumentException.class, () -> options.setDigestAlgorithm("no-such-digest"));
+    }
+
+    private long fileCount() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.count();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package cn.dlysxx.www.common.file;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TempBufferTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void dataIsReadBackInMemoryAndSpilled() throws Exception {
+        TempStorage storage = TempStorage.create(dir, 200_000, 1024 * 1024);
+        Random random = new Random(23);
+        for (int size : new int[] {0, 1, TempStorage.BLOCK_SIZE, TempStorage.BLOCK_SIZE + 1, 200_000, 200_001,
+            1_000_000}) {
+            byte[] data = new byte[size];
+            random.nextBytes(data);
+            try (TempBuffer buffer = storage.newBuffer()) {
+                // single bytes and writes of random length across blocks
+                OutputStream out = buffer.getOutputStream();
+                int written = 0;
+                while (written < size) {
+                    if (random.nextInt(10) == 0) {
+                        out.write(data[written++]);
+                    } else {
+                        int n = Math.min(size - written, random.nextInt(100_000));
+                        out.write(data, written, n);
+                        written += n;
+                    }
+                }
+                assertEquals(size, buffer.size());
+                assertEquals(size <= 200_000, buffer.isInMemory(), "size " + size);
+                for (int i = 0; i < 2; i++) {
+                    try (InputStream in = buffer.getInputStream()) {
+                        assertArrayEquals(data, read(in, random), "size " + size);
+                    }
+                }
+                assertThrows(IOException.class, () -> buffer.getOutputStream().write(1));
+            }
+            assertEquals(0, storage.getMemoryUsed());
+            assertEquals(1, fileCount(storage), "only the lock file is left");
+        }
+    }
+
+    @Test
+    void buffersSpillWhenMemoryIsUsedUp() throws Exception {
+        TempStorage storage = TempStorage.create(dir, 1024 * 1024, 2L * TempStorage.BLOCK_SIZE);
+        byte[] data = new byte[TempStorage.BLOCK_SIZE];
+        new Random(24).nextBytes(data);
+        // the first buffer is closed before the others, so it is not a resource of the try statement
+        TempBuffer first = storage.newBuffer();
+        try (TempBuffer second = storage.newBuffer(); TempBuffer third = storage.newBuffer()) {
+            try {
+                for (TempBuffer buffer : new TempBuffer[] {first, second, third}) {
+                    buffer.getOutputStream().write(data);
+                }
+                assertTrue(first.isInMemory());
+                assertTrue(second.isInMemory());
+                assertFalse(third.isInMemory());
+                assertEquals(2L * TempStorage.BLOCK_SIZE, storage.getMemoryUsed());
+                for (TempBuffer buffer : new TempBuffer[] {first, second, third}) {
+                    try (InputStream in = buffer.getInputStream()) {
+                        assertArrayEquals(data, in.readAllBytes());
+                    }
+                }
+            } finally {
+                first.close();
+            }
+            assertEquals(TempStorage.BLOCK_SIZE, storage.getMemoryUsed());
+            // memory of closed buffers is used again
+            try (TempBuffer fourth = storage.newBuffer()) {
+                fourth.getOutputStream().write(data);
+                assertTrue(fourth.isInMemory());
+            }
+        }
+        assertEquals(0, storage.getMemoryUsed());
+        assertEquals(1, fileCount(storage));
+    }
+
+    @Test
+    void closedBuffersCannotBeRead() throws Exception {
+        TempStorage storage = TempStorage.create(dir, 1024, 1024 * 1024);
+        TempBuffer buffer = storage.newBuffer();
+        buffer.getOutputStream().write(new byte[100]);
+        InputStream in = buffer.getInputStream();
+        assertEquals(0, in.read());
+        assertEquals(10, in.skip(10));
+        assertEquals(89, in.available());
+        buffer.close();
+        assertThrows(IOException.class, in::read);
+        assertThrows(IOException.class, () -> buffer.getOutputStream().write(1));
+        assertEquals(0, storage.getMemoryUsed());
+    }
+
+    private static byte[] read(InputStream in, Random random) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] chunk = new byte[100_000];
+        while (true) {
+            if (random.nextInt(10) == 0) {
+                int b = in.read();
+                if (b < 0) {
+                    return out.toByteArray();
+                }
+                out.write(b);
+            } else {
+                int n = in.read(chunk, 0, random.nextInt(chunk.length) + 1);
+                if (n < 0) {
+                    return out.toByteArray();
+                }
+                out.write(chunk, 0, n);
+            }
+        }
+    }
+
+    private static long fileCount(TempStorage storage) throws IOException {
+        try (Stream<Path> files = Files.list(storage.getDirectory())) {
+            return files.count();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package cn.dlysxx.www.common.file;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TempStorageTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void processDirectoryIsLockedAndShared() throws Exception {
+        TempStorage storage = TempStorage.create(dir, 1024, 4096);
+        Path processDirectory = storage.getDirectory();
+        assertEquals(dir.toAbsolutePath(), processDirectory.getParent());
+        Path lockFile = processDirectory.resolve(TempStorage.LOCK_FILE);
+        assertEquals(Long.toString(ProcessHandle.current().pid()),
+            new String(Files.readAllBytes(lockFile), StandardCharsets.US_ASCII));
+        try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.WRITE)) {
+            // held by this process
+            assertThrows(OverlappingFileLockException.class, channel::tryLock);
+        }
+        // a second storage on the same directory shares the process directory and does not sweep it
+        TempStorage second = TempStorage.create(dir.resolve(".").resolve("sub").resolve(".."), 0, 0);
+        assertEquals(processDirectory, second.getDirectory());
+        assertTrue(Files.exists(lockFile));
+        Path file = second.createFile("data", ".bin");
+        assertEquals(processDirectory, file.getParent());
+        assertTrue(file.getFileName().toString().startsWith("data"));
+        assertNotEquals(processDirectory, TempStorage.create(dir.resolve("other"), 0, 0).getDirectory());
+    }
+
+    @Test
+    void sweepDeletesOnlyDirectoriesWhoseLockIsFree() throws Exception {
+        long pid = ProcessHandle.current().pid();
+        // gone, even though its process id is alive again
+        Path reused = processDirectory(pid + "-1", Long.toString(pid));
+        Path gone = processDirectory("999999-2", "999999");
+        // being created, and locked by a live process
+        Path creating = processDirectory("999999-3", "");
+        Path live = processDirectory("999999-4", "999999");
+        // no lock file, e.g. not a process directory at all
+        Path other = Files.createDirectories(dir.resolve("12345"));
+        Files.write(other.resolve("file.tmp"), new byte[1]);
+
+        // closing the channel releases the lock
+        try (FileChannel channel = FileChannel.open(live.resolve(TempStorage.LOCK_FILE), StandardOpenOption.WRITE)) {
+            FileLock lock = channel.lock();
+            TempStorage.create(dir, 0, 0);
+            assertTrue(lock.isValid());
+        }
+        assertFalse(Files.exists(reused));
+        assertFalse(Files.exists(gone));
+        assertTrue(Files.exists(creating.resolve("file.tmp")));
+        assertTrue(Files.exists(live.resolve("file.tmp")));
+        assertTrue(Files.exists(other.resolve("file.tmp")));
+    }
+
+    @Test
+    void rejectsInvalidMemory() {
+        assertThrows(IllegalArgumentException.class, () -> TempStorage.create(dir, -1, 0));
+        assertThrows(IllegalArgumentException.class, () -> TempStorage.create(dir, 0, -1));
+    }
+
+    private Path processDirectory(String name, String lockContent) throws Exception {
+        Path directory = Files.createDirectories(dir.resolve(name));
+        Files.write(directory.resolve(TempStorage.LOCK_FILE), lockContent.getBytes(StandardCharsets.US_ASCII));
+        Files.write(directory.resolve("file.tmp"), new byte[100]);
+        return directory;
+    }
+}
@@ -0,0 +1,154 @@
+package cn.dlysxx.www.common.file;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ZipArchiveReaderTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void readsEntriesAndRanges() throws Exception {
+        Map<String, byte[]> entries = entries();
+        Path zip = zip(entries);
+        Random random = new Random(14);
+        try (ZipArchiveReader reader = ZipArchiveReader.open(zip.toFile())) {
+            // directories excluded, in the order of the archive
+            assertEquals(new ArrayList<>(entries.keySet()), reader.getNames());
+            assertNull(reader.getEntry("dir/"));
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                String name = entry.getKey();
+                byte[] data = entry.getValue();
+                assertEquals(data.length, reader.getEntry(name).getSize());
+                try (InputStream in = reader.read(name)) {
+                    assertArrayEquals(data, in.readAllBytes(), name);
+                }
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                assertEquals(data.length, reader.copyTo(name, out));
+                assertArrayEquals(data, out.toByteArray(), name);
+                for (int i = 0; i < 200; i++) {
+                    long offset = random.nextInt(data.length + 10);
+                    int length = random.nextInt(i % 2 == 0 ? 100 : data.length + 10);
+                    assertArrayEquals(range(data, offset, length), reader.readRange(name, offset, length),
+                        name + " " + offset + " " + length);
+                }
+                assertArrayEquals(new byte[0], reader.readRange(name, Long.MAX_VALUE / 2, 10));
+                // ranges past the end are bounded by the entry, not allocated at their full length
+                assertArrayEquals(data, reader.readRange(name, 0, Integer.MAX_VALUE), name);
+                assertArrayEquals(range(data, 1, Integer.MAX_VALUE), reader.readRange(name, 1, Integer.MAX_VALUE));
+                assertArrayEquals(new byte[0], reader.readRange(name, data.length + 1L, Integer.MAX_VALUE));
+            }
+        }
+    }
+
+    @Test
+    void concurrentRangesDoNotInterfere() throws Exception {
+        Map<String, byte[]> entries = entries();
+        List<String> names = new ArrayList<>(entries.keySet());
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try (ZipArchiveReader reader = ZipArchiveReader.open(zip(entries).toFile())) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                Random random = new Random(t);
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        String name = names.get(random.nextInt(names.size()));
+                        byte[] data = entries.get(name);
+                        long offset = random.nextInt(data.length + 1);
+                        int length = random.nextInt(5000);
+                        assertArrayEquals(range(data, offset, length), reader.readRange(name, offset, length));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void rejectsMissingEntriesAndInvalidInput() throws Exception {
+        try (ZipArchiveReader reader = ZipArchiveReader.open(zip(entries()).toFile())) {
+            assertNull(reader.getEntry("missing"));
+            assertThrows(FileNotFoundException.class, () -> reader.read("missing"));
+            assertThrows(FileNotFoundException.class, () -> reader.readRange("missing", 0, 1));
+            assertThrows(IllegalArgumentException.class, () -> reader.readRange("stored.bin", -1, 1));
+            assertThrows(IllegalArgumentException.class, () -> reader.readRange("stored.bin", 0, -1));
+        }
+        Path text = dir.resolve("not.zip");
+        Files.write(text, "not a zip file".getBytes());
+        assertThrows(IOException.class, () -> ZipArchiveReader.open(text.toFile()));
+        assertThrows(IOException.class, () -> ZipArchiveReader.open(dir.resolve("missing.zip").toFile()));
+    }
+
+    private static Map<String, byte[]> entries() {
+        Random random = new Random(15);
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        for (String name : new String[] {"stored.bin", "dir/deflated.bin", "empty-stored.bin", "empty.bin",
+            "large-stored.bin"}) {
+            byte[] data = new byte[name.startsWith("empty") ? 0 : name.startsWith("large") ? 300_000 : 7000];
+            random.nextBytes(data);
+            Arrays.fill(data, 0, data.length / 3, (byte) 'z');
+            entries.put(name, data);
+        }
+        return entries;
+    }
+
+    /**
+     * Write archive with {@link ZipOutputStream}, entries named "*stored*" without compression.
+     */
+    private Path zip(Map<String, byte[]> entries) throws IOException {
+        Path zip = dir.resolve("archive.zip");
+        try (OutputStream file = Files.newOutputStream(zip); ZipOutputStream out = new ZipOutputStream(file)) {
+            out.putNextEntry(new ZipEntry("dir/"));
+            out.closeEntry();
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                ZipEntry zipEntry = new ZipEntry(entry.getKey());
+                if (entry.getKey().contains("stored")) {
+                    CRC32 crc = new CRC32();
+                    crc.update(entry.getValue());
+                    zipEntry.setMethod(ZipEntry.STORED);
+                    zipEntry.setSize(entry.getValue().length);
+                    zipEntry.setCrc(crc.getValue());
+                }
+                out.putNextEntry(zipEntry);
+                out.write(entry.getValue());
+                out.closeEntry();
+            }
+        }
+        return zip;
+    }
+
+    private static byte[] range(byte[] data, long offset, int length) {
+        int from = (int) Math.min(offset, data.length);
+        return Arrays.copyOfRange(data, from, (int) Math.min(data.length, offset + length));
+    }
+}
@@ -0,0 +1,136 @@
+package cn.dlysxx.www.common.file;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.Test;
+
+class ZipLimitsTest {
+
+    @Test
+    void entriesMatchTheWrittenArchive() throws Exception {
+        Map<String, byte[]> entries = entries(0, 1, 64 * 1024, 300_000);
+        byte[] zip = zip(entries, "dir/", "dir/sub/");
+        Map<String, byte[]> read = new LinkedHashMap<>();
+        ZipUtil.decompressFromZip(new ByteArrayInputStream(zip), new ZipLimits(),
+            (entry, in) -> read.put(entry.getName(), in.readAllBytes()));
+        assertEquals(entries.keySet(), read.keySet());
+        entries.forEach((name, data) -> assertEquals(Arrays.toString(data), Arrays.toString(read.get(name)), name));
+    }
+
+    @Test
+    void totalBytesCountUnreadData() throws Exception {
+        Map<String, byte[]> entries = entries(1000, 2000, 3000);
+        byte[] zip = zip(entries);
+        ZipLimits limits = new ZipLimits();
+        limits.setMaxTotalBytes(6000);
+        // the visitor reads nothing, the entries are decompressed to skip them anyway
+        ZipUtil.decompressFromZip(new ByteArrayInputStream(zip), limits, (entry, in) -> { });
+        limits.setMaxTotalBytes(5999);
+        assertThrows(ZipException.class,
+            () -> ZipUtil.decompressFromZip(new ByteArrayInputStream(zip), limits, (entry, in) -> { }));
+        assertThrows(ZipException.class,
+            () -> ZipUtil.decompressFromZip(new ByteArrayInputStream(zip), limits, (entry, in) -> in.readAllBytes()));
+    }
+
+    @Test
+    void entryCountIncludesDirectories() throws Exception {
+        byte[] zip = zip(entries(1, 1), "a/", "b/");
+        ZipLimits limits = new ZipLimits();
+        limits.setMaxEntries(4);
+        List<String> names = new ArrayList<>();
+        ZipUtil.decompressFromZip(new ByteArrayInputStream(zip), limits, (entry, in) -> names.add(entry.getName()));
+        // directories are counted but not visited
+        assertEquals(Arrays.asList("entry-0", "entry-1"), names);
+        limits.setMaxEntries(3);
+        assertThrows(ZipException.class,
+            () -> ZipUtil.decompressFromZip(new ByteArrayInputStream(zip), limits, (entry, in) -> { }));
+    }
+
+    @Test
+    void compressionRatioStopsBombs() throws Exception {
+        Map<String, byte[]> bomb = new LinkedHashMap<>();
+        bomb.put("zeros", new byte[10 * 1024 * 1024]);
+        byte[] zip = zip(bomb);
+        assertThrows(ZipException.class, () -> ZipUtil.decompressFromZip(new ByteArrayInputStream(zip),
+            new ZipLimits(), (entry, in) -> in.readAllBytes()));
+        // the ratio of the data so far, a long run of zeros at the start is rejected even if the rest is random
+        Map<String, byte[]> prefix = new LinkedHashMap<>();
+        byte[] data = new byte[2 * 1024 * 1024];
+        new Random(1).nextBytes(data);
+        Arrays.fill(data, 0, 1024 * 1024, (byte) 0);
+        prefix.put("prefix", data);
+        assertThrows(ZipException.class, () -> ZipUtil.decompressFromZip(new ByteArrayInputStream(zip(prefix)),
+            new ZipLimits(), (entry, in) -> { }));
+        // small entries are not checked, however well they compress
+        Map<String, byte[]> small = new LinkedHashMap<>();
+        small.put("zeros", new byte[64 * 1024]);
+        ZipUtil.decompressFromZip(new ByteArrayInputStream(zip(small)), new ZipLimits(), (entry, in) -> { });
+        ZipUtil.decompressFromZip(new ByteArrayInputStream(zip), ZipLimits.unlimited(), (entry, in) -> { });
+    }
+
+    @Test
+    void visitorExceptionsPropagate() throws Exception {
+        byte[] zip = zip(entries(10));
+        IOException thrown = new IOException("visitor");
+        assertEquals(thrown, assertThrows(IOException.class,
+            () -> ZipUtil.decompressFromZip(new ByteArrayInputStream(zip), new ZipLimits(), (entry, in) -> {
+                throw thrown;
+            })));
+    }
+
+    @Test
+    void rejectsNegativeLimits() {
+        ZipLimits limits = new ZipLimits();
+        assertThrows(IllegalArgumentException.class, () -> limits.setMaxTotalBytes(-1));
+        assertThrows(IllegalArgumentException.class, () -> limits.setMaxEntries(-1));
+        assertThrows(IllegalArgumentException.class, () -> limits.setMaxCompressionRatio(-1));
+    }
+
+    /**
+     * Random entries of four letters, compressed to about a quarter.
+     */
+    private static Map<String, byte[]> entries(int... sizes) {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        for (int i = 0; i < sizes.length; i++) {
+            Random random = new Random(i);
+            byte[] data = new byte[sizes[i]];
+            for (int j = 0; j < data.length; j++) {
+                data[j] = (byte) ('a' + random.nextInt(4));
+            }
+            entries.put("entry-" + i, data);
+        }
+        return entries;
+    }
+
+    /**
+     * Write archive with {@link ZipOutputStream}, independent of the commons-compress writer.
+     */
+    private static byte[] zip(Map<String, byte[]> entries, String... directories) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (String directory : directories) {
+                zip.putNextEntry(new ZipEntry(directory));
+                zip.closeEntry();
+            }
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                zip.putNextEntry(new ZipEntry(entry.getKey()));
+                zip.write(entry.getValue());
+                zip.closeEntry();
+            }
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,291 @@
+package cn.dlysxx.www.common.file;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import cn.dlysxx.www.common.crypto.AESCryptoUtil;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.stream.Stream;
+import java.util.zip.ZipInputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ZipUtilTest {
+
+    private static final String PASSWORD = "secret";
+    private static final Base64.Encoder BASE64 = Base64.getEncoder();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void encryptedZipRoundTrip() throws Exception {
+        List<File> files = files(0, 10, 100_000);
+        CloseTrackingStream encrypted = new CloseTrackingStream();
+        ZipUtil.compressToEncryptedZip(files, encrypted, PASSWORD);
+        assertFalse(encrypted.closed);
+
+        List<File> decompressed = new ArrayList<>();
+        ZipUtil.decompressFromEncryptedZip(new ByteArrayInputStream(encrypted.toByteArray()), PASSWORD,
+            decompressed);
+        try {
+            assertEquals(files.size(), decompressed.size());
+            for (int i = 0; i < files.size(); i++) {
+                assertArrayEquals(Files.readAllBytes(files.get(i).toPath()),
+                    Files.readAllBytes(decompressed.get(i).toPath()));
+            }
+        } finally {
+            for (File f : decompressed) {
+                Files.deleteIfExists(f.toPath());
+            }
+        }
+    }
+
+    @Test
+    void encryptedZipIsAnEncryptedFile() throws Exception {
+        List<File> files = files(1, 1000);
+        ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+        ZipUtil.compressToEncryptedZip(files, encrypted, PASSWORD);
+        Path in = dir.resolve("archive.zip.aes");
+        Path zip = dir.resolve("archive.zip");
+        Files.write(in, encrypted.toByteArray());
+        AESCryptoUtil.decryptFile(in.toString(), zip.toString(), PASSWORD);
+        assertEquals(contents(files), unzip(Files.readAllBytes(zip)));
+    }
+
+    @Test
+    void truncatedEncryptedZipFails() throws Exception {
+        ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+        ZipUtil.compressToEncryptedZip(files(5000), encrypted, PASSWORD);
+        byte[] data = encrypted.toByteArray();
+        List<File> decompressed = new ArrayList<>();
+        assertThrows(IOException.class, () -> ZipUtil.decompressFromEncryptedZip(
+            new ByteArrayInputStream(Arrays.copyOf(data, data.length - 1)), PASSWORD, decompressed));
+        for (File f : decompressed) {
+            Files.deleteIfExists(f.toPath());
+        }
+    }
+
+    @Test
+    void streamedZipLeavesOutputOpen() throws Exception {
+        List<File> files = files(0, 1, 70_000);
+        CloseTrackingStream out = new CloseTrackingStream();
+        ZipUtil.compressToZip(files, out);
+        assertFalse(out.closed);
+        assertEquals(contents(files), unzip(out.toByteArray()));
+    }
+
+    @Test
+    void optionsChangeTheArchiveButNotTheContents() throws Exception {
+        List<File> files = files(0, 1, 3000, 200_000);
+        Path image = dir.resolve("photo.JPG");
+        Files.write(image, Files.readAllBytes(files.get(3).toPath()));
+        files.add(image.toFile());
+        Map<String, String> expected = contents(files);
+        Map<Integer, Integer> sizes = new HashMap<>();
+        for (int level : new int[] {Deflater.DEFAULT_COMPRESSION, Deflater.NO_COMPRESSION, Deflater.BEST_SPEED,
+            Deflater.BEST_COMPRESSION}) {
+            for (int bufferSize : new int[] {1, 7, ZipOptions.DEFAULT_BUFFER_SIZE}) {
+                ZipOptions options = new ZipOptions();
+                options.setLevel(level);
+                options.setBufferSize(bufferSize);
+                options.setStored(ZipOptions.extensions("png", "jpg"));
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                ZipUtil.compressToZip(files, out, options);
+                assertEquals(expected, unzip(out.toByteArray()), "level " + level + " buffer " + bufferSize);
+                sizes.put(level, out.size());
+                assertEquals(Collections.singletonMap("photo.JPG", ZipEntry.STORED), storedEntries(out.toByteArray()));
+            }
+        }
+        assertTrue(sizes.get(Deflater.NO_COMPRESSION) > sizes.get(Deflater.BEST_COMPRESSION));
+    }
+
+    @Test
+    void optionsRejectInvalidValues() {
+        ZipOptions options = new ZipOptions();
+        assertThrows(IllegalArgumentException.class, () -> options.setLevel(-2));
+        assertThrows(IllegalArgumentException.class, () -> options.setLevel(10));
+        assertThrows(IllegalArgumentException.class, () -> options.setBufferSize(0));
+        assertThrows(IllegalArgumentException.class, () -> options.setParallelism(0));
+        assertFalse(ZipOptions.extensions("zip").test(new File("zip")));
+        assertFalse(ZipOptions.extensions("zip").test(new File("a.zip.bin")));
+        assertTrue(ZipOptions.extensions("zip").test(new File("a.bin.Zip")));
+    }
+
+    @Test
+    void parallelZipMatchesSequentialContents() throws Exception {
+        List<File> files = files(0, 1, 5000, 70_000, 300_000, 20, 20, 1_000_000);
+        Path image = dir.resolve("photo.png");
+        Files.write(image, Files.readAllBytes(files.get(4).toPath()));
+        files.add(image.toFile());
+        Map<String, String> expected = contents(files);
+        // in memory, spilled into files, and a single thread
+        TempStorage memory = TempStorage.create(dir.resolve("memory"), 4 * 1024 * 1024, 64L * 1024 * 1024);
+        TempStorage disk = TempStorage.create(dir.resolve("disk"), 0, 0);
+        for (TempStorage storage : new TempStorage[] {memory, disk}) {
+            for (int parallelism : new int[] {1, 2, 8}) {
+                ZipOptions options = new ZipOptions();
+                options.setParallelism(parallelism);
+                options.setTempStorage(storage);
+                options.setStored(ZipOptions.extensions("png"));
+                CloseTrackingStream out = new CloseTrackingStream();
+                ZipUtil.compressToZipInParallel(files, out, options);
+                assertFalse(out.closed);
+                assertEquals(expected, unzip(out.toByteArray()), "parallelism " + parallelism);
+                assertEquals(Collections.singletonMap("photo.png", ZipEntry.STORED), storedEntries(out.toByteArray()));
+                try (Stream<Path> left = Files.list(storage.getDirectory())) {
+                    assertEquals(1, left.count(), "only the lock file is left");
+                }
+            }
+        }
+    }
+
+    @Test
+    void parallelZipAboveTheCapIsCompressedInBatches() throws Exception {
+        Set<Thread> readers = ConcurrentHashMap.newKeySet();
+        List<File> files = new ArrayList<>();
+        // the files are opened by the threads compressing them
+        for (File f : files(3000, 3000, 3000, 3000, 3000, 3000, 3000, 3000, 20_000)) {
+            files.add(new File(f.getPath()) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                public String getPath() {
+                    readers.add(Thread.currentThread());
+                    return super.getPath();
+                }
+            });
+        }
+        TempStorage storage = TempStorage.create(dir.resolve("storage"), 0, 0);
+        ZipOptions options = new ZipOptions();
+        assertEquals(ZipOptions.DEFAULT_MAX_SCATTER_BYTES, options.getMaxScatterBytes());
+        // batches of three files, and one file above the cap written straight into the archive
+        options.setMaxScatterBytes(10_000);
+        options.setParallelism(4);
+        options.setTempStorage(storage);
+        CloseTrackingStream out = new CloseTrackingStream();
+        ZipUtil.compressToZipInParallel(files, out, options);
+        assertFalse(out.closed);
+        assertEquals(contents(files), unzip(out.toByteArray()));
+        readers.remove(Thread.currentThread());
+        assertTrue(readers.size() > 1, "compressed on " + readers.size() + " threads");
+        try (Stream<Path> left = Files.list(storage.getDirectory())) {
+            assertEquals(1, left.count(), "only the lock file is left");
+        }
+        assertThrows(IllegalArgumentException.class, () -> options.setMaxScatterBytes(-1));
+    }
+
+    @Test
+    void parallelZipFailingBeforeWritingReleasesBuffers() throws Exception {
+        List<File> files = files(50_000, 50_000, 50_000, 50_000, 10);
+        TempStorage storage = TempStorage.create(dir.resolve("storage"), 0, 0);
+        ZipOptions options = new ZipOptions();
+        options.setParallelism(2);
+        options.setTempStorage(storage);
+        options.setStored(f -> {
+            if (f.length() == 10) {
+                throw new IllegalStateException("rejected " + f);
+            }
+            return false;
+        });
+        assertThrows(IllegalStateException.class,
+            () -> ZipUtil.compressToZipInParallel(files, new ByteArrayOutputStream(), options));
+        try (Stream<Path> left = Files.list(storage.getDirectory())) {
+            assertEquals(1, left.count(), "scatter files of the submitted entries are deleted");
+        }
+        assertEquals(0, storage.getMemoryUsed());
+    }
+
+    @Test
+    void parallelZipOfMissingFileFails() throws Exception {
+        List<File> files = files(10, 10);
+        files.add(dir.resolve("missing.bin").toFile());
+        ZipOptions options = new ZipOptions();
+        options.setParallelism(2);
+        assertThrows(IOException.class,
+            () -> ZipUtil.compressToZipInParallel(files, new ByteArrayOutputStream(), options));
+    }
+
+    /**
+     * Methods of the entries that are not deflated, read by {@link ZipInputStream}, which checks their CRC.
+     */
+    static Map<String, Integer> storedEntries(byte[] zip) throws IOException {
+        Map<String, Integer> stored = new HashMap<>();
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(zip))) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                in.readAllBytes();
+                if (entry.getMethod() != ZipEntry.DEFLATED) {
+                    stored.put(entry.getName(), entry.getMethod());
+                }
+            }
+        }
+        return stored;
+    }
+
+    List<File> files(int... sizes) throws IOException {
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < sizes.length; i++) {
+            byte[] data = new byte[sizes[i]];
+            // half random, half repeated, so that deflating has something to do
+            new Random(i).nextBytes(data);
+            Arrays.fill(data, 0, data.length / 2, (byte) 'a');
+            Path file = dir.resolve("file-" + i + ".bin");
+            Files.write(file, data);
+            files.add(file.toFile());
+        }
+        return files;
+    }
+
+    static Map<String, String> contents(List<File> files) throws IOException {
+        Map<String, String> contents = new HashMap<>();
+        for (File f : files) {
+            contents.put(f.getName(), BASE64.encodeToString(Files.readAllBytes(f.toPath())));
+        }
+        return contents;
+    }
+
+    /**
+     * Read archive with {@link ZipInputStream}, independent of the commons-compress reader.
+     */
+    static Map<String, String> unzip(byte[] zip) throws IOException {
+        Map<String, String> contents = new HashMap<>();
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(zip))) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                contents.put(entry.getName(), BASE64.encodeToString(in.readAllBytes()));
+            }
+        }
+        return contents;
+    }
+
+    static final class CloseTrackingStream extends ByteArrayOutputStream {
+
+        boolean closed;
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}